@@ -0,0 +1,18 @@
+#!/bin/bash
+# Builds and runs the JMH suites, writing the results as JSON named after the current
+# commit so runs can be compared across commits.
+# Usage: benchmarks/run.sh [JMH options] [benchmark regexps]
+#   benchmarks/run.sh ReservationBenchmark -p hotProducts=1
+set -e
+
+cd "$(dirname "$0")/.."
+
+mvn -B -q -pl benchmarks -am package -DskipTests
+
+commit=$(git rev-parse --short HEAD)
+if ! git diff --quiet HEAD; then
+    commit="$commit-dirty"
+fi
+mkdir -p benchmarks/results
+java -jar benchmarks/target/benchmarks.jar -rf json -rff "benchmarks/results/$commit.json" "$@"
+echo "Results written to benchmarks/results/$commit.json"
@@ -0,0 +1,92 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
+import com.eventdriven.shared.routing.EventRouter;
+import com.eventdriven.shared.serde.EventDeserializer;
+import com.eventdriven.shared.serde.EventSerializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumer-side cost of one successful {@link InventoryReservationResultEvent}, as the
+ * notification-service sees it, with and without header routing: decoding it as before,
+ * skipping it by its outcome header, and reading only its headers as the order saga does.
+ * Run with {@code -prof gc} for the allocation per record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EventRoutingBenchmark {
+
+    private static final String TOPIC = "inventory-result-events";
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private EventDeserializer decoding;
+    private EventDeserializer skipping;
+    private EventDeserializer headersOnly;
+    private byte[] encoded;
+    private RecordHeaders encodedHeaders;
+
+    @Setup
+    public void setUp() {
+        decoding = deserializer(Map.of());
+        skipping = deserializer(Map.of(EventRouter.OUTCOMES_CONFIG, "failure"));
+        headersOnly = deserializer(Map.of(EventRouter.HEADERS_ONLY_CONFIG, "true"));
+        EventSerializer serializer = new EventSerializer();
+        serializer.configure(Map.of(EventSerializer.FORMAT_CONFIG, format), false);
+        InventoryReservationResultEvent event = new InventoryReservationResultEvent("01HN3QZ8X4R2K", true, "Reserved",
+                List.of(new InventoryReservationResultEvent.LineResult("product-1", 2, true, "Reserved"),
+                        new InventoryReservationResultEvent.LineResult("product-2", 1, true, "Reserved"),
+                        new InventoryReservationResultEvent.LineResult("product-3", 5, true, "Reserved")));
+        encodedHeaders = new RecordHeaders();
+        encoded = serializer.serialize(TOPIC, encodedHeaders, event);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return decoding.deserialize(TOPIC, headers(), encoded);
+    }
+
+    @Benchmark
+    public Object skipByOutcome() {
+        return skipping.deserialize(TOPIC, headers(), encoded);
+    }
+
+    @Benchmark
+    public Object headersOnly() {
+        return headersOnly.deserialize(TOPIC, headers(), encoded);
+    }
+
+    private RecordHeaders headers() {
+        // A copy, as the consumer gets: the JSON deserializer removes the type headers it reads
+        return new RecordHeaders(encodedHeaders.toArray());
+    }
+
+    private static EventDeserializer deserializer(Map<String, Object> routing) {
+        EventDeserializer deserializer = new EventDeserializer();
+        Map<String, Object> configs = new HashMap<>(routing);
+        configs.put("spring.json.trusted.packages", "*");
+        deserializer.configure(configs, false);
+        return deserializer;
+    }
+}
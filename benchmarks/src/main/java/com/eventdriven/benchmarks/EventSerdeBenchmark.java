@@ -0,0 +1,104 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.events.BaseEvent;
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
+import com.eventdriven.shared.events.InventoryReservedEvent;
+import com.eventdriven.shared.events.InventoryRollbackEvent;
+import com.eventdriven.shared.events.NotificationEvent;
+import com.eventdriven.shared.events.OrderCreatedEvent;
+import com.eventdriven.shared.events.PaymentProcessedEvent;
+import com.eventdriven.shared.serde.EventDeserializer;
+import com.eventdriven.shared.serde.EventSerializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializer and deserializer cost of every {@link BaseEvent} subclass in the JSON and the
+ * binary event format, through the same Kafka serde calls the producer and consumer make.
+ * Events carry typical values; the order and reservation result have three lines. The
+ * encoded size of the event is printed at the start of each fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EventSerdeBenchmark {
+
+    private static final String TOPIC = "order-events";
+
+    @Param({"OrderCreatedEvent", "InventoryReservedEvent", "InventoryReservationResultEvent",
+            "InventoryRollbackEvent", "PaymentProcessedEvent", "NotificationEvent"})
+    public String eventType;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private EventSerializer serializer;
+    private EventDeserializer deserializer;
+    private BaseEvent event;
+    private byte[] encoded;
+    private RecordHeaders encodedHeaders;
+
+    @Setup
+    public void setUp() {
+        serializer = new EventSerializer();
+        serializer.configure(Map.of(EventSerializer.FORMAT_CONFIG, format), false);
+        deserializer = new EventDeserializer();
+        deserializer.configure(Map.of("spring.json.trusted.packages", "*"), false);
+        event = event(eventType);
+        encodedHeaders = new RecordHeaders();
+        encoded = serializer.serialize(TOPIC, encodedHeaders, event);
+        System.out.printf("%s as %s: %d bytes per event%n", eventType, format, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        // A copy, as the consumer gets: the JSON deserializer removes the type headers it reads
+        return deserializer.deserialize(TOPIC, new RecordHeaders(encodedHeaders.toArray()), encoded);
+    }
+
+    static BaseEvent event(String eventType) {
+        String orderId = "01HN3QZ8X4R2K";
+        return switch (eventType) {
+            case "OrderCreatedEvent" -> new OrderCreatedEvent(orderId, "customer-4711",
+                    List.of(new OrderItem("product-1", 2, 25.0),
+                            new OrderItem("product-2", 1, 99.9),
+                            new OrderItem("product-3", 5, 4.5)),
+                    172.4, "123 Test St, Test City", "CREDIT_CARD");
+            case "InventoryReservedEvent" -> new InventoryReservedEvent(orderId, "product-1", 2, true,
+                    "Stock reserved successfully");
+            case "InventoryReservationResultEvent" -> new InventoryReservationResultEvent(orderId, true, "Reserved",
+                    List.of(new InventoryReservationResultEvent.LineResult("product-1", 2, true, "Reserved"),
+                            new InventoryReservationResultEvent.LineResult("product-2", 1, true, "Reserved"),
+                            new InventoryReservationResultEvent.LineResult("product-3", 5, true, "Reserved")));
+            case "InventoryRollbackEvent" -> new InventoryRollbackEvent(orderId, "product-1", 2, "Payment failed");
+            case "PaymentProcessedEvent" -> new PaymentProcessedEvent(orderId, "customer-4711", 172.4, "CREDIT_CARD",
+                    true, "TXN-01HN3QZ8X4R2M", "Payment processed successfully");
+            case "NotificationEvent" -> new NotificationEvent(orderId, "customer-4711", "ORDER_CREATED",
+                    "Your order has been created successfully. Order ID: " + orderId, "customer-4711@example.com");
+            default -> throw new IllegalArgumentException("Unknown event type " + eventType);
+        };
+    }
+}
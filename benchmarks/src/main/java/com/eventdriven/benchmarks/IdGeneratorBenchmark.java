@@ -0,0 +1,48 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.shared.id.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id generation throughput with every available core generating at once, which is how
+ * orders, events and notifications are created under load. Run with a single thread too
+ * ({@code -t 1}) to separate contention from the per-call cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator generator = new IdGenerator(1);
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String timeOrderedId() {
+        return generator.next();
+    }
+
+    @Benchmark
+    public long timeOrderedIdAsLong() {
+        return generator.nextLong();
+    }
+}
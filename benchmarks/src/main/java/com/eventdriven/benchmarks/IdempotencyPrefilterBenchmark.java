@@ -0,0 +1,57 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.shared.idempotency.RecentKeyFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency the idempotency prefilter adds to an order submission with a new key (one lookup
+ * and one insert) while every core submits at once, with the filter sized as in the
+ * order-service defaults. The Redis side adds no round trip: the key is claimed by the
+ * script that writes the order.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class IdempotencyPrefilterBenchmark {
+
+    private RecentKeyFilter filter;
+    private final AtomicLong sequence = new AtomicLong();
+    private final String prefix = UUID.randomUUID() + "-";
+
+    @Setup
+    public void setUp() {
+        filter = new RecentKeyFilter(1_000_000, 0.01, Duration.ofHours(24));
+    }
+
+    @Benchmark
+    public boolean newKey() {
+        String key = prefix + sequence.incrementAndGet();
+        boolean seen = filter.mightContain(key);
+        filter.put(key);
+        return seen;
+    }
+
+    @Benchmark
+    public boolean repeatedKey() {
+        return filter.mightContain(prefix + (sequence.get() & 1023));
+    }
+}
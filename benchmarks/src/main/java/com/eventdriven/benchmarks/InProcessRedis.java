@@ -0,0 +1,116 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.notification.repository.NotificationRepository;
+import com.eventdriven.order.repository.OrderRepository;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Redis stand-in running in the benchmark JVM (jedis-mock, which speaks RESP over a local
+ * socket and runs Lua scripts), and a Spring context with the services' repositories and
+ * the given components wired to it the way the services wire them. No application.yml is
+ * read; the context sees only {@code properties}.
+ * <p>
+ * The stand-in is single-threaded and keeps everything on the heap, so absolute numbers
+ * are not Redis numbers. They include the client, the mapping and a real round trip, which
+ * is what a change to a store or repository affects.
+ */
+final class InProcessRedis implements AutoCloseable {
+
+    private final RedisServer server;
+    private final AnnotationConfigApplicationContext context;
+
+    private InProcessRedis(RedisServer server, AnnotationConfigApplicationContext context) {
+        this.server = server;
+        this.context = context;
+    }
+
+    static InProcessRedis start(Map<String, Object> properties, Class<?>... components) {
+        RedisServer server;
+        try {
+            server = RedisServer.newRedisServer().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the Redis stand-in", e);
+        }
+        Map<String, Object> environment = new HashMap<>(properties);
+        environment.put("spring.data.redis.host", server.getHost());
+        environment.put("spring.data.redis.port", server.getBindPort());
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", environment));
+        context.register(StoreConfiguration.class);
+        context.register(components);
+        context.refresh();
+        return new InProcessRedis(server, context);
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    StringRedisTemplate redisTemplate() {
+        return context.getBean(StringRedisTemplate.class);
+    }
+
+    /** Empties the stand-in, so data written by one iteration does not pile up into the next. */
+    void flushAll() {
+        redisTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not stop the Redis stand-in", e);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({RedisAutoConfiguration.class, JacksonAutoConfiguration.class,
+            ValidationAutoConfiguration.class})
+    @EnableRedisRepositories(basePackageClasses = {OrderRepository.class, ProductRepository.class,
+            NotificationRepository.class})
+    static class StoreConfiguration {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /** The stand-in does not implement HELLO, so skip the RESP3 handshake. */
+        @Bean
+        public LettuceClientConfigurationBuilderCustomizer resp2Customizer() {
+            return builder -> builder.clientOptions(ClientOptions.builder()
+                    .protocolVersion(ProtocolVersion.RESP2)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.order.model.Order;
+import com.eventdriven.order.repository.OrderStore;
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.kafka.KeyOrderedBatchListener;
+import com.eventdriven.shared.kafka.ListenerMetrics;
+import com.eventdriven.shared.kafka.MicrometerListenerMetrics;
+import com.eventdriven.shared.metrics.StoreMetricsPostProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.kafka.listener.GenericMessageListener;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost of the shared-lib instrumentation on the code paths it wraps, against a Prometheus
+ * registry as the services use:
+ * <ul>
+ *   <li>{@code orderStoreRaw} / {@code orderStoreInstrumented}: {@link OrderStore#findById}
+ *       on the in-process Redis stand-in (see {@link InProcessRedis}), called on the bean
+ *       itself and through the {@code store.invocations} proxy of
+ *       {@link StoreMetricsPostProcessor}.</li>
+ *   <li>{@code listenerBare}: a poll of {@value #POLL_SIZE} records handed to the record
+ *       listener one by one, as a plain record listener container would.</li>
+ *   <li>{@code listenerKeyOrdered} / {@code listenerKeyOrderedTimed}: the same poll through
+ *       {@link KeyOrderedBatchListener}, with its lanes, commit and trace scope, without
+ *       metrics and with the {@code event.listener} timer and lag gauges.</li>
+ * </ul>
+ * The record listener only counts records, so the listener numbers are the wrapper's cost
+ * per poll; a listener that does any I/O dwarfs it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+
+    static final int POLL_SIZE = 100;
+
+    private static final String TOPIC = "order-events";
+    private static final int PARTITIONS = 3;
+    private static final int KEYS = 20;
+
+    @State(Scope.Benchmark)
+    public static class Stores {
+
+        private InProcessRedis redis;
+        private OrderStore raw;
+        private OrderStore instrumented;
+        private String storedId;
+
+        @Setup
+        public void setUp() {
+            redis = InProcessRedis.start(Map.of(), OrderStore.class);
+            raw = redis.bean(OrderStore.class);
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            beanFactory.registerSingleton("meterRegistry", new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+            instrumented = (OrderStore) new StoreMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class))
+                    .postProcessAfterInitialization(raw, "orderStore");
+        }
+
+        @Setup(Level.Iteration)
+        public void seed() {
+            redis.flushAll();
+            Order order = new Order("customer-4711",
+                    List.of(new OrderItem("product-1", 2, 25.0), new OrderItem("product-2", 1, 99.9)),
+                    149.9, "123 Test St, Test City", "CREDIT_CARD");
+            raw.save(order);
+            storedId = order.getOrderId();
+        }
+
+        @TearDown
+        public void tearDown() {
+            redis.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Listeners {
+
+        private final LongAdder handled = new LongAdder();
+        private final MessageListener<Object, Object> recordListener = record -> handled.increment();
+        private final List<ConsumerRecord<Object, Object>> poll = new ArrayList<>(POLL_SIZE);
+        private ExecutorService executor;
+        private MockConsumer<Object, Object> consumer;
+        private KeyOrderedBatchListener keyOrdered;
+        private KeyOrderedBatchListener keyOrderedTimed;
+
+        @Setup
+        @SuppressWarnings("unchecked")
+        public void setUp() {
+            List<TopicPartition> partitions = new ArrayList<>();
+            Map<TopicPartition, Long> beginning = new HashMap<>();
+            Map<TopicPartition, Long> end = new HashMap<>();
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                TopicPartition topicPartition = new TopicPartition(TOPIC, partition);
+                partitions.add(topicPartition);
+                beginning.put(topicPartition, 0L);
+                end.put(topicPartition, (long) POLL_SIZE);
+            }
+            consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+            consumer.assign(partitions);
+            consumer.updateBeginningOffsets(beginning);
+            consumer.updateEndOffsets(end);
+            for (int i = 0; i < POLL_SIZE; i++) {
+                poll.add(new ConsumerRecord<>(TOPIC, i % PARTITIONS, i / PARTITIONS, "order-" + (i % KEYS), "event-" + i));
+            }
+
+            // As keyOrderedListenerExecutor and keyOrderedKafkaListenerContainerFactory set it up
+            int lanes = Runtime.getRuntime().availableProcessors() * 2;
+            executor = Executors.newFixedThreadPool(lanes, runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+            GenericMessageListener<ConsumerRecord<Object, Object>> delegate =
+                    (GenericMessageListener<ConsumerRecord<Object, Object>>) (Object) recordListener;
+            keyOrdered = keyOrdered(delegate, lanes, ListenerMetrics.NOOP);
+            keyOrderedTimed = keyOrdered(delegate, lanes,
+                    new MicrometerListenerMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "benchmark"));
+        }
+
+        private KeyOrderedBatchListener keyOrdered(GenericMessageListener<ConsumerRecord<Object, Object>> delegate,
+                int lanes, ListenerMetrics metrics) {
+            // Every record succeeds and none carries a due time, so no recoverer, container or scheduler is used
+            return new KeyOrderedBatchListener(delegate, executor, lanes, 3, Duration.ZERO, (record, e) -> {
+            }, null, null, metrics);
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public Optional<Order> orderStoreRaw(Stores stores) {
+        return stores.raw.findById(stores.storedId);
+    }
+
+    @Benchmark
+    public Optional<Order> orderStoreInstrumented(Stores stores) {
+        return stores.instrumented.findById(stores.storedId);
+    }
+
+    @Benchmark
+    public void listenerBare(Listeners listeners, Blackhole blackhole) {
+        for (ConsumerRecord<Object, Object> record : listeners.poll) {
+            listeners.recordListener.onMessage(record);
+        }
+        blackhole.consume(listeners.handled.sum());
+    }
+
+    @Benchmark
+    public void listenerKeyOrdered(Listeners listeners, Blackhole blackhole) {
+        listeners.keyOrdered.onMessage(listeners.poll, null, listeners.consumer);
+        blackhole.consume(listeners.handled.sum());
+    }
+
+    @Benchmark
+    public void listenerKeyOrderedTimed(Listeners listeners, Blackhole blackhole) {
+        listeners.keyOrderedTimed.onMessage(listeners.poll, null, listeners.consumer);
+        blackhole.consume(listeners.handled.sum());
+    }
+}
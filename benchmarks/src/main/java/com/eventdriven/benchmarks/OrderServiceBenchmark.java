@@ -0,0 +1,127 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.order.config.IdempotencyConfig;
+import com.eventdriven.order.model.Order;
+import com.eventdriven.order.repository.OrderStore;
+import com.eventdriven.order.service.OrderService;
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.dto.OrderRequest;
+import com.eventdriven.shared.dto.OrderResponse;
+import com.eventdriven.shared.kafka.EventPublisher;
+import com.eventdriven.shared.serde.EventSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order creation and response mapping through the real {@link OrderService}, with the
+ * order store on the in-process Redis stand-in (see {@link InProcessRedis}) and events sent
+ * to a {@link MockProducer} that serializes them and acknowledges at once:
+ * <ul>
+ *   <li>{@code newOrder}: building the {@link Order} of a request, with its id and timestamps.</li>
+ *   <li>{@code createOrder}: {@link OrderService#createOrder(OrderRequest)}, which stores the
+ *       order, publishes its event (or queues it in the outbox) and maps the response.</li>
+ *   <li>{@code getOrder}: one read and the response mapping; compare with
+ *       {@code RepositoryBenchmark.orderFindById} for the mapping alone.</li>
+ * </ul>
+ * Logging is at WARN (see logback.xml), so the service's per-order INFO lines are not
+ * part of the numbers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderServiceBenchmark {
+
+    @Param({"hash", "binary"})
+    public String format;
+
+    @Param({"false", "true"})
+    public String outbox;
+
+    private InProcessRedis redis;
+    private OrderService orderService;
+    private OrderRequest request;
+    private String storedOrderId;
+
+    @Setup
+    public void setUp() {
+        redis = InProcessRedis.start(Map.of("order.storage.format", format, "order.outbox.enabled", outbox),
+                OrderStore.class, OrderService.class, IdempotencyConfig.class, PublisherConfiguration.class);
+        orderService = redis.bean(OrderService.class);
+        request = new OrderRequest("customer-4711",
+                List.of(new OrderItem("product-1", 2, 25.0),
+                        new OrderItem("product-2", 1, 99.9),
+                        new OrderItem("product-3", 5, 4.5)),
+                172.4, "123 Test St, Test City", "CREDIT_CARD");
+    }
+
+    @Setup(Level.Iteration)
+    public void seed() {
+        redis.flushAll();
+        storedOrderId = orderService.createOrder(request).getOrderId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Benchmark
+    public Order newOrder() {
+        return new Order(request.getCustomerId(), request.getItems(), request.getTotalAmount(),
+                request.getShippingAddress(), request.getPaymentMethod());
+    }
+
+    @Benchmark
+    public OrderResponse createOrder() {
+        return orderService.createOrder(request);
+    }
+
+    @Benchmark
+    public OrderResponse getOrder() {
+        return orderService.getOrder(storedOrderId).orElseThrow();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class PublisherConfiguration {
+
+        @Bean
+        public EventPublisher eventPublisher(MeterRegistry meterRegistry) {
+            Serializer<Object> keySerializer = (topic, key) -> ((String) key).getBytes(StandardCharsets.UTF_8);
+            MockProducer<Object, Object> producer = new MockProducer<>(true, keySerializer, new EventSerializer()) {
+                // The template closes its producer after every send; forget the sent records instead
+                @Override
+                public void close(Duration timeout) {
+                    clear();
+                }
+            };
+            return new EventPublisher(new KafkaTemplate<>(() -> producer), meterRegistry, 10_000,
+                    EventPublisher.Overflow.WAIT, Duration.ofMillis(100));
+        }
+    }
+}
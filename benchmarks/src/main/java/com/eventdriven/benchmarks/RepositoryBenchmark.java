@@ -0,0 +1,210 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.inventory.repository.ProductStore;
+import com.eventdriven.notification.model.Notification;
+import com.eventdriven.notification.repository.NotificationStore;
+import com.eventdriven.order.model.Order;
+import com.eventdriven.order.repository.OrderStore;
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.id.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Save and find through the services' stores and repositories, against the in-process
+ * Redis stand-in (see {@link InProcessRedis}). Orders and notifications run in both storage
+ * formats; products are Spring Data hashes read by id and in bulk by {@link ProductStore}.
+ * Each save writes a new entity, with its index entries, and the stand-in is emptied and
+ * reseeded before every iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Orders {
+
+        @Param({"hash", "binary"})
+        public String format;
+
+        private InProcessRedis redis;
+        private OrderStore store;
+        private String storedId;
+
+        @Setup
+        public void setUp() {
+            redis = InProcessRedis.start(Map.of("order.storage.format", format), OrderStore.class);
+            store = redis.bean(OrderStore.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void seed() {
+            redis.flushAll();
+            Order order = newOrder();
+            store.save(order);
+            storedId = order.getOrderId();
+        }
+
+        @TearDown
+        public void tearDown() {
+            redis.close();
+        }
+
+        private static Order newOrder() {
+            return new Order("customer-4711",
+                    List.of(new OrderItem("product-1", 2, 25.0),
+                            new OrderItem("product-2", 1, 99.9),
+                            new OrderItem("product-3", 5, 4.5)),
+                    172.4, "123 Test St, Test City", "CREDIT_CARD");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Notifications {
+
+        @Param({"hash", "binary"})
+        public String format;
+
+        private InProcessRedis redis;
+        private NotificationStore store;
+        private String storedId;
+
+        @Setup
+        public void setUp() {
+            redis = InProcessRedis.start(Map.of("notification.storage.format", format), NotificationStore.class);
+            store = redis.bean(NotificationStore.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void seed() {
+            redis.flushAll();
+            Notification notification = newNotification();
+            store.save(notification);
+            storedId = notification.getNotificationId();
+        }
+
+        @TearDown
+        public void tearDown() {
+            redis.close();
+        }
+
+        private static Notification newNotification() {
+            Notification notification = new Notification();
+            notification.setNotificationId(IdGenerator.nextId());
+            notification.setOrderId("01HN3QZ8X4R2K");
+            notification.setCustomerId("customer-4711");
+            notification.setType("ORDER_CREATED");
+            notification.setMessage("Your order has been created successfully. Order ID: 01HN3QZ8X4R2K");
+            notification.setStatus("PENDING");
+            notification.setChannel("EMAIL");
+            notification.setCreatedAt(LocalDateTime.now());
+            return notification;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Products {
+
+        private static final int COUNT = 100;
+
+        private InProcessRedis redis;
+        private ProductRepository repository;
+        private ProductStore store;
+        private List<String> productIds;
+        private int next;
+
+        @Setup
+        public void setUp() {
+            redis = InProcessRedis.start(Map.of(), ProductStore.class);
+            repository = redis.bean(ProductRepository.class);
+            store = redis.bean(ProductStore.class);
+            productIds = IntStream.range(0, COUNT).mapToObj(i -> "product-" + i).toList();
+        }
+
+        @Setup(Level.Iteration)
+        public void seed() {
+            redis.flushAll();
+            for (String productId : productIds) {
+                repository.save(newProduct(productId));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            redis.close();
+        }
+
+        private Product nextProduct() {
+            return newProduct("new-product-" + next++);
+        }
+
+        private static Product newProduct(String productId) {
+            return new Product(productId, "Product " + productId, "Benchmark product", 100, 10.0, "benchmark");
+        }
+    }
+
+    @Benchmark
+    public Order orderSave(Orders orders) {
+        Order order = Orders.newOrder();
+        orders.store.save(order);
+        return order;
+    }
+
+    @Benchmark
+    public Optional<Order> orderFindById(Orders orders) {
+        return orders.store.findById(orders.storedId);
+    }
+
+    @Benchmark
+    public Notification notificationSave(Notifications notifications) {
+        return notifications.store.save(Notifications.newNotification());
+    }
+
+    @Benchmark
+    public Optional<Notification> notificationFindById(Notifications notifications) {
+        return notifications.store.findById(notifications.storedId);
+    }
+
+    @Benchmark
+    public List<Notification> notificationFindByOrderId(Notifications notifications) {
+        return notifications.store.findByOrderId("01HN3QZ8X4R2K");
+    }
+
+    @Benchmark
+    public Product productSave(Products products) {
+        return products.repository.save(products.nextProduct());
+    }
+
+    @Benchmark
+    public Optional<Product> productFindById(Products products) {
+        return products.repository.findById("product-42");
+    }
+
+    @Benchmark
+    public Map<String, Integer> productAvailableQuantities(Products products) {
+        return products.store.findAvailableQuantities(products.productIds);
+    }
+}
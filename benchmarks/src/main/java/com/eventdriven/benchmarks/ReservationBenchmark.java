@@ -0,0 +1,111 @@
+package com.eventdriven.benchmarks;
+
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.inventory.reservation.RedisReservationEngine;
+import com.eventdriven.inventory.reservation.ReservationEngine;
+import com.eventdriven.inventory.reservation.StripedReservationEngine;
+import com.eventdriven.shared.dto.OrderItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservation throughput with every available core reserving at once, each operation
+ * reserving one unit of a product picked at random among {@code hotProducts} and releasing
+ * it again, so stock never runs out. One hot product is the worst case: every operation
+ * contends for the same counter.
+ * <ul>
+ *   <li>{@code product-lock}: {@link Product#reserveStock} and
+ *       {@link Product#releaseReservedStock} on shared products, each call under the
+ *       product's monitor.</li>
+ *   <li>{@code in-memory}: {@link StripedReservationEngine}, writing behind to the Redis
+ *       stand-in (see {@link InProcessRedis}).</li>
+ *   <li>{@code redis}: {@link RedisReservationEngine}, one script call each way on the
+ *       stand-in, which serializes them as Redis would.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ReservationBenchmark {
+
+    private static final int STOCK = 1_000_000_000;
+
+    @Param({"product-lock", "in-memory", "redis"})
+    public String engine;
+
+    @Param({"1", "16", "1024"})
+    public int hotProducts;
+
+    private InProcessRedis redis;
+    private ReservationEngine reservationEngine;
+    private Product[] products;
+    private List<List<OrderItem>> items;
+
+    @Setup
+    public void setUp() {
+        products = new Product[hotProducts];
+        items = new ArrayList<>(hotProducts);
+        for (int i = 0; i < hotProducts; i++) {
+            products[i] = new Product("product-" + i, "Product " + i, "Benchmark product", STOCK, 10.0, "benchmark");
+            items.add(List.of(new OrderItem(products[i].getProductId(), 1, 10.0)));
+        }
+        if (engine.equals("product-lock")) {
+            return;
+        }
+        redis = InProcessRedis.start(Map.of());
+        redis.bean(ProductRepository.class).saveAll(List.of(products));
+        reservationEngine = engine.equals("in-memory")
+                ? new StripedReservationEngine(redis.redisTemplate(), Duration.ofMinutes(15), 64, 100)
+                : new RedisReservationEngine(redis.redisTemplate(), Duration.ofMinutes(15));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (reservationEngine instanceof StripedReservationEngine striped) {
+            striped.shutdown();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        int index = ThreadLocalRandom.current().nextInt(hotProducts);
+        if (reservationEngine == null) {
+            Product product = products[index];
+            synchronized (product) {
+                product.reserveStock(1);
+            }
+            synchronized (product) {
+                product.releaseReservedStock(1);
+            }
+            return true;
+        }
+        return reservationEngine.reserve(null, items.get(index)).isSuccess()
+                && reservationEngine.release(items.get(index)).isSuccess();
+    }
+}
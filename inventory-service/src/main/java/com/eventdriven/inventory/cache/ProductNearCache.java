@@ -0,0 +1,149 @@
+package com.eventdriven.inventory.cache;
+
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process cache of products for read endpoints, in front of
+ * {@link ProductRepository#findByProductId}. Caffeine's W-TinyLFU policy keeps hot
+ * product pages resident, entries expire after a TTL, and changed products are dropped
+ * locally at once. Other instances are told on {@value #INVALIDATION_CHANNEL}: the changed
+ * ids are collected and published in one message per {@code inventory.cache.invalidation-interval-ms},
+ * so reservations do not pay a pub/sub round trip each, and other instances may serve a
+ * changed product for up to that interval.
+ * <p>
+ * Reservations never read from this cache; they always go to Redis.
+ */
+@Component
+@Slf4j
+public class ProductNearCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "product-invalidation";
+
+    private static final String ID_SEPARATOR = ",";
+
+    private final ProductRepository productRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<String, Product> cache;
+    private final boolean enabled;
+    private final Set<String> pendingInvalidations = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService publisher;
+
+    public ProductNearCache(ProductRepository productRepository,
+            StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.cache.enabled:true}") boolean enabled,
+            @Value("${inventory.cache.maximum-size:10000}") long maximumSize,
+            @Value("${inventory.cache.ttl:30s}") Duration ttl,
+            @Value("${inventory.cache.invalidation-interval-ms:100}") long invalidationIntervalMs) {
+        this.productRepository = productRepository;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-near-cache");
+        this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "near-cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            publisher.scheduleWithFixedDelay(this::publishQuietly, invalidationIntervalMs, invalidationIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Optional<Product> find(String productId) {
+        if (!enabled) {
+            return productRepository.findByProductId(productId);
+        }
+        // Absent products are not cached, the loader returning null leaves no entry
+        return Optional.ofNullable(cache.get(productId,
+                id -> productRepository.findByProductId(id).orElse(null)));
+    }
+
+    /**
+     * Drops the products locally and queues them for the next invalidation message to the
+     * other instances.
+     */
+    public void invalidate(Collection<String> productIds) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(productIds);
+        pendingInvalidations.addAll(productIds);
+    }
+
+    private void publish() {
+        List<String> productIds = new ArrayList<>();
+        for (String productId : pendingInvalidations) {
+            if (pendingInvalidations.remove(productId)) {
+                productIds.add(productId);
+            }
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.join(ID_SEPARATOR, productIds));
+        } catch (RuntimeException e) {
+            // Sent with the next message instead
+            pendingInvalidations.addAll(productIds);
+            throw e;
+        }
+    }
+
+    private void publishQuietly() {
+        try {
+            publish();
+        } catch (Exception e) {
+            log.error("Failed to publish near-cache invalidations, will retry", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publishQuietly();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String productId : body.split(ID_SEPARATOR)) {
+            cache.invalidate(productId);
+        }
+        log.debug("Invalidated near-cache entries: {}", body);
+    }
+}
@@ -0,0 +1,21 @@
+package com.eventdriven.inventory.config;
+
+import com.eventdriven.inventory.cache.ProductNearCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+            ProductNearCache productNearCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(productNearCache, new ChannelTopic(ProductNearCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -1,15 +1,28 @@
 package com.eventdriven.inventory.controller;
 
+import com.eventdriven.inventory.dto.BulkImportResult;
+import com.eventdriven.inventory.dto.ProductPage;
 import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.service.BulkImportService;
 import com.eventdriven.inventory.service.InventoryService;
+import com.eventdriven.shared.kafka.DeadLetterReplayer;
+import com.eventdriven.shared.kafka.RetryTopology;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/inventory")
@@ -18,24 +31,80 @@ import java.util.List;
 @Tag(name = "Inventory Service", description = "APIs for managing inventory")
 public class InventoryController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_REPLAY = 10000;
+    private static final String CONSUMER_GROUP = "inventory-service";
+
     private final InventoryService inventoryService;
+    private final BulkImportService bulkImportService;
+    private final ObjectMapper objectMapper;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final RetryTopology retryTopology;
 
     @GetMapping("/{productId}")
     @Operation(summary = "Get product by ID")
     public ResponseEntity<Product> getProduct(@PathVariable String productId) {
         log.info("Getting product: {}", productId);
-        Product product = inventoryService.getProduct(productId);
-        if (product != null) {
-            return ResponseEntity.ok(product);
-        }
-        return ResponseEntity.notFound().build();
+        return inventoryService.getProduct(productId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping
-    @Operation(summary = "Get all products")
-    public ResponseEntity<List<Product>> getAllProducts() {
+    @Operation(summary = "Get all products", description = "Returns every product as one JSON array, written a page at a time")
+    public ResponseEntity<StreamingResponseBody> getAllProducts() {
         log.info("Getting all products");
-        return ResponseEntity.ok(inventoryService.getAllProducts());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> writeArray(out, inventoryService::forEachProduct));
+    }
+
+    @GetMapping("/pages")
+    @Operation(summary = "Get products", description = "Returns one page of products; pass nextCursor back to get the next page")
+    public ResponseEntity<ProductPage> getProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.info("Getting products page, limit: {}", limit);
+        return ResponseEntity.ok(inventoryService.getProducts(cursor, clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/stream", produces = NDJSON)
+    @Operation(summary = "Stream all products", description = "Writes every product as one JSON document per line")
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        log.info("Streaming all products");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> inventoryService.forEachProduct(product -> writeLine(out, product)));
+    }
+
+    @GetMapping("/category/{category}")
+    @Operation(summary = "Get all products of a category", description = "Returns every product of a category as one JSON array")
+    public ResponseEntity<StreamingResponseBody> getAllProductsByCategory(@PathVariable String category) {
+        log.info("Getting all products for category: {}", category);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> writeArray(out, consumer -> inventoryService.forEachProductInCategory(category, consumer)));
+    }
+
+    @GetMapping("/category/{category}/pages")
+    @Operation(summary = "Get products by category", description = "Returns one page of the products in a category")
+    public ResponseEntity<ProductPage> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.info("Getting products page for category: {}, limit: {}", category, limit);
+        return ResponseEntity.ok(inventoryService.getProductsByCategory(category, cursor, clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/category/{category}/stream", produces = NDJSON)
+    @Operation(summary = "Stream products by category", description = "Writes every product of a category as one JSON document per line")
+    public ResponseEntity<StreamingResponseBody> streamProductsByCategory(@PathVariable String category) {
+        log.info("Streaming products for category: {}", category);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> inventoryService.forEachProductInCategory(category, product -> writeLine(out, product)));
     }
 
     @PostMapping("/{productId}/reserve")
@@ -54,6 +123,15 @@ public class InventoryController {
         return ResponseEntity.ok(released);
     }
 
+    @PostMapping("/{productId}/stock")
+    @Operation(summary = "Adjust the available stock of a product",
+            description = "Adds the quantity to the available stock, or removes it if negative, without touching reservations")
+    public ResponseEntity<Boolean> adjustStock(@PathVariable String productId, @RequestParam int quantity) {
+        log.info("Adjusting stock of product: {} by {}", productId, quantity);
+        boolean adjusted = inventoryService.updateProductStock(productId, quantity);
+        return ResponseEntity.ok(adjusted);
+    }
+
     @PostMapping
     @Operation(summary = "Create a new product")
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
@@ -62,8 +140,25 @@ public class InventoryController {
         return ResponseEntity.ok(createdProduct);
     }
 
+    @PostMapping(value = "/bulk", consumes = CSV)
+    @Operation(summary = "Bulk import products and stock adjustments from CSV",
+            description = "Header row op,productId,quantity,name,description,price,category; CREATE rows add products, ADJUST rows add the quantity to the available stock")
+    public ResponseEntity<BulkImportResult> bulkImportCsv(InputStream body) throws IOException {
+        log.info("Starting CSV bulk import");
+        return ResponseEntity.ok(bulkImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/bulk", consumes = NDJSON)
+    @Operation(summary = "Bulk import products and stock adjustments from NDJSON",
+            description = "One JSON row per line with the same fields as the CSV import")
+    public ResponseEntity<BulkImportResult> bulkImportNdjson(InputStream body) throws IOException {
+        log.info("Starting NDJSON bulk import");
+        return ResponseEntity.ok(bulkImportService.importNdjson(body));
+    }
+
     @PutMapping("/{productId}")
-    @Operation(summary = "Update a product")
+    @Operation(summary = "Update a product",
+            description = "Updates the fields present in the body; a changed availableQuantity is applied as a stock adjustment and reservedQuantity is ignored")
     public ResponseEntity<Product> updateProduct(@PathVariable String productId, @RequestBody Product product) {
         log.info("Updating product: {}", productId);
         product.setProductId(productId);
@@ -74,9 +169,60 @@ public class InventoryController {
         return ResponseEntity.notFound().build();
     }
 
+    @PostMapping("/dead-letters/{topic}/replay")
+    @Operation(summary = "Replay dead-lettered events of a consumed topic",
+            description = "Sends up to max records from the inventory-service dead-letter topic of the topic back through its retry tiers")
+    public ResponseEntity<DeadLetterReplayer.ReplayResult> replayDeadLetters(@PathVariable String topic,
+            @RequestParam(defaultValue = "100") int max) {
+        if (max < 1 || max > MAX_REPLAY) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!retryTopology.isEnabled()) {
+            // Nothing consumes the retry tiers, so replayed records would sit there unread
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("Replaying up to {} dead letters of {}", max, topic);
+        return ResponseEntity.ok(deadLetterReplayer.replay(topic, CONSUMER_GROUP, max));
+    }
+
     @GetMapping("/health")
     @Operation(summary = "Health check endpoint")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Inventory Service is running!");
     }
-} 
\ No newline at end of file
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private void writeArray(OutputStream out, Consumer<Consumer<Product>> products) throws IOException {
+        out.write('[');
+        boolean[] first = {true};
+        products.accept(product -> {
+            try {
+                if (!first[0]) {
+                    out.write(',');
+                }
+                first[0] = false;
+                out.write(objectMapper.writeValueAsBytes(product));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.write(']');
+    }
+
+    private void writeLine(OutputStream out, Product product) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(product));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
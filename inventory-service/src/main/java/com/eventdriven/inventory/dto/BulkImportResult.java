@@ -0,0 +1,20 @@
+package com.eventdriven.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResult {
+
+    private long applied;
+    private long rejected;
+    private long elapsedMs;
+
+    /** The first rejections with their line numbers; capped so the summary stays small. */
+    private List<String> errors;
+}
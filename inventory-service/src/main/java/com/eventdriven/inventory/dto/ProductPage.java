@@ -0,0 +1,19 @@
+package com.eventdriven.inventory.dto;
+
+import com.eventdriven.inventory.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage {
+
+    private List<Product> items;
+
+    /** Opaque cursor for the next page, {@code null} on the last page. */
+    private String nextCursor;
+}
@@ -0,0 +1,26 @@
+package com.eventdriven.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of a bulk stock import. {@code CREATE} rows add a new product with
+ * {@code quantity} available units; {@code ADJUST} rows add {@code quantity}
+ * (which may be negative) to the available stock of an existing product.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockImportRow {
+
+    public enum Operation { CREATE, ADJUST }
+
+    private Operation op;
+    private String productId;
+    private Integer quantity;
+    private String name;
+    private String description;
+    private Double price;
+    private String category;
+}
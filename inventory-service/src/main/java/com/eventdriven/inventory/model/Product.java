@@ -25,7 +25,10 @@ public class Product {
     private Integer availableQuantity;
     private Integer reservedQuantity;
     private Double price;
+
+    @Indexed
     private String category;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -0,0 +1,244 @@
+package com.eventdriven.inventory.repository;
+
+import com.eventdriven.inventory.dto.ProductPage;
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.shared.metrics.InstrumentedStore;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.Bucket;
+import org.springframework.data.redis.core.convert.IndexedData;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+import org.springframework.data.redis.core.convert.SimpleIndexedPropertyValue;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bulk access to the {@code product} hashes written by {@link ProductRepository},
+ * for the paths where loading entities one repository call at a time is too slow.
+ * Hashes are mapped with the same {@link RedisConverter} the repository uses.
+ * <p>
+ * The scan script reads product hashes whose keys are built from a prefix rather than
+ * declared in {@code KEYS}, so it needs a non-clustered Redis, like the reservation scripts'
+ * multi-product calls do.
+ */
+@Component
+@InstrumentedStore
+public class ProductStore {
+
+    public static final String KEYSPACE = "product";
+
+    private static final String KEY_PREFIX = KEYSPACE + ":";
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final byte[] AVAILABLE_FIELD = bytes("availableQuantity");
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCAN_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/scan-products.lua"), List.class);
+
+    private static final RedisScript<Long> CREATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/create-product.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConverter redisConverter;
+
+    public ProductStore(StringRedisTemplate redisTemplate, RedisConverter redisConverter) {
+        this.redisTemplate = redisTemplate;
+        this.redisConverter = redisConverter;
+    }
+
+    /** Id set of every product, maintained by the repository. */
+    public static String allProductsIndex() {
+        return KEYSPACE;
+    }
+
+    /** Id set of the products in a category, maintained through {@code @Indexed}. */
+    public static String categoryIndex(String category) {
+        return KEY_PREFIX + "category:" + category;
+    }
+
+    /**
+     * Reads one page of the products whose ids are in {@code index}, one round trip per page.
+     * A page holds no duplicates, and products present for the whole scan are returned at
+     * least once across pages: SSCAN may return an id again in a later page if the set is
+     * resized during the scan, so callers that need each product once dedupe by id.
+     */
+    public ProductPage findPage(String index, String cursor, int limit) {
+        ScanPosition position = ScanPosition.decode(cursor);
+        List<Product> products = new ArrayList<>(limit);
+        ScanPosition next = scan(index, position, limit, products::add);
+        return new ProductPage(products, next == null ? null : next.encode());
+    }
+
+    /**
+     * Hands every product whose id is in {@code index} to {@code consumer}, holding
+     * at most one page in memory at a time. Like {@link #findPage}, a product may be handed
+     * over more than once if the set is resized meanwhile.
+     */
+    public void forEach(String index, Consumer<Product> consumer) {
+        ScanPosition position = ScanPosition.START;
+        while (position != null) {
+            position = scan(index, position, STREAM_PAGE_SIZE, consumer);
+        }
+    }
+
+    /**
+     * Reads the available quantity of each product with one pipeline.
+     * Products that do not exist map to {@code null}.
+     */
+    public Map<String, Integer> findAvailableQuantities(Collection<String> productIds) {
+        List<String> ids = new ArrayList<>(productIds);
+        List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String productId : ids) {
+                connection.hashCommands().hGet(bytes(KEY_PREFIX + productId), AVAILABLE_FIELD);
+            }
+            return null;
+        });
+
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object value = values.get(i);
+            quantities.put(ids.get(i), value == null ? null : Integer.valueOf((String) value));
+        }
+        return quantities;
+    }
+
+    /**
+     * Creates products with one pipelined round trip. Each product is written atomically with
+     * the hash, keyspace entry and index entries {@link ProductRepository#save} would write,
+     * unless it already exists, in which case nothing is touched.
+     *
+     * @return whether each product was created, in the order of {@code products}
+     */
+    public List<Boolean> createAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        byte[] sha = bytes(CREATE_SCRIPT.getSha1());
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loaded ahead of the calls in the same pipeline, so EVALSHA cannot miss the script
+            connection.scriptingCommands().scriptLoad(bytes(CREATE_SCRIPT.getScriptAsString()));
+            for (Product product : products) {
+                CreateCall call = createCall(product);
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, call.keys().size(), call.keysAndArgs());
+            }
+            return null;
+        });
+
+        List<Boolean> created = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            // The first reply is the script load's
+            created.add(((Number) replies.get(i + 1)).longValue() == 1L);
+        }
+        return created;
+    }
+
+    private CreateCall createCall(Product product) {
+        RedisData data = new RedisData();
+        redisConverter.write(product, data);
+        byte[] id = bytes(data.getId());
+        List<byte[]> keys = new ArrayList<>();
+        keys.add(bytes(KEY_PREFIX + data.getId()));
+        keys.add(bytes(KEYSPACE));
+        keys.add(bytes(KEY_PREFIX + data.getId() + ":idx"));
+        for (IndexedData indexedData : data.getIndexedData()) {
+            if (indexedData instanceof SimpleIndexedPropertyValue indexedValue && indexedValue.getValue() != null) {
+                keys.add(bytes(indexedData.getKeyspace() + ":" + indexedData.getIndexName() + ":" + indexedValue.getValue()));
+            }
+        }
+
+        List<byte[]> args = new ArrayList<>();
+        args.add(id);
+        data.getBucket().rawMap().forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        return new CreateCall(keys, args);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private ScanPosition scan(String index, ScanPosition position, int limit, Consumer<Product> consumer) {
+        // Raw bytes back, so hashes can go through the repository's converter
+        List result = redisTemplate.execute(SCAN_SCRIPT, RedisSerializer.string(), (RedisSerializer) RedisSerializer.byteArray(),
+                List.of(index), position.cursor(), String.valueOf(position.skip()), String.valueOf(limit), KEY_PREFIX);
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Product scan script returned no result");
+        }
+
+        for (int i = 2; i + 1 < result.size(); i += 2) {
+            String productId = new String((byte[]) result.get(i), StandardCharsets.UTF_8);
+            consumer.accept(read(productId, (List<byte[]>) result.get(i + 1)));
+        }
+
+        String nextCursor = new String((byte[]) result.get(0), StandardCharsets.UTF_8);
+        long nextSkip = ((Number) result.get(1)).longValue();
+        if ("0".equals(nextCursor) && nextSkip == 0) {
+            return null;
+        }
+        return new ScanPosition(nextCursor, nextSkip);
+    }
+
+    private Product read(String productId, List<byte[]> fields) {
+        Map<byte[], byte[]> raw = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            raw.put(fields.get(i), fields.get(i + 1));
+        }
+        RedisData data = new RedisData(Bucket.newBucketFromRawMap(raw));
+        data.setId(productId);
+        data.setKeyspace(KEYSPACE);
+        return redisConverter.read(Product.class, data);
+    }
+
+    private record CreateCall(List<byte[]> keys, List<byte[]> args) {
+
+        byte[][] keysAndArgs() {
+            List<byte[]> keysAndArgs = new ArrayList<>(keys);
+            keysAndArgs.addAll(args);
+            return keysAndArgs.toArray(byte[][]::new);
+        }
+    }
+
+    /**
+     * Position within an SSCAN: the cursor of the current batch and how many of its members
+     * were already returned. Exposed to clients only in encoded form.
+     */
+    private record ScanPosition(String cursor, long skip) {
+
+        private static final ScanPosition START = new ScanPosition("0", 0);
+
+        private static ScanPosition decode(String encoded) {
+            if (encoded == null || encoded.isBlank()) {
+                return START;
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                return new ScanPosition(decoded.substring(0, separator),
+                        Long.parseLong(decoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + encoded, e);
+            }
+        }
+
+        private String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((cursor + ":" + skip).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
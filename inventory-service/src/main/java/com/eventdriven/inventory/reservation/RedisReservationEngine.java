@@ -0,0 +1,275 @@
+package com.eventdriven.inventory.reservation;
+
+import com.eventdriven.shared.dto.OrderItem;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies reservations directly to the {@code product} hashes written by
+ * {@link com.eventdriven.inventory.repository.ProductRepository} using Lua scripts,
+ * so an order costs one round trip and concurrent consumers cannot oversell a product.
+ * <p>
+ * The ledger of an order is a {@code reservation:ledger:<orderId>} hash of product ids to
+ * quantities, written by the same script that reserves the stock. Its expiry time is the score
+ * of the order id in the {@code reservation:expiry} sorted set, which the sweeper range-scans,
+ * so outstanding reservations cost no per-key timers or polling. Settling an order replaces
+ * its ledger with a {@value #SETTLED_FIELD} tombstone that expires after the reservation TTL,
+ * so a redelivered order is not reserved again once it has been paid or released.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.mode", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisReservationEngine implements ReservationEngine {
+
+    static final String PRODUCT_KEY_PREFIX = "product:";
+    static final String LEDGER_KEY_PREFIX = "reservation:ledger:";
+    static final String EXPIRY_KEY = "reservation:expiry";
+    /** Only field of the ledger of a settled order; not a valid product id. */
+    static final String SETTLED_FIELD = "~settled";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/reserve-stock.lua"), List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release-stock.lua"), List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADJUST_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/adjust-stock.lua"), List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/set-stock.lua"), List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SETTLE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/settle-reservations.lua"), List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration reservationTtl;
+
+    public RedisReservationEngine(StringRedisTemplate redisTemplate,
+            @Value("${inventory.reservation.ttl:15m}") Duration reservationTtl) {
+        this.redisTemplate = redisTemplate;
+        this.reservationTtl = reservationTtl;
+    }
+
+    @Override
+    public ReservationResult reserve(String orderId, List<OrderItem> items) {
+        Map<String, List<OrderItem>> itemsByOrder = new LinkedHashMap<>();
+        itemsByOrder.put(orderId, items);
+        return reserveAll(itemsByOrder).get(orderId);
+    }
+
+    /**
+     * Reserves a whole batch with one script call: every product of the batch is read once,
+     * orders are applied in batch order, and each touched product is written once.
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Map<String, ReservationResult> reserveAll(Map<String, List<OrderItem>> itemsByOrder) {
+        if (itemsByOrder.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Integer> keyIndexes = new LinkedHashMap<>();
+        List<Object> orderArgs = new ArrayList<>();
+        itemsByOrder.forEach((orderId, items) -> {
+            Map<String, Integer> quantities = ReservationEngine.quantitiesByProduct(items);
+            orderArgs.add(orderId == null ? "" : LEDGER_KEY_PREFIX + orderId);
+            orderArgs.add(orderId == null ? "" : orderId);
+            orderArgs.add(String.valueOf(quantities.size()));
+            quantities.forEach((productId, quantity) -> {
+                // Lua arrays are 1-based
+                int keyIndex = keyIndexes.computeIfAbsent(productId, id -> keyIndexes.size() + 1);
+                orderArgs.add(String.valueOf(keyIndex));
+                orderArgs.add(String.valueOf(quantity));
+            });
+        });
+        List<String> productIds = new ArrayList<>(keyIndexes.keySet());
+        List<String> keys = productIds.stream()
+                .map(productId -> PRODUCT_KEY_PREFIX + productId)
+                .toList();
+
+        List<Object> args = new ArrayList<>(4 + productIds.size() + orderArgs.size());
+        args.add(LocalDateTime.now().toString());
+        args.add(EXPIRY_KEY);
+        args.add(String.valueOf(System.currentTimeMillis() + reservationTtl.toMillis()));
+        args.add(String.valueOf(itemsByOrder.size()));
+        args.addAll(productIds);
+        args.addAll(orderArgs);
+
+        List result = redisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+        if (result == null || result.size() != itemsByOrder.size() * 3) {
+            throw new IllegalStateException("Reservation script returned an unexpected result");
+        }
+
+        Map<String, ReservationResult> results = new LinkedHashMap<>();
+        int i = 0;
+        for (String orderId : itemsByOrder.keySet()) {
+            if (((Number) result.get(i)).longValue() == 1L) {
+                results.put(orderId, ReservationResult.success());
+            } else {
+                int failedIndex = ((Number) result.get(i + 1)).intValue() - 1;
+                String reason = String.valueOf(result.get(i + 2));
+                log.debug("Reservation script rejected product {} - {}", productIds.get(failedIndex), reason);
+                results.put(orderId, ReservationResult.failure(productIds.get(failedIndex), reason));
+            }
+            i += 3;
+        }
+        return results;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public ReservationResult release(List<OrderItem> items) {
+        Map<String, Integer> quantities = ReservationEngine.quantitiesByProduct(items);
+        List<String> productIds = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>(productIds.size());
+        Object[] args = new Object[productIds.size() + 1];
+        args[0] = LocalDateTime.now().toString();
+        for (int i = 0; i < productIds.size(); i++) {
+            keys.add(PRODUCT_KEY_PREFIX + productIds.get(i));
+            args[i + 1] = String.valueOf(quantities.get(productIds.get(i)));
+        }
+
+        List result = redisTemplate.execute(RELEASE_SCRIPT, keys, args);
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Release script returned no result");
+        }
+        if (((Number) result.get(0)).longValue() == 1L) {
+            return ReservationResult.success();
+        }
+
+        // Lua arrays are 1-based
+        int failedIndex = ((Number) result.get(1)).intValue() - 1;
+        return ReservationResult.failure(productIds.get(failedIndex), String.valueOf(result.get(2)));
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public ReservationResult adjust(String productId, int quantity) {
+        List result = redisTemplate.execute(ADJUST_SCRIPT, List.of(PRODUCT_KEY_PREFIX + productId),
+                LocalDateTime.now().toString(), String.valueOf(quantity));
+        return adjustResult(productId, result);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public ReservationResult setAvailable(String productId, int quantity) {
+        if (quantity < 0) {
+            return ReservationResult.failure(productId, ReservationResult.INSUFFICIENT_STOCK);
+        }
+        List result = redisTemplate.execute(SET_SCRIPT, List.of(PRODUCT_KEY_PREFIX + productId),
+                LocalDateTime.now().toString(), String.valueOf(quantity));
+        return adjustResult(productId, result);
+    }
+
+    /** Runs the adjust script once per adjustment, all in one pipelined round trip. */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public List<ReservationResult> adjustAll(List<Adjustment> adjustments) {
+        if (adjustments.isEmpty()) {
+            return List.of();
+        }
+        byte[] updatedAt = bytes(LocalDateTime.now().toString());
+        byte[] sha = bytes(ADJUST_SCRIPT.getSha1());
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loaded ahead of the calls in the same pipeline, so EVALSHA cannot miss the script
+            connection.scriptingCommands().scriptLoad(bytes(ADJUST_SCRIPT.getScriptAsString()));
+            for (Adjustment adjustment : adjustments) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.MULTI, 1,
+                        bytes(PRODUCT_KEY_PREFIX + adjustment.productId()), updatedAt,
+                        bytes(String.valueOf(adjustment.quantity())));
+            }
+            return null;
+        });
+
+        List<ReservationResult> results = new ArrayList<>(adjustments.size());
+        for (int i = 0; i < adjustments.size(); i++) {
+            // The first reply is the script load's
+            results.add(adjustResult(adjustments.get(i).productId(), (List) replies.get(i + 1)));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static ReservationResult adjustResult(String productId, List result) {
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Adjust script returned no result");
+        }
+        if (((Number) result.get(0)).longValue() == 1L) {
+            return ReservationResult.success();
+        }
+        return ReservationResult.failure(productId, String.valueOf(result.get(2)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<String> releaseOrder(String orderId) {
+        return settled(settle("release", "orders", orderId)).getOrDefault(orderId, List.of());
+    }
+
+    @Override
+    public List<String> commitOrder(String orderId) {
+        return settled(settle("commit", "orders", orderId)).getOrDefault(orderId, List.of());
+    }
+
+    /** The script removes every entry it scans from the expiry set, so each call starts over at its head. */
+    @Override
+    public ExpiredBatch releaseExpired(long cursor, int limit) {
+        List<?> result = settle("release", "expired", String.valueOf(System.currentTimeMillis()), String.valueOf(limit));
+        long scanned = Long.parseLong(String.valueOf(result.get(0)));
+        return new ExpiredBatch(settled(result), ExpiredBatch.START, scanned < limit);
+    }
+
+    /** Runs the settle script; see settle-reservations.lua for the shape of its result. */
+    private List<?> settle(String action, String selector, String... selectorArgs) {
+        List<Object> args = new ArrayList<>(7 + selectorArgs.length);
+        args.add(LocalDateTime.now().toString());
+        args.add(LEDGER_KEY_PREFIX);
+        args.add(PRODUCT_KEY_PREFIX);
+        args.add(action);
+        args.add(SETTLED_FIELD);
+        args.add(String.valueOf(reservationTtl.toMillis()));
+        args.add(selector);
+        args.addAll(Arrays.asList(selectorArgs));
+
+        List<?> result = redisTemplate.execute(SETTLE_SCRIPT, List.of(EXPIRY_KEY), args.toArray());
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Settle script returned no result");
+        }
+        return result;
+    }
+
+    /** Settled product ids by order id, from a settle script result. */
+    private static Map<String, List<String>> settled(List<?> result) {
+        Map<String, List<String>> settled = new LinkedHashMap<>();
+        // The first element is the number of orders the script looked at
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            settled.put(String.valueOf(result.get(i)), Arrays.asList(String.valueOf(result.get(i + 1)).split(",")));
+        }
+        return settled;
+    }
+}
@@ -0,0 +1,130 @@
+package com.eventdriven.inventory.reservation;
+
+import com.eventdriven.shared.dto.OrderItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves stock between the available and reserved counters of products.
+ * Every call is all-or-nothing: either every item is applied or no product is touched.
+ * <p>
+ * Reservations made for an order are recorded in a per-order ledger, so they can be released
+ * or committed later by order id alone. Ledger entries that are neither released nor committed
+ * expire after the configured TTL and are released by {@link #releaseExpired}.
+ */
+public interface ReservationEngine {
+
+    /**
+     * Reserves the items of an order. Reserving an order that already holds a reservation
+     * succeeds without reserving again, so redelivered events are harmless.
+     *
+     * @param orderId order to record the reservation under, or {@code null} for an ad-hoc
+     *                reservation that is not tracked in the ledger
+     */
+    ReservationResult reserve(String orderId, List<OrderItem> items);
+
+    /**
+     * Releases an ad-hoc reservation made without an order id.
+     */
+    ReservationResult release(List<OrderItem> items);
+
+    /**
+     * Reserves several orders in iteration order and returns the result of each order, by order id.
+     * Each order is all-or-nothing on its own.
+     */
+    default Map<String, ReservationResult> reserveAll(Map<String, List<OrderItem>> itemsByOrder) {
+        Map<String, ReservationResult> results = new LinkedHashMap<>();
+        itemsByOrder.forEach((orderId, items) -> results.put(orderId, reserve(orderId, items)));
+        return results;
+    }
+
+    /**
+     * Adds {@code quantity} (negative to remove) to the available stock of a product, atomically
+     * with reservations of the same product. Fails without a change if the product does not
+     * exist or its available stock would drop below zero.
+     */
+    ReservationResult adjust(String productId, int quantity);
+
+    /**
+     * Sets the available stock of a product to {@code quantity}, atomically with reservations
+     * of the same product, so reservations made since the caller last read the stock are not
+     * undone. Fails without a change if the product does not exist or {@code quantity} is negative.
+     */
+    ReservationResult setAvailable(String productId, int quantity);
+
+    /**
+     * Applies adjustments in list order, each checked and applied on its own as {@link #adjust}
+     * would, and returns the result of each in the same order.
+     */
+    default List<ReservationResult> adjustAll(List<Adjustment> adjustments) {
+        List<ReservationResult> results = new ArrayList<>(adjustments.size());
+        adjustments.forEach(adjustment -> results.add(adjust(adjustment.productId(), adjustment.quantity())));
+        return results;
+    }
+
+    /**
+     * Returns everything reserved for the order to available stock.
+     *
+     * @return ids of the released products, empty if the order holds no reservation
+     */
+    List<String> releaseOrder(String orderId);
+
+    /**
+     * Consumes everything reserved for the order, once it has been paid.
+     *
+     * @return ids of the committed products, empty if the order holds no reservation
+     */
+    List<String> commitOrder(String orderId);
+
+    /**
+     * Releases reservations whose TTL has passed, looking at up to {@code limit} expired
+     * entries from {@code cursor} on. A sweep starts at {@link ExpiredBatch#START} and passes
+     * each returned cursor to the next call until a batch is {@link ExpiredBatch#complete()}.
+     */
+    ExpiredBatch releaseExpired(long cursor, int limit);
+
+    /**
+     * Called after a product hash has been rewritten outside the engine,
+     * for engines that keep their own copy of the stock counters.
+     */
+    default void invalidate(String productId) {
+    }
+
+    /**
+     * Called before a product is created, for engines that keep their own copy of the stock
+     * counters: if the product's hash no longer exists, the copy of a deleted product of the
+     * same id is dropped with its changes not written back yet, so they never reach the new product.
+     */
+    default void discard(String productId) {
+    }
+
+    /**
+     * Merges order lines by product so that an order listing the same product twice
+     * is checked against its combined quantity. Iteration order follows the order lines.
+     */
+    static Map<String, Integer> quantitiesByProduct(List<OrderItem> items) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * One step of an expiry sweep: ids of the released products by order id, the cursor to
+     * continue from, and whether the scan reached the last expired entry. Entries with nothing
+     * left to release are scanned but not listed, so {@code released} can be short of a full
+     * batch while the scan goes on.
+     */
+    record ExpiredBatch(Map<String, List<String>> released, long cursor, boolean complete) {
+
+        public static final long START = 0;
+    }
+
+    /** Quantity to add to the available stock of a product, negative to remove. */
+    record Adjustment(String productId, int quantity) {
+    }
+}
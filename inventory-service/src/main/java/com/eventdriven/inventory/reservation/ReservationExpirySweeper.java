@@ -0,0 +1,83 @@
+package com.eventdriven.inventory.reservation;
+
+import com.eventdriven.inventory.cache.ProductNearCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically releases reservations whose TTL has passed without the order being paid
+ * or rolled back. Each sweep drains the expired entries in batches, so a backlog after
+ * downtime is cleared in one run.
+ */
+@Component
+@Slf4j
+public class ReservationExpirySweeper {
+
+    private final ReservationEngine reservationEngine;
+    private final ProductNearCache productNearCache;
+    private final Counter expiredCounter;
+    private final int batchSize;
+    private final ScheduledExecutorService sweeper;
+
+    public ReservationExpirySweeper(ReservationEngine reservationEngine,
+            ProductNearCache productNearCache,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reservation.sweep-interval:5s}") Duration sweepInterval,
+            @Value("${inventory.reservation.sweep-batch-size:500}") int batchSize) {
+        this.reservationEngine = reservationEngine;
+        this.productNearCache = productNearCache;
+        this.expiredCounter = meterRegistry.counter("inventory.reservations.expired");
+        this.batchSize = batchSize;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public int sweep() {
+        int released = 0;
+        long cursor = ReservationEngine.ExpiredBatch.START;
+        ReservationEngine.ExpiredBatch batch;
+        do {
+            batch = reservationEngine.releaseExpired(cursor, batchSize);
+            Set<String> productIds = new LinkedHashSet<>();
+            batch.released().values().forEach(productIds::addAll);
+            productNearCache.invalidate(productIds);
+            released += batch.released().size();
+            cursor = batch.cursor();
+        } while (!batch.complete());
+
+        if (released > 0) {
+            expiredCounter.increment(released);
+            log.info("Released {} expired reservations", released);
+        }
+        return released;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.error("Failed to release expired reservations, will retry", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
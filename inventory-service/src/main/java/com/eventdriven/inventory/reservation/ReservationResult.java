@@ -0,0 +1,40 @@
+package com.eventdriven.inventory.reservation;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ReservationResult {
+
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+    public static final String INSUFFICIENT_RESERVED = "INSUFFICIENT_RESERVED";
+
+    private static final ReservationResult SUCCESS = new ReservationResult(true, null, null);
+
+    private final boolean success;
+    private final String failedProductId;
+    private final String reason;
+
+    public static ReservationResult success() {
+        return SUCCESS;
+    }
+
+    public static ReservationResult failure(String failedProductId, String reason) {
+        return new ReservationResult(false, failedProductId, reason);
+    }
+
+    public String describe() {
+        if (success) {
+            return "Inventory reserved successfully";
+        }
+        return switch (reason) {
+            case NOT_FOUND -> "Product not found: " + failedProductId;
+            case INSUFFICIENT_STOCK -> "Insufficient stock for product: " + failedProductId;
+            case INSUFFICIENT_RESERVED -> "Cannot release more stock than reserved for product: " + failedProductId;
+            default -> reason + ": " + failedProductId;
+        };
+    }
+}
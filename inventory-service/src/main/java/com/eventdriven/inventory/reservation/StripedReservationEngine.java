@@ -0,0 +1,674 @@
+package com.eventdriven.inventory.reservation;
+
+import com.eventdriven.shared.dto.OrderItem;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps stock counters of touched products in memory and serves reservations from them,
+ * guarded by a fixed set of lock stripes instead of a Redis round trip per order.
+ * <p>
+ * Changes are accumulated as per-product deltas and written behind to the {@code product}
+ * hashes with {@code HINCRBY}, so many reservations of a hot product collapse into a single
+ * update per flush interval. Order ledgers are written behind the same way, using the layout of
+ * {@link RedisReservationEngine}. Each flush runs as one MULTI/EXEC, which means Redis always holds
+ * a consistent last flushed state; after a restart counters and ledgers are simply reloaded from it
+ * on first use. Reservations made since the last flush are lost if the process dies, and the counters
+ * assume this instance is the only one reserving the products it serves.
+ * <p>
+ * An order is claimed in the in-memory ledger before it is reserved, and a claimed order is checked
+ * against its flushed ledger, so an order redelivered after a restart or rebalance is not reserved
+ * twice. Settled orders leave the same expiring tombstone ledger as {@link RedisReservationEngine}.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.mode", havingValue = "in-memory")
+@Slf4j
+public class StripedReservationEngine implements ReservationEngine {
+
+    private static final String AVAILABLE_FIELD = "availableQuantity";
+    private static final String RESERVED_FIELD = "reservedQuantity";
+    private static final long CLAIM_WAIT_NANOS = 100_000;
+
+    /** Ledger of an order being reserved by another thread. Compared by identity. */
+    private static final Map<String, Integer> CLAIMED = Collections.unmodifiableMap(new HashMap<>());
+    /** Ledger of a settled order until its tombstone is flushed. Compared by identity. */
+    private static final Map<String, Integer> SETTLED = Collections.unmodifiableMap(new HashMap<>());
+
+    private enum Operation { RESERVE, RELEASE, RELEASE_ORDER, COMMIT_ORDER, ADJUST, SET_AVAILABLE }
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration reservationTtl;
+    private final ReentrantLock[] stripes;
+    private final Map<String, StockCounter> counters = new ConcurrentHashMap<>();
+    private final Set<String> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, Integer>> ledger = new ConcurrentHashMap<>();
+    private final Map<String, LedgerChange> pendingLedgerChanges = new ConcurrentHashMap<>();
+    /** Serializes writes of drained deltas, so a counter is never rebased while its deltas are in flight. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    public StripedReservationEngine(StringRedisTemplate redisTemplate,
+            @Value("${inventory.reservation.ttl:15m}") Duration reservationTtl,
+            @Value("${inventory.reservation.stripes:64}") int stripeCount,
+            @Value("${inventory.reservation.flush-interval-ms:100}") long flushIntervalMs) {
+        this.redisTemplate = redisTemplate;
+        this.reservationTtl = reservationTtl;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("In-memory reservation engine started with {} stripes, flushing every {} ms",
+                stripeCount, flushIntervalMs);
+    }
+
+    @Override
+    public ReservationResult reserve(String orderId, List<OrderItem> items) {
+        Map<String, List<OrderItem>> itemsByOrder = new LinkedHashMap<>();
+        itemsByOrder.put(orderId, items);
+        return reserveAll(itemsByOrder).get(orderId);
+    }
+
+    /**
+     * Claims the orders first, then reads the flushed ledgers of all claimed orders with one
+     * pipeline. An order already in the in-memory or flushed ledger, reserved or settled, is
+     * reported as reserved without moving stock again.
+     */
+    @Override
+    public Map<String, ReservationResult> reserveAll(Map<String, List<OrderItem>> itemsByOrder) {
+        Map<String, ReservationResult> results = new HashMap<>();
+        List<String> claimed = new ArrayList<>();
+        try {
+            for (String orderId : itemsByOrder.keySet()) {
+                if (orderId == null || claim(orderId)) {
+                    claimed.add(orderId);
+                } else {
+                    results.put(orderId, ReservationResult.success());
+                }
+            }
+            Map<String, Map<String, Integer>> flushed = loadLedgers(claimed.stream().filter(Objects::nonNull).toList());
+
+            for (String orderId : claimed) {
+                Map<String, Integer> flushedLedger = orderId == null ? Map.of() : flushed.get(orderId);
+                if (flushedLedger == SETTLED) {
+                    ledger.remove(orderId, CLAIMED);
+                    results.put(orderId, ReservationResult.success());
+                    continue;
+                }
+                if (!flushedLedger.isEmpty()) {
+                    ledger.replace(orderId, CLAIMED, flushedLedger);
+                    results.put(orderId, ReservationResult.success());
+                    continue;
+                }
+
+                Map<String, Integer> quantities = ReservationEngine.quantitiesByProduct(itemsByOrder.get(orderId));
+                ReservationResult result = apply(quantities, Operation.RESERVE);
+                if (orderId != null) {
+                    if (result.isSuccess()) {
+                        // Recorded after the counters moved, so a flush never persists a ledger without its stock
+                        pendingLedgerChanges.put(orderId,
+                                new LedgerChange(quantities, System.currentTimeMillis() + reservationTtl.toMillis()));
+                        ledger.replace(orderId, CLAIMED, quantities);
+                    } else {
+                        ledger.remove(orderId, CLAIMED);
+                    }
+                }
+                results.put(orderId, result);
+            }
+        } finally {
+            // Claims left by an exception are given up, so a redelivery can try again
+            for (String orderId : claimed) {
+                if (orderId != null) {
+                    ledger.computeIfPresent(orderId, (id, quantities) -> quantities == CLAIMED ? null : quantities);
+                }
+            }
+        }
+
+        Map<String, ReservationResult> ordered = new LinkedHashMap<>();
+        itemsByOrder.keySet().forEach(orderId -> ordered.put(orderId, results.get(orderId)));
+        return ordered;
+    }
+
+    /**
+     * Claims the order for this thread. Returns false if the order is already in the ledger,
+     * and waits while another thread is reserving it, since its outcome decides.
+     */
+    private boolean claim(String orderId) {
+        while (true) {
+            Map<String, Integer> existing = ledger.putIfAbsent(orderId, CLAIMED);
+            if (existing == null) {
+                return true;
+            }
+            if (existing != CLAIMED) {
+                return false;
+            }
+            LockSupport.parkNanos(CLAIM_WAIT_NANOS);
+        }
+    }
+
+    @Override
+    public ReservationResult release(List<OrderItem> items) {
+        return apply(ReservationEngine.quantitiesByProduct(items), Operation.RELEASE);
+    }
+
+    @Override
+    public ReservationResult adjust(String productId, int quantity) {
+        return apply(Map.of(productId, quantity), Operation.ADJUST);
+    }
+
+    /** Applied as the difference to the in-memory counter, which includes unflushed reservations. */
+    @Override
+    public ReservationResult setAvailable(String productId, int quantity) {
+        return apply(Map.of(productId, quantity), Operation.SET_AVAILABLE);
+    }
+
+    @Override
+    public List<String> releaseOrder(String orderId) {
+        return settle(orderId, Operation.RELEASE_ORDER);
+    }
+
+    @Override
+    public List<String> commitOrder(String orderId) {
+        return settle(orderId, Operation.COMMIT_ORDER);
+    }
+
+    /**
+     * Ledgers reach Redis within one flush interval, far sooner than any reservation TTL,
+     * so the flushed expiry set is the only one that needs scanning. Released orders leave
+     * the expiry set only at the next flush, so the cursor is the number of expired entries
+     * already scanned; entries a flush removes meanwhile shift the rest forward, and any
+     * skipped that way are picked up by the next sweep.
+     */
+    @Override
+    public ExpiredBatch releaseExpired(long cursor, int limit) {
+        Set<String> expired = redisTemplate.opsForZSet().rangeByScore(RedisReservationEngine.EXPIRY_KEY,
+                Double.NEGATIVE_INFINITY, System.currentTimeMillis(), cursor, limit);
+        Map<String, List<String>> released = new LinkedHashMap<>();
+        int scanned = expired == null ? 0 : expired.size();
+        if (expired != null) {
+            for (String orderId : expired) {
+                List<String> productIds = releaseOrder(orderId);
+                if (productIds.isEmpty()) {
+                    // Nothing left to release, make sure the expiry entry does not come back
+                    pendingLedgerChanges.putIfAbsent(orderId, LedgerChange.DELETED);
+                } else {
+                    released.put(orderId, productIds);
+                }
+            }
+        }
+        return new ExpiredBatch(released, cursor + scanned, scanned < limit);
+    }
+
+    /**
+     * Writes pending deltas of a product and rebases its counter on the stored hash. Call after
+     * the product hash has been rewritten outside this engine. The Redis round trips run outside
+     * the stripe lock, and deltas that could not be written are kept for the next flush.
+     */
+    @Override
+    public void invalidate(String productId) {
+        flushLock.lock();
+        try {
+            PendingDelta delta;
+            ReentrantLock lock = stripeFor(productId);
+            lock.lock();
+            try {
+                StockCounter counter = counters.get(productId);
+                if (counter == null) {
+                    return;
+                }
+                delta = counter.drain(productId);
+            } finally {
+                lock.unlock();
+            }
+
+            List<Object> values;
+            try {
+                if (delta.available() != 0 || delta.reserved() != 0) {
+                    write(List.of(delta), Map.of());
+                }
+                values = redisTemplate.opsForHash().multiGet(
+                        RedisReservationEngine.PRODUCT_KEY_PREFIX + productId, List.of(AVAILABLE_FIELD, RESERVED_FIELD));
+            } catch (DataAccessException e) {
+                restore(List.of(delta));
+                throw e;
+            }
+
+            lock.lock();
+            try {
+                if (values.get(0) == null) {
+                    // Deleted: the next reservation reports it missing
+                    counters.remove(productId);
+                } else {
+                    counters.get(productId).rebase(Integer.parseInt((String) values.get(0)),
+                            values.get(1) == null ? 0 : Integer.parseInt((String) values.get(1)));
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the counter of a product whose hash is gone, with its unwritten deltas, which
+     * would otherwise be flushed onto a new product of the same id. Holding the flush lock
+     * keeps a flush from writing them meanwhile, and a product without a hash cannot be
+     * loaded again until it is created.
+     */
+    @Override
+    public void discard(String productId) {
+        if (!counters.containsKey(productId)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisReservationEngine.PRODUCT_KEY_PREFIX + productId))) {
+                return;
+            }
+            ReentrantLock lock = stripeFor(productId);
+            lock.lock();
+            try {
+                StockCounter counter = counters.remove(productId);
+                if (counter != null && counter.hasPendingDeltas()) {
+                    PendingDelta delta = counter.drain(productId);
+                    log.warn("Discarding reservation delta of deleted product {}: available {}, reserved {}",
+                            productId, delta.available(), delta.reserved());
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private List<String> settle(String orderId, Operation operation) {
+        if (pendingLedgerChanges.get(orderId) == LedgerChange.DELETED) {
+            return List.of();
+        }
+        if (!ledger.containsKey(orderId)) {
+            Map<String, Integer> flushed = loadLedgers(List.of(orderId)).get(orderId);
+            if (flushed.isEmpty() || flushed == SETTLED) {
+                return List.of();
+            }
+            ledger.putIfAbsent(orderId, flushed);
+        }
+        // Swapping in the tombstone claims the order, so concurrent settles cannot apply it twice
+        List<Map<String, Integer>> claimed = new ArrayList<>(1);
+        ledger.computeIfPresent(orderId, (id, current) -> {
+            if (current == CLAIMED || current == SETTLED) {
+                return current;
+            }
+            claimed.add(current);
+            return SETTLED;
+        });
+        if (claimed.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Integer> quantities = claimed.get(0);
+
+        // Products deleted since the reservation are skipped, like the Redis engine does
+        Map<String, Integer> existing = new LinkedHashMap<>(quantities);
+        existing.keySet().removeIf(productId -> !counters.containsKey(productId) && !load(productId));
+        apply(existing, operation);
+        // Recorded after the counters moved, so a flush never drops a ledger without its stock
+        pendingLedgerChanges.put(orderId, LedgerChange.DELETED);
+        return new ArrayList<>(quantities.keySet());
+    }
+
+    private ReservationResult apply(Map<String, Integer> quantities, Operation operation) {
+        for (String productId : quantities.keySet()) {
+            if (!counters.containsKey(productId) && !load(productId)) {
+                return ReservationResult.failure(productId, ReservationResult.NOT_FOUND);
+            }
+        }
+
+        int[] stripeIndexes = stripeIndexes(quantities.keySet());
+        for (int index : stripeIndexes) {
+            stripes[index].lock();
+        }
+        try {
+            Map<StockCounter, Integer> moves = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+                StockCounter counter = counters.get(entry.getKey());
+                if (counter == null) {
+                    // Invalidated between loading and locking
+                    return ReservationResult.failure(entry.getKey(), ReservationResult.NOT_FOUND);
+                }
+                int quantity = entry.getValue();
+                switch (operation) {
+                    case RESERVE -> {
+                        if (counter.available < quantity) {
+                            return ReservationResult.failure(entry.getKey(), ReservationResult.INSUFFICIENT_STOCK);
+                        }
+                    }
+                    case RELEASE -> {
+                        if (counter.reserved < quantity) {
+                            return ReservationResult.failure(entry.getKey(), ReservationResult.INSUFFICIENT_RESERVED);
+                        }
+                    }
+                    // Settling a ledger never drives reserved stock negative, even if the product was edited
+                    case RELEASE_ORDER, COMMIT_ORDER -> quantity = Math.min(quantity, counter.reserved);
+                    case ADJUST -> {
+                        if (counter.available + quantity < 0) {
+                            return ReservationResult.failure(entry.getKey(), ReservationResult.INSUFFICIENT_STOCK);
+                        }
+                    }
+                    case SET_AVAILABLE -> {
+                        if (quantity < 0) {
+                            return ReservationResult.failure(entry.getKey(), ReservationResult.INSUFFICIENT_STOCK);
+                        }
+                        quantity -= counter.available;
+                    }
+                }
+                moves.put(counter, quantity);
+            }
+
+            moves.forEach((counter, quantity) -> {
+                switch (operation) {
+                    case RESERVE -> counter.move(quantity);
+                    case RELEASE, RELEASE_ORDER -> counter.move(-quantity);
+                    case COMMIT_ORDER -> counter.consume(quantity);
+                    case ADJUST, SET_AVAILABLE -> counter.add(quantity);
+                }
+            });
+            dirtyProducts.addAll(quantities.keySet());
+            return ReservationResult.success();
+        } finally {
+            for (int j = stripeIndexes.length - 1; j >= 0; j--) {
+                stripes[stripeIndexes[j]].unlock();
+            }
+        }
+    }
+
+    private boolean load(String productId) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(
+                RedisReservationEngine.PRODUCT_KEY_PREFIX + productId, List.of(AVAILABLE_FIELD, RESERVED_FIELD));
+        if (values.get(0) == null) {
+            return false;
+        }
+        int available = Integer.parseInt((String) values.get(0));
+        int reserved = values.get(1) == null ? 0 : Integer.parseInt((String) values.get(1));
+        counters.putIfAbsent(productId, new StockCounter(available, reserved));
+        return true;
+    }
+
+    /**
+     * Reads the flushed ledgers of the orders with one pipeline: the quantities by product,
+     * {@link #SETTLED} for a tombstone, or an empty map if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Integer>> loadLedgers(List<String> orderIds) {
+        Map<String, Map<String, Integer>> ledgers = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return ledgers;
+        }
+        List<Object> entries = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String orderId : orderIds) {
+                connection.hashCommands().hGetAll(
+                        (RedisReservationEngine.LEDGER_KEY_PREFIX + orderId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        for (int i = 0; i < orderIds.size(); i++) {
+            Map<String, String> fields = (Map<String, String>) entries.get(i);
+            if (fields.containsKey(RedisReservationEngine.SETTLED_FIELD)) {
+                ledgers.put(orderIds.get(i), SETTLED);
+                continue;
+            }
+            Map<String, Integer> quantities = new LinkedHashMap<>();
+            fields.forEach((productId, quantity) -> quantities.put(productId, Integer.parseInt(quantity)));
+            ledgers.put(orderIds.get(i), quantities);
+        }
+        return ledgers;
+    }
+
+    /**
+     * Stripes are always acquired in ascending order so that two orders sharing
+     * products can never deadlock.
+     */
+    private int[] stripeIndexes(Set<String> productIds) {
+        return productIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private int stripeIndex(String productId) {
+        return Math.floorMod(productId.hashCode(), stripes.length);
+    }
+
+    private ReentrantLock stripeFor(String productId) {
+        return stripes[stripeIndex(productId)];
+    }
+
+    private void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        // Ledger changes are drained before counters: a ledger change is only recorded after its
+        // counters moved, so every drained ledger change has its stock delta in this flush too
+        Map<String, LedgerChange> ledgerChanges = new LinkedHashMap<>();
+        for (String orderId : pendingLedgerChanges.keySet()) {
+            LedgerChange change = pendingLedgerChanges.remove(orderId);
+            if (change != null) {
+                ledgerChanges.put(orderId, change);
+            }
+        }
+
+        List<PendingDelta> deltas = new ArrayList<>();
+        for (String productId : dirtyProducts) {
+            dirtyProducts.remove(productId);
+            ReentrantLock lock = stripeFor(productId);
+            lock.lock();
+            try {
+                StockCounter counter = counters.get(productId);
+                if (counter != null && counter.hasPendingDeltas()) {
+                    deltas.add(counter.drain(productId));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (deltas.isEmpty() && ledgerChanges.isEmpty()) {
+            return;
+        }
+
+        try {
+            write(deltas, ledgerChanges);
+            // Flushed tombstones are found in Redis from now on
+            ledgerChanges.forEach((orderId, change) -> {
+                if (change == LedgerChange.DELETED) {
+                    ledger.computeIfPresent(orderId, (id, quantities) -> quantities == SETTLED ? null : quantities);
+                }
+            });
+            log.debug("Flushed reservation deltas for {} products and {} ledger changes",
+                    deltas.size(), ledgerChanges.size());
+        } catch (DataAccessException e) {
+            // Put everything back so the next flush retries it
+            ledgerChanges.forEach(pendingLedgerChanges::putIfAbsent);
+            restore(deltas);
+            throw e;
+        }
+    }
+
+    private void restore(List<PendingDelta> deltas) {
+        for (PendingDelta delta : deltas) {
+            ReentrantLock lock = stripeFor(delta.productId());
+            lock.lock();
+            try {
+                StockCounter counter = counters.get(delta.productId());
+                if (counter != null) {
+                    counter.restore(delta);
+                    dirtyProducts.add(delta.productId());
+                } else {
+                    log.error("Dropping reservation delta of invalidated product {}: available {}, reserved {}",
+                            delta.productId(), delta.available(), delta.reserved());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush reservation deltas, will retry", e);
+        }
+    }
+
+    private void write(List<PendingDelta> deltas, Map<String, LedgerChange> ledgerChanges) {
+        String updatedAt = LocalDateTime.now().toString();
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public Object execute(RedisOperations operations) {
+                operations.multi();
+                for (PendingDelta delta : deltas) {
+                    String key = RedisReservationEngine.PRODUCT_KEY_PREFIX + delta.productId();
+                    operations.opsForHash().increment(key, AVAILABLE_FIELD, delta.available());
+                    operations.opsForHash().increment(key, RESERVED_FIELD, delta.reserved());
+                    operations.opsForHash().put(key, "updatedAt", updatedAt);
+                }
+                ledgerChanges.forEach((orderId, change) -> {
+                    String key = RedisReservationEngine.LEDGER_KEY_PREFIX + orderId;
+                    if (change == LedgerChange.DELETED) {
+                        operations.delete(key);
+                        operations.opsForHash().put(key, RedisReservationEngine.SETTLED_FIELD, "1");
+                        operations.expire(key, reservationTtl);
+                        operations.opsForZSet().remove(RedisReservationEngine.EXPIRY_KEY, orderId);
+                    } else {
+                        Map<String, String> fields = new LinkedHashMap<>();
+                        change.quantities().forEach((productId, quantity) -> fields.put(productId, String.valueOf(quantity)));
+                        operations.opsForHash().putAll(key, fields);
+                        operations.opsForZSet().add(RedisReservationEngine.EXPIRY_KEY, orderId, change.expiresAt());
+                    }
+                });
+                operations.exec();
+                return null;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        log.info("In-memory reservation engine stopped with {} unflushed products", dirtyProducts.size());
+    }
+
+    /**
+     * Counters of a single product. All fields are guarded by the product's stripe lock.
+     */
+    private static final class StockCounter {
+
+        private int available;
+        private int reserved;
+        private int pendingAvailable;
+        private int pendingReserved;
+
+        private StockCounter(int available, int reserved) {
+            this.available = available;
+            this.reserved = reserved;
+        }
+
+        /** Moves {@code quantity} from available to reserved; negative values move it back. */
+        private void move(int quantity) {
+            available -= quantity;
+            reserved += quantity;
+            pendingAvailable -= quantity;
+            pendingReserved += quantity;
+        }
+
+        /** Adds {@code quantity} to available stock; negative values remove it. */
+        private void add(int quantity) {
+            available += quantity;
+            pendingAvailable += quantity;
+        }
+
+        /** Removes {@code quantity} of reserved stock for good. */
+        private void consume(int quantity) {
+            reserved -= quantity;
+            pendingReserved -= quantity;
+        }
+
+        private boolean hasPendingDeltas() {
+            return pendingAvailable != 0 || pendingReserved != 0;
+        }
+
+        private PendingDelta drain(String productId) {
+            PendingDelta delta = new PendingDelta(productId, pendingAvailable, pendingReserved);
+            pendingAvailable = 0;
+            pendingReserved = 0;
+            return delta;
+        }
+
+        private void restore(PendingDelta delta) {
+            pendingAvailable += delta.available();
+            pendingReserved += delta.reserved();
+        }
+
+        /** Resets the counters to the stored values plus the deltas not written yet. */
+        private void rebase(int storedAvailable, int storedReserved) {
+            available = storedAvailable + pendingAvailable;
+            reserved = storedReserved + pendingReserved;
+        }
+    }
+
+    private record PendingDelta(String productId, int available, int reserved) {
+    }
+
+    /**
+     * Ledger write or deletion waiting for the next flush.
+     */
+    private record LedgerChange(Map<String, Integer> quantities, long expiresAt) {
+
+        private static final LedgerChange DELETED = new LedgerChange(Map.of(), 0);
+    }
+}
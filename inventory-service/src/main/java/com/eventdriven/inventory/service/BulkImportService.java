@@ -0,0 +1,277 @@
+package com.eventdriven.inventory.service;
+
+import com.eventdriven.inventory.cache.ProductNearCache;
+import com.eventdriven.inventory.dto.BulkImportResult;
+import com.eventdriven.inventory.dto.StockImportRow;
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.repository.ProductStore;
+import com.eventdriven.inventory.reservation.ReservationEngine;
+import com.eventdriven.inventory.reservation.ReservationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Applies product creates and stock adjustments streamed as CSV or NDJSON. Rows are read
+ * one line at a time and applied in chunks of {@code inventory.bulk.chunk-size}, so memory
+ * stays flat whatever the size of the payload. Creates are one pipelined create-if-absent
+ * script call per row; adjustments go through {@link ReservationEngine#adjustAll}, so they
+ * are checked against the same counters reservations move.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final ProductStore productStore;
+    private final ReservationEngine reservationEngine;
+    private final ProductNearCache productNearCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${inventory.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Imports CSV rows. The first line is a header naming the columns, e.g.
+     * {@code op,productId,quantity,name,description,price,category}.
+     */
+    public BulkImportResult importCsv(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return new BulkImportResult(0, 0, 0, List.of());
+        }
+        List<String> columns = splitCsvLine(header);
+        return importRows(reader, 2, line -> toRow(columns, splitCsvLine(line)));
+    }
+
+    /** Imports NDJSON rows, one {@link StockImportRow} document per line. */
+    public BulkImportResult importNdjson(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return importRows(reader, 1, line -> objectMapper.readValue(line, StockImportRow.class));
+    }
+
+    private BulkImportResult importRows(BufferedReader reader, long firstLine, RowParser parser) throws IOException {
+        long start = System.nanoTime();
+        Tally tally = new Tally();
+        List<NumberedRow> chunk = new ArrayList<>(chunkSize);
+
+        long lineNumber = firstLine;
+        for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                StockImportRow row = parser.parse(line);
+                String error = validate(row);
+                if (error != null) {
+                    tally.reject(lineNumber, error);
+                    continue;
+                }
+                chunk.add(new NumberedRow(lineNumber, row));
+            } catch (IOException | IllegalArgumentException e) {
+                tally.reject(lineNumber, "unreadable row: " + e.getMessage());
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                applyChunk(chunk, tally);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            applyChunk(chunk, tally);
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        meterRegistry.counter("inventory.bulk.rows", "outcome", "applied").increment(tally.applied);
+        meterRegistry.counter("inventory.bulk.rows", "outcome", "rejected").increment(tally.rejected);
+        log.info("Bulk import finished: {} applied, {} rejected in {} ms", tally.applied, tally.rejected, elapsedMs);
+        return new BulkImportResult(tally.applied, tally.rejected, elapsedMs, tally.errors);
+    }
+
+    /**
+     * Applies the rows of one chunk in order, consecutive rows of the same operation in one
+     * round trip. Every row checks and writes in a single atomic step, so a row sees the
+     * rows before it, reservations made meanwhile, and stock changes the reservation engine
+     * has not written back yet.
+     */
+    private void applyChunk(List<NumberedRow> chunk, Tally tally) {
+        Set<String> touched = new LinkedHashSet<>();
+        int from = 0;
+        while (from < chunk.size()) {
+            StockImportRow.Operation op = chunk.get(from).row().getOp();
+            int to = from + 1;
+            while (to < chunk.size() && chunk.get(to).row().getOp() == op) {
+                to++;
+            }
+            if (op == StockImportRow.Operation.CREATE) {
+                create(chunk.subList(from, to), tally, touched);
+            } else {
+                adjust(chunk.subList(from, to), tally, touched);
+            }
+            from = to;
+        }
+        if (!touched.isEmpty()) {
+            productNearCache.invalidate(touched);
+        }
+    }
+
+    private void create(List<NumberedRow> rows, Tally tally, Set<String> touched) {
+        List<Product> products = new ArrayList<>(rows.size());
+        for (NumberedRow numbered : rows) {
+            StockImportRow row = numbered.row();
+            reservationEngine.discard(row.getProductId());
+            products.add(new Product(row.getProductId(), row.getName(), row.getDescription(),
+                    row.getQuantity(), row.getPrice(), row.getCategory()));
+        }
+        List<Boolean> created = productStore.createAll(products);
+        for (int i = 0; i < rows.size(); i++) {
+            String productId = rows.get(i).row().getProductId();
+            if (!created.get(i)) {
+                tally.reject(rows.get(i).line(), "product already exists: " + productId);
+                continue;
+            }
+            touched.add(productId);
+            tally.applied++;
+        }
+    }
+
+    private void adjust(List<NumberedRow> rows, Tally tally, Set<String> touched) {
+        List<ReservationEngine.Adjustment> adjustments = new ArrayList<>(rows.size());
+        rows.forEach(numbered -> adjustments.add(
+                new ReservationEngine.Adjustment(numbered.row().getProductId(), numbered.row().getQuantity())));
+        List<ReservationResult> results = reservationEngine.adjustAll(adjustments);
+        for (int i = 0; i < rows.size(); i++) {
+            String productId = rows.get(i).row().getProductId();
+            ReservationResult result = results.get(i);
+            if (result.isSuccess()) {
+                touched.add(productId);
+                tally.applied++;
+            } else if (ReservationResult.NOT_FOUND.equals(result.getReason())) {
+                tally.reject(rows.get(i).line(), "product not found: " + productId);
+            } else {
+                tally.reject(rows.get(i).line(), "insufficient stock for product: " + productId);
+            }
+        }
+    }
+
+    private static String validate(StockImportRow row) {
+        if (row == null || row.getOp() == null) {
+            return "op is required";
+        }
+        if (row.getProductId() == null || row.getProductId().isBlank()) {
+            return "productId is required";
+        }
+        if (row.getQuantity() == null) {
+            return "quantity is required";
+        }
+        if (row.getOp() == StockImportRow.Operation.ADJUST) {
+            return row.getQuantity() == 0 ? "quantity must not be zero" : null;
+        }
+        if (row.getName() == null || row.getName().isBlank()) {
+            return "name is required";
+        }
+        if (row.getQuantity() < 0) {
+            return "quantity must not be negative";
+        }
+        if (row.getPrice() == null || row.getPrice() < 0) {
+            return "price must be zero or more";
+        }
+        return null;
+    }
+
+    private static StockImportRow toRow(List<String> columns, List<String> values) {
+        if (values.size() > columns.size()) {
+            throw new IllegalArgumentException("expected at most " + columns.size() + " columns");
+        }
+        StockImportRow row = new StockImportRow();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i).isEmpty() ? null : values.get(i);
+            if (value == null) {
+                continue;
+            }
+            switch (columns.get(i)) {
+                case "op" -> row.setOp(StockImportRow.Operation.valueOf(value.toUpperCase(Locale.ROOT)));
+                case "productId" -> row.setProductId(value);
+                case "quantity" -> row.setQuantity(Integer.valueOf(value));
+                case "name" -> row.setName(value);
+                case "description" -> row.setDescription(value);
+                case "price" -> row.setPrice(Double.valueOf(value));
+                case "category" -> row.setCategory(value);
+                default -> { }
+            }
+        }
+        return row;
+    }
+
+    /** Splits one CSV line, honouring double-quoted fields and {@code ""} escapes. */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        StockImportRow parse(String line) throws IOException;
+    }
+
+    private record NumberedRow(long line, StockImportRow row) {
+    }
+
+    private static final class Tally {
+
+        private long applied;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        void reject(long line, String error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + line + ": " + error);
+            }
+        }
+    }
+}
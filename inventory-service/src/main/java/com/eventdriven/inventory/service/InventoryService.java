@@ -1,19 +1,41 @@
 package com.eventdriven.inventory.service;
 
+import com.eventdriven.inventory.cache.ProductNearCache;
+import com.eventdriven.inventory.dto.ProductPage;
 import com.eventdriven.inventory.model.Product;
 import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.inventory.repository.ProductStore;
+import com.eventdriven.inventory.reservation.ReservationEngine;
+import com.eventdriven.inventory.reservation.ReservationResult;
 import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
 import com.eventdriven.shared.events.InventoryReservedEvent;
 import com.eventdriven.shared.events.InventoryRollbackEvent;
 import com.eventdriven.shared.events.OrderCreatedEvent;
+import com.eventdriven.shared.events.PaymentProcessedEvent;
+import com.eventdriven.shared.kafka.EventPublisher;
+import com.eventdriven.shared.kafka.RetryTopology;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.redis.core.PartialUpdate;
+import org.springframework.data.redis.core.RedisKeyValueTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -21,114 +43,363 @@ import java.util.Optional;
 public class InventoryService {
 
     private final ProductRepository productRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ProductStore productStore;
+    private final ReservationEngine reservationEngine;
+    private final ProductNearCache productNearCache;
+    private final EventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final RetryTopology retryTopology;
+    private final RedisKeyValueTemplate redisKeyValueTemplate;
 
-    @KafkaListener(topics = "order-events", groupId = "inventory-service")
+    @Value("${inventory.events.per-item-enabled:true}")
+    private boolean perItemEventsEnabled;
+
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('order-events', 'inventory-service', ${inventory.consumer.batch-enabled:false})}",
+            groupId = "inventory-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory",
+            autoStartup = "#{!${inventory.consumer.batch-enabled:false} || @eventRetryTopology.enabled}")
     public void handleOrderCreatedEvent(OrderCreatedEvent event) {
         log.info("Received OrderCreatedEvent for order: {}", event.getOrderId());
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        try {
+            // Reserve inventory for all items in one atomic step
+            ReservationResult result = reservationEngine.reserve(event.getOrderId(), event.getItems());
+            if (result.isSuccess()) {
+                productNearCache.invalidate(productIds(event.getItems()));
+            }
+            publishReservationResult(event, result);
+        } catch (Exception e) {
+            if (isRetryable(e)) {
+                // Reserving is idempotent per order, so the retry tiers can safely run it again
+                log.warn("Transient failure reserving inventory for order: {}, retrying later: {}", event.getOrderId(), e.getMessage());
+                throw (RuntimeException) e;
+            }
+            log.error("Error processing OrderCreatedEvent for order: {}", event.getOrderId(), e);
+            publishReservationFailure(event, e);
+        }
+
+        sample.stop(meterRegistry.timer("inventory.orders.processing", "listener", "single"));
+        meterRegistry.counter("inventory.orders.processed", "listener", "single").increment();
+    }
 
+    /**
+     * Batch variant of {@link #handleOrderCreatedEvent}, enabled with {@code inventory.consumer.batch-enabled}.
+     * Orders are reserved with a single engine call in poll order, and all resulting events
+     * are sent before one producer flush. An order appearing more than once in a poll is
+     * reserved and announced once.
+     * <p>
+     * If the batch fails part way, orders whose outcome was already published keep it. A
+     * transient failure is thrown as a {@link BatchListenerFailedException} for the first order
+     * without an outcome, which the container retries and then forwards to the retry tiers,
+     * consumed by {@link #handleOrderCreatedEvent}; the orders after it are delivered again.
+     * Reserving is idempotent per order, so their reservations stand. Any other failure has
+     * the reservations of the orders without an outcome released and fails them.
+     */
+    @KafkaListener(topics = "order-events", groupId = "inventory-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${inventory.consumer.batch-enabled:false}")
+    public void handleOrderCreatedEvents(List<OrderCreatedEvent> events) {
+        log.info("Received batch of {} OrderCreatedEvents", events.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        Set<String> announcedOrderIds = new LinkedHashSet<>();
+        Set<String> reservedProductIds = new LinkedHashSet<>();
         try {
-            boolean allItemsReserved = true;
-            String failureReason = null;
-
-            // Try to reserve inventory for all items
-            for (OrderItem item : event.getItems()) {
-                Optional<Product> productOpt = productRepository.findByProductId(item.getProductId());
-
-                if (productOpt.isPresent()) {
-                    Product product = productOpt.get();
-                    if (product.hasAvailableStock(item.getQuantity())) {
-                        product.reserveStock(item.getQuantity());
-                        productRepository.save(product);
-                        log.info("Reserved {} units of product {} for order {}",
-                                item.getQuantity(), item.getProductId(), event.getOrderId());
-                    } else {
-                        allItemsReserved = false;
-                        failureReason = "Insufficient stock for product: " + item.getProductId();
-                        log.warn("Failed to reserve inventory for product: {} - insufficient stock",
-                                item.getProductId());
-                        break;
-                    }
-                } else {
-                    allItemsReserved = false;
-                    failureReason = "Product not found: " + item.getProductId();
-                    log.warn("Failed to reserve inventory - product not found: {}", item.getProductId());
-                    break;
+            // A redelivered order appearing twice in one poll is reserved once
+            Map<String, List<OrderItem>> itemsByOrder = new LinkedHashMap<>();
+            events.forEach(event -> itemsByOrder.putIfAbsent(event.getOrderId(), event.getItems()));
+            Map<String, ReservationResult> results = reservationEngine.reserveAll(itemsByOrder);
+
+            for (OrderCreatedEvent event : events) {
+                if (announcedOrderIds.contains(event.getOrderId())) {
+                    continue;
+                }
+                ReservationResult result = results.get(event.getOrderId());
+                if (result.isSuccess()) {
+                    reservedProductIds.addAll(productIds(event.getItems()));
+                }
+                publishReservationResult(event, result);
+                announcedOrderIds.add(event.getOrderId());
+            }
+        } catch (Exception e) {
+            if (isRetryable(e)) {
+                int failed = firstUnannounced(events, announcedOrderIds);
+                log.warn("Transient failure processing batch of {} OrderCreatedEvents, retrying from order: {}",
+                        events.size(), events.get(failed).getOrderId(), e);
+                productNearCache.invalidate(reservedProductIds);
+                eventPublisher.flush();
+                throw new BatchListenerFailedException("Could not reserve inventory for order: "
+                        + events.get(failed).getOrderId(), e, failed);
+            }
+            log.error("Error processing batch of {} OrderCreatedEvents, failing the orders without an outcome",
+                    events.size(), e);
+            for (OrderCreatedEvent event : events) {
+                if (announcedOrderIds.add(event.getOrderId())) {
+                    failUnannounced(event, e, reservedProductIds);
                 }
             }
+        }
+        productNearCache.invalidate(reservedProductIds);
+        eventPublisher.flush();
 
-            // Publish inventory reservation result
-            for (OrderItem item : event.getItems()) {
-                InventoryReservedEvent inventoryEvent = new InventoryReservedEvent(
-                        event.getOrderId(),
+        sample.stop(meterRegistry.timer("inventory.orders.processing", "listener", "batch"));
+        meterRegistry.counter("inventory.orders.processed", "listener", "batch").increment(events.size());
+    }
+
+    /** Index of the first event whose order has no published outcome yet. */
+    private static int firstUnannounced(List<OrderCreatedEvent> events, Set<String> announcedOrderIds) {
+        for (int i = 0; i < events.size(); i++) {
+            if (!announcedOrderIds.contains(events.get(i).getOrderId())) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Every order of the batch has an outcome");
+    }
+
+    /**
+     * Fails an order of a batch that broke before its outcome was published. The engine may
+     * have reserved it before the failure, so any reservation is released first.
+     */
+    private void failUnannounced(OrderCreatedEvent event, Exception e, Set<String> touchedProductIds) {
+        try {
+            touchedProductIds.addAll(reservationEngine.releaseOrder(event.getOrderId()));
+        } catch (Exception releaseError) {
+            // Left to the reservation TTL
+            log.error("Could not release inventory of failed order: {}", event.getOrderId(), releaseError);
+        }
+        publishReservationFailure(event, e);
+    }
+
+    /**
+     * Redis being unreachable or timing out is worth another try from a retry tier, rather
+     * than failing the order; anything else is final.
+     */
+    private boolean isRetryable(Exception e) {
+        return retryTopology.isEnabled()
+                && (e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException);
+    }
+
+    private void publishReservationResult(OrderCreatedEvent event, ReservationResult result) {
+        boolean allItemsReserved = result.isSuccess();
+        if (allItemsReserved) {
+            log.info("Reserved {} items for order {}", event.getItems().size(), event.getOrderId());
+        } else {
+            log.warn("Failed to reserve inventory for order: {} - {}", event.getOrderId(), result.describe());
+        }
+
+        List<InventoryReservationResultEvent.LineResult> lines = event.getItems().stream()
+                .map(item -> new InventoryReservationResultEvent.LineResult(
                         item.getProductId(),
                         item.getQuantity(),
                         allItemsReserved,
-                        allItemsReserved ? "Inventory reserved successfully" : failureReason);
+                        allItemsReserved || item.getProductId().equals(result.getFailedProductId())
+                                ? result.describe()
+                                : "Not reserved: order rejected"))
+                .toList();
+        publishOutcome(event, allItemsReserved, result.describe(), lines);
+    }
 
-                kafkaTemplate.send("inventory-events", event.getOrderId(), inventoryEvent);
-                log.info("Published InventoryReservedEvent for product: {} - success: {}",
-                        item.getProductId(), allItemsReserved);
-            }
+    private void publishReservationFailure(OrderCreatedEvent event, Exception e) {
+        String message = "Error processing inventory reservation: " + e.getMessage();
+        List<InventoryReservationResultEvent.LineResult> lines = event.getItems().stream()
+                .map(item -> new InventoryReservationResultEvent.LineResult(
+                        item.getProductId(), item.getQuantity(), false, message))
+                .toList();
+        publishOutcome(event, false, message, lines);
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing OrderCreatedEvent for order: {}", event.getOrderId(), e);
+    /**
+     * Publishes one {@link InventoryReservationResultEvent} for the order and, while consumers
+     * migrate, the legacy {@link InventoryReservedEvent} for each order line.
+     */
+    private void publishOutcome(OrderCreatedEvent event, boolean success, String message,
+            List<InventoryReservationResultEvent.LineResult> lines) {
+        InventoryReservationResultEvent resultEvent =
+                new InventoryReservationResultEvent(event.getOrderId(), success, message, lines);
+        send("inventory-result-events", event.getOrderId(), resultEvent, "aggregated");
+        log.info("Published InventoryReservationResultEvent for order: {} - success: {}", event.getOrderId(), success);
 
-            // Publish failure event for all items
-            for (OrderItem item : event.getItems()) {
-                InventoryReservedEvent failureEvent = new InventoryReservedEvent(
+        if (perItemEventsEnabled) {
+            for (InventoryReservationResultEvent.LineResult line : lines) {
+                InventoryReservedEvent inventoryEvent = new InventoryReservedEvent(
                         event.getOrderId(),
-                        item.getProductId(),
-                        item.getQuantity(),
-                        false,
-                        "Error processing inventory reservation: " + e.getMessage());
+                        line.getProductId(),
+                        line.getQuantity(),
+                        success,
+                        message);
 
-                kafkaTemplate.send("inventory-events", event.getOrderId(), failureEvent);
+                send("inventory-events", event.getOrderId(), inventoryEvent, "per-item");
+                log.info("Published InventoryReservedEvent for product: {} - success: {}",
+                        line.getProductId(), success);
             }
         }
     }
 
-    @KafkaListener(topics = "payment-events", groupId = "inventory-service")
-    public void handlePaymentProcessedEvent(com.eventdriven.shared.events.PaymentProcessedEvent event) {
+    /**
+     * Sends an inventory event and records how many messages and serialized bytes each
+     * event format costs, to size the saving of dropping the per-item events.
+     */
+    private void send(String topic, String key, Object event, String format) {
+        meterRegistry.counter("inventory.events.published", "format", format).increment();
+        eventPublisher.publish(topic, key, event).whenComplete((sendResult, ex) -> {
+            if (ex == null) {
+                meterRegistry.summary("inventory.events.bytes", "format", format)
+                        .record(sendResult.getRecordMetadata().serializedValueSize());
+            }
+        });
+    }
+
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('payment-events', 'inventory-service')}",
+            groupId = "inventory-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory")
+    public void handlePaymentProcessedEvent(PaymentProcessedEvent event) {
         log.info("Received PaymentProcessedEvent for order: {}", event.getOrderId());
 
-        // If payment failed, release reserved inventory
-        if (!event.getSuccess()) {
+        if (Boolean.TRUE.equals(event.getSuccess())) {
+            // Paid: the reserved stock is sold
+            List<String> productIds = reservationEngine.commitOrder(event.getOrderId());
+            log.info("Committed reserved inventory of {} products for order: {}", productIds.size(), event.getOrderId());
+            productNearCache.invalidate(productIds);
+        } else {
             log.info("Payment failed for order: {}, releasing reserved inventory", event.getOrderId());
-            // In a real implementation, you would need to retrieve the order details
-            // to know which items to release. For now, we'll just log the action.
+            releaseOrder(event.getOrderId());
+        }
+    }
+
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('inventory-rollback-events', 'inventory-service')}",
+            groupId = "inventory-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory")
+    public void handleInventoryRollbackEvent(InventoryRollbackEvent event) {
+        log.info("Received InventoryRollbackEvent for order: {} - {}", event.getOrderId(), event.getReason());
+        releaseOrder(event.getOrderId());
+    }
+
+    private void releaseOrder(String orderId) {
+        List<String> productIds = reservationEngine.releaseOrder(orderId);
+        if (productIds.isEmpty()) {
+            log.info("No reserved inventory to release for order: {}", orderId);
+        } else {
+            log.info("Released reserved inventory of {} products for order: {}", productIds.size(), orderId);
+            productNearCache.invalidate(productIds);
         }
     }
 
     public Optional<Product> getProduct(String productId) {
         log.info("Fetching product: {}", productId);
-        return productRepository.findByProductId(productId);
+        return productNearCache.find(productId);
+    }
+
+    public ProductPage getProducts(String cursor, int limit) {
+        log.info("Fetching products page, limit: {}", limit);
+        return productStore.findPage(ProductStore.allProductsIndex(), cursor, limit);
+    }
+
+    public ProductPage getProductsByCategory(String category, String cursor, int limit) {
+        log.info("Fetching products page for category: {}, limit: {}", category, limit);
+        return productStore.findPage(ProductStore.categoryIndex(category), cursor, limit);
+    }
+
+    public void forEachProduct(Consumer<Product> consumer) {
+        log.info("Streaming all products");
+        productStore.forEach(ProductStore.allProductsIndex(), consumer);
     }
 
-    public List<Product> getAllProducts() {
-        log.info("Fetching all products");
-        return (List<Product>) productRepository.findAll();
+    public void forEachProductInCategory(String category, Consumer<Product> consumer) {
+        log.info("Streaming products for category: {}", category);
+        productStore.forEach(ProductStore.categoryIndex(category), consumer);
     }
 
     public Product createProduct(Product product) {
         log.info("Creating product: {}", product.getProductId());
-        return productRepository.save(product);
+        reservationEngine.discard(product.getProductId());
+        Product saved = productRepository.save(product);
+        reservationEngine.invalidate(saved.getProductId());
+        productNearCache.invalidate(List.of(saved.getProductId()));
+        return saved;
     }
 
-    public void updateProductStock(String productId, int quantity) {
+    /**
+     * Updates the descriptive fields present in {@code product} in place, so concurrent
+     * reservations of the product are never overwritten. A given {@code availableQuantity}
+     * is set through the reservation engine, which works out the difference against the
+     * counters reservations move; {@code reservedQuantity} is owned by reservations and ignored.
+     */
+    public Product updateProduct(Product product) {
+        log.info("Updating product: {}", product.getProductId());
+        Optional<Product> existing = productRepository.findByProductId(product.getProductId());
+        if (existing.isEmpty()) {
+            return null;
+        }
+        if (product.getAvailableQuantity() != null) {
+            ReservationResult result = reservationEngine.setAvailable(product.getProductId(), product.getAvailableQuantity());
+            if (!result.isSuccess()) {
+                throw new IllegalArgumentException("Cannot set the stock of product " + product.getProductId()
+                        + " to " + product.getAvailableQuantity() + ": " + result.describe());
+            }
+        }
+
+        PartialUpdate<Product> update = PartialUpdate.newPartialUpdate(product.getProductId(), Product.class)
+                .set("updatedAt", LocalDateTime.now());
+        if (product.getName() != null) {
+            update = update.set("name", product.getName());
+        }
+        if (product.getDescription() != null) {
+            update = update.set("description", product.getDescription());
+        }
+        if (product.getPrice() != null) {
+            update = update.set("price", product.getPrice());
+        }
+        if (product.getCategory() != null) {
+            update = update.set("category", product.getCategory());
+        }
+        redisKeyValueTemplate.update(update);
+        productNearCache.invalidate(List.of(product.getProductId()));
+        return productRepository.findByProductId(product.getProductId()).orElse(null);
+    }
+
+    /**
+     * Adds {@code quantity} (negative to remove) to the available stock of a product,
+     * atomically with its reservations. Returns false if the product does not exist or
+     * not enough stock is available to remove.
+     */
+    public boolean updateProductStock(String productId, int quantity) {
         log.info("Updating stock for product: {} by quantity: {}", productId, quantity);
-        productRepository.findByProductId(productId).ifPresent(product -> {
-            product.setAvailableQuantity(product.getAvailableQuantity() + quantity);
-            product.setUpdatedAt(java.time.LocalDateTime.now());
-            productRepository.save(product);
-        });
+        ReservationResult result = reservationEngine.adjust(productId, quantity);
+        if (result.isSuccess()) {
+            productNearCache.invalidate(List.of(productId));
+        } else {
+            log.warn("Failed to update stock - {}", result.describe());
+        }
+        return result.isSuccess();
+    }
+
+    public boolean reserveStock(String productId, int quantity) {
+        log.info("Reserving stock for product: {} quantity: {}", productId, quantity);
+        ReservationResult result = reservationEngine.reserve(null, List.of(new OrderItem(productId, quantity, null)));
+        if (result.isSuccess()) {
+            productNearCache.invalidate(List.of(productId));
+        } else {
+            log.warn("Failed to reserve stock - {}", result.describe());
+        }
+        return result.isSuccess();
     }
 
-    public void releaseReservedStock(String productId, int quantity) {
+    public boolean releaseReservedStock(String productId, int quantity) {
         log.info("Releasing reserved stock for product: {} quantity: {}", productId, quantity);
-        productRepository.findByProductId(productId).ifPresent(product -> {
-            product.releaseReservedStock(quantity);
-            productRepository.save(product);
-        });
+        ReservationResult result = reservationEngine.release(List.of(new OrderItem(productId, quantity, null)));
+        if (result.isSuccess()) {
+            productNearCache.invalidate(List.of(productId));
+        } else {
+            log.warn("Failed to release stock - {}", result.describe());
+        }
+        return result.isSuccess();
+    }
+
+    private static List<String> productIds(List<OrderItem> items) {
+        return items.stream()
+                .map(OrderItem::getProductId)
+                .distinct()
+                .toList();
     }
 }
\ No newline at end of file
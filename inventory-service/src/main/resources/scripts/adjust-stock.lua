@@ -0,0 +1,15 @@
+-- Adds to the available stock of a product in one atomic step, never taking it below zero.
+-- KEYS[1]: product hash key
+-- ARGV[1]: updatedAt timestamp, ARGV[2]: quantity to add (negative to remove)
+-- Returns {1} on success or {0, 1, reason} without touching the product.
+local available = redis.call('HGET', KEYS[1], 'availableQuantity')
+if not available then
+    return {0, 1, 'NOT_FOUND'}
+end
+if tonumber(available) + tonumber(ARGV[2]) < 0 then
+    return {0, 1, 'INSUFFICIENT_STOCK'}
+end
+
+redis.call('HINCRBY', KEYS[1], 'availableQuantity', ARGV[2])
+redis.call('HSET', KEYS[1], 'updatedAt', ARGV[1])
+return {1}
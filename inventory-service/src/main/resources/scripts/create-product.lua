@@ -0,0 +1,17 @@
+-- Stores a new product with its keyspace and index entries in one atomic step, unless the
+-- product already exists.
+-- KEYS[1]: product hash key, KEYS[2]: keyspace id set, KEYS[3]: index tracking set of the product,
+-- KEYS[4..n]: index sets of the product
+-- ARGV[1]: product id, ARGV[2..]: hash field/value pairs
+-- Returns 1 when stored, 0 without touching anything if the product exists.
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+redis.call('SADD', KEYS[2], ARGV[1])
+for i = 4, #KEYS do
+    redis.call('SADD', KEYS[i], ARGV[1])
+    redis.call('SADD', KEYS[3], KEYS[i])
+end
+return 1
@@ -0,0 +1,21 @@
+-- Releases previously reserved stock for a set of products in a single atomic step.
+-- KEYS: product hash keys, one per distinct product
+-- ARGV[1]: updatedAt timestamp, ARGV[2..n]: quantities aligned with KEYS
+-- Returns {1} on success or {0, failedKeyIndex, reason} without touching any product.
+for i, key in ipairs(KEYS) do
+    local reserved = redis.call('HGET', key, 'reservedQuantity')
+    if not reserved then
+        return {0, i, 'NOT_FOUND'}
+    end
+    if tonumber(reserved) < tonumber(ARGV[i + 1]) then
+        return {0, i, 'INSUFFICIENT_RESERVED'}
+    end
+end
+
+for i, key in ipairs(KEYS) do
+    local quantity = tonumber(ARGV[i + 1])
+    redis.call('HINCRBY', key, 'reservedQuantity', -quantity)
+    redis.call('HINCRBY', key, 'availableQuantity', quantity)
+    redis.call('HSET', key, 'updatedAt', ARGV[1])
+end
+return {1}
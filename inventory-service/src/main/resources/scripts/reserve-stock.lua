@@ -0,0 +1,71 @@
+-- Reserves stock for one or more orders in a single atomic step, in the given order.
+-- Every order is all-or-nothing on its own; a rejected order does not affect the others.
+-- Each reserved order gets a ledger hash (productId -> quantity) and an entry in the expiry
+-- sorted set, so its stock can later be released or committed without knowing its items.
+-- KEYS: distinct product hash keys of all orders
+-- ARGV[1]: updatedAt timestamp, ARGV[2]: expiry sorted set key, ARGV[3]: expiry time in epoch millis,
+-- ARGV[4]: number of orders, ARGV[5 .. 4 + #KEYS]: product ids aligned with KEYS,
+-- then per order: ledger key ('' for none), order id, item count, (key index, quantity) pairs
+-- Returns three entries per order: 1 or 0, failed key index (0 on success), reason ('' on success)
+-- Ledger keys are derived from order ids and therefore not declared in KEYS.
+local available = {}
+for i, key in ipairs(KEYS) do
+    local value = redis.call('HGET', key, 'availableQuantity')
+    available[i] = value and tonumber(value) or false
+end
+
+local reserved = {}
+local result = {}
+local pos = 5 + #KEYS
+for _ = 1, tonumber(ARGV[4]) do
+    local ledgerKey = ARGV[pos]
+    local orderId = ARGV[pos + 1]
+    local count = tonumber(ARGV[pos + 2])
+    local first = pos + 3
+    local failedIndex, reason = 0, ''
+
+    -- A ledger already exists when the order is redelivered: it is reserved already
+    local alreadyReserved = ledgerKey ~= '' and redis.call('EXISTS', ledgerKey) == 1
+    if not alreadyReserved then
+        for j = 0, count - 1 do
+            local k = tonumber(ARGV[first + 2 * j])
+            local quantity = tonumber(ARGV[first + 2 * j + 1])
+            if available[k] == false then
+                failedIndex, reason = k, 'NOT_FOUND'
+                break
+            end
+            if available[k] < quantity then
+                failedIndex, reason = k, 'INSUFFICIENT_STOCK'
+                break
+            end
+        end
+
+        if failedIndex == 0 then
+            for j = 0, count - 1 do
+                local k = tonumber(ARGV[first + 2 * j])
+                local quantity = tonumber(ARGV[first + 2 * j + 1])
+                available[k] = available[k] - quantity
+                reserved[k] = (reserved[k] or 0) + quantity
+                if ledgerKey ~= '' then
+                    redis.call('HSET', ledgerKey, ARGV[4 + k], quantity)
+                end
+            end
+            if ledgerKey ~= '' then
+                redis.call('ZADD', ARGV[2], ARGV[3], orderId)
+            end
+        end
+    end
+
+    table.insert(result, failedIndex == 0 and 1 or 0)
+    table.insert(result, failedIndex)
+    table.insert(result, reason)
+    pos = first + 2 * count
+end
+
+-- Write each touched product once, however many orders reserved it
+for k, quantity in pairs(reserved) do
+    redis.call('HINCRBY', KEYS[k], 'availableQuantity', -quantity)
+    redis.call('HINCRBY', KEYS[k], 'reservedQuantity', quantity)
+    redis.call('HSET', KEYS[k], 'updatedAt', ARGV[1])
+end
+return result
@@ -0,0 +1,46 @@
+-- Reads one page of products from a set of product ids (the keyspace set or an index set).
+-- KEYS[1]: id set to scan
+-- ARGV[1]: SSCAN cursor to resume from, ARGV[2]: members of that SSCAN batch already returned,
+-- ARGV[3]: page size, ARGV[4]: product hash key prefix
+-- Returns {nextCursor, nextSkip, id1, fields1, id2, fields2, ...}; nextCursor is '0' and nextSkip 0
+-- once the set is exhausted. Ids whose hash no longer exists are left out, and an id SSCAN returns
+-- twice within the page is returned once; across pages SSCAN only guarantees at-least-once.
+-- The product hashes are not declared in KEYS (they are built from ARGV[4]), so this script
+-- only runs on a non-clustered Redis.
+local cursor = ARGV[1]
+local skip = tonumber(ARGV[2])
+local limit = tonumber(ARGV[3])
+local result = {'0', 0}
+local collected = 0
+local seen = {}
+
+repeat
+    local batch = redis.call('SSCAN', KEYS[1], cursor, 'COUNT', limit)
+    local members = batch[2]
+    local index = skip + 1
+    while index <= #members and collected < limit do
+        local fields = {}
+        if not seen[members[index]] then
+            seen[members[index]] = true
+            fields = redis.call('HGETALL', ARGV[4] .. members[index])
+        end
+        if #fields > 0 then
+            table.insert(result, members[index])
+            table.insert(result, fields)
+        end
+        collected = collected + 1
+        index = index + 1
+    end
+
+    if index <= #members then
+        -- Page filled in the middle of this batch: resume it from the same cursor next time
+        result[1] = cursor
+        result[2] = index - 1
+        return result
+    end
+    cursor = batch[1]
+    skip = 0
+until cursor == '0' or collected >= limit
+
+result[1] = cursor
+return result
@@ -0,0 +1,10 @@
+-- Sets the available stock of a product in one atomic step, leaving its reserved stock alone.
+-- KEYS[1]: product hash key
+-- ARGV[1]: updatedAt timestamp, ARGV[2]: new available quantity (zero or more)
+-- Returns {1} on success or {0, 1, reason} without touching the product.
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {0, 1, 'NOT_FOUND'}
+end
+
+redis.call('HSET', KEYS[1], 'availableQuantity', ARGV[2], 'updatedAt', ARGV[1])
+return {1}
@@ -0,0 +1,52 @@
+-- Settles order reservations recorded by reserve-stock.lua in a single atomic step.
+-- 'release' returns the reserved stock to available (payment failed, rollback, expiry);
+-- 'commit' consumes it (payment succeeded). Either way the expiry entry is removed and the ledger
+-- is replaced by a tombstone holding only the tombstone field, which expires after the given TTL:
+-- settling an order twice is a no-op, and reserve-stock.lua does not reserve a redelivered order
+-- again while the tombstone exists.
+-- KEYS[1]: expiry sorted set
+-- ARGV[1]: updatedAt timestamp, ARGV[2]: ledger key prefix, ARGV[3]: product key prefix,
+-- ARGV[4]: 'release' or 'commit', ARGV[5]: tombstone field, ARGV[6]: tombstone TTL in millis,
+-- ARGV[7]: 'expired' followed by the current epoch millis and a limit, or 'orders' followed by order ids
+-- Returns the number of orders looked at, then each settled order id followed by its
+-- comma-separated product ids.
+-- Ledger and product keys are derived from the ledger and therefore not declared in KEYS.
+local orderIds
+if ARGV[7] == 'expired' then
+    orderIds = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[8], 'LIMIT', 0, tonumber(ARGV[9]))
+else
+    orderIds = {}
+    for i = 8, #ARGV do
+        table.insert(orderIds, ARGV[i])
+    end
+end
+
+local result = {#orderIds}
+for _, orderId in ipairs(orderIds) do
+    local ledgerKey = ARGV[2] .. orderId
+    local lines = redis.call('HGETALL', ledgerKey)
+    if #lines > 0 and lines[1] ~= ARGV[5] then
+        local productIds = {}
+        for i = 1, #lines, 2 do
+            local productKey = ARGV[3] .. lines[i]
+            local reserved = redis.call('HGET', productKey, 'reservedQuantity')
+            if reserved then
+                -- Never drive the counters negative if the product was edited meanwhile
+                local quantity = math.min(tonumber(lines[i + 1]), tonumber(reserved))
+                redis.call('HINCRBY', productKey, 'reservedQuantity', -quantity)
+                if ARGV[4] == 'release' then
+                    redis.call('HINCRBY', productKey, 'availableQuantity', quantity)
+                end
+                redis.call('HSET', productKey, 'updatedAt', ARGV[1])
+            end
+            table.insert(productIds, lines[i])
+        end
+        redis.call('DEL', ledgerKey)
+        redis.call('HSET', ledgerKey, ARGV[5], '1')
+        redis.call('PEXPIRE', ledgerKey, ARGV[6])
+        table.insert(result, orderId)
+        table.insert(result, table.concat(productIds, ','))
+    end
+    redis.call('ZREM', KEYS[1], orderId)
+end
+return result
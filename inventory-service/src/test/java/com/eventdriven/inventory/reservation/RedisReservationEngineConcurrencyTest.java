@@ -0,0 +1,195 @@
+package com.eventdriven.inventory.reservation;
+
+import com.eventdriven.shared.dto.OrderItem;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parallel consumers reserving the same scarce products through {@link RedisReservationEngine},
+ * against jedis-mock: no product may go below zero, stock moves only between available and
+ * reserved, and a redelivered order is reserved once.
+ */
+class RedisReservationEngineConcurrencyTest {
+
+    private static final int CONSUMERS = 16;
+    private static final int ORDERS_PER_CONSUMER = 50;
+    private static final Map<String, Integer> STOCK = Map.of("p1", 100, "p2", 40, "p3", 7);
+
+    private RedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private RedisReservationEngine engine;
+
+    @BeforeEach
+    void startRedis() throws Exception {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()),
+                LettuceClientConfiguration.builder()
+                        // jedis-mock does not implement HELLO, so skip the RESP3 handshake
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        engine = new RedisReservationEngine(redisTemplate, Duration.ofMinutes(15));
+
+        STOCK.forEach((productId, quantity) -> redisTemplate.opsForHash().putAll(
+                RedisReservationEngine.PRODUCT_KEY_PREFIX + productId,
+                Map.of("productId", productId, "availableQuantity", String.valueOf(quantity), "reservedQuantity", "0")));
+    }
+
+    @AfterEach
+    void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void parallelConsumersNeverOversell() throws Exception {
+        List<Callable<Map<String, Integer>>> consumers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int c = 0; c < CONSUMERS; c++) {
+            int consumer = c;
+            consumers.add(() -> {
+                start.await();
+                // Quantities this consumer managed to reserve, by product
+                Map<String, Integer> reserved = new HashMap<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ORDERS_PER_CONSUMER; i++) {
+                    List<OrderItem> items = List.of(
+                            new OrderItem("p1", 1 + random.nextInt(3), 10.0),
+                            new OrderItem(random.nextBoolean() ? "p2" : "p3", 1 + random.nextInt(2), 10.0));
+                    if (engine.reserve("order-" + consumer + "-" + i, items).isSuccess()) {
+                        items.forEach(item -> reserved.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+                    }
+                }
+                return reserved;
+            });
+        }
+
+        Map<String, Integer> reservedByOrders = runAll(consumers, start);
+
+        STOCK.forEach((productId, stock) -> {
+            int available = counter(productId, "availableQuantity");
+            int reserved = counter(productId, "reservedQuantity");
+            assertThat(available).as("available %s", productId).isGreaterThanOrEqualTo(0);
+            assertThat(available + reserved).as("available + reserved %s", productId).isEqualTo(stock);
+            assertThat(reserved).as("reserved %s", productId).isEqualTo(reservedByOrders.getOrDefault(productId, 0));
+        });
+        // Far more was ordered than stocked, so the scarce products must have sold out
+        assertThat(counter("p3", "availableQuantity")).isZero();
+    }
+
+    @Test
+    void redeliveredOrderIsReservedOnce() throws Exception {
+        List<OrderItem> items = List.of(new OrderItem("p1", 5, 10.0));
+        List<Callable<Map<String, Integer>>> deliveries = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int c = 0; c < CONSUMERS; c++) {
+            deliveries.add(() -> {
+                start.await();
+                assertThat(engine.reserve("order-redelivered", items).isSuccess()).isTrue();
+                return Map.of();
+            });
+        }
+
+        runAll(deliveries, start);
+
+        assertThat(counter("p1", "availableQuantity")).isEqualTo(95);
+        assertThat(counter("p1", "reservedQuantity")).isEqualTo(5);
+    }
+
+    @Test
+    void settledOrderIsNotReservedAgain() {
+        List<OrderItem> items = List.of(new OrderItem("p1", 5, 10.0));
+        assertThat(engine.reserve("order-settled", items).isSuccess()).isTrue();
+        assertThat(engine.commitOrder("order-settled")).containsExactly("p1");
+
+        assertThat(engine.reserve("order-settled", items).isSuccess()).isTrue();
+        assertThat(engine.commitOrder("order-settled")).isEmpty();
+
+        assertThat(counter("p1", "availableQuantity")).isEqualTo(95);
+        assertThat(counter("p1", "reservedQuantity")).isZero();
+    }
+
+    @Test
+    void stockAdjustmentsRacingReservationsKeepBoth() throws Exception {
+        List<Callable<Map<String, Integer>>> tasks = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int c = 0; c < CONSUMERS; c++) {
+            int consumer = c;
+            tasks.add(() -> {
+                start.await();
+                Map<String, Integer> moved = new HashMap<>();
+                for (int i = 0; i < ORDERS_PER_CONSUMER; i++) {
+                    if (consumer % 2 == 0) {
+                        assertThat(engine.adjust("p2", 1).isSuccess()).isTrue();
+                        moved.merge("added", 1, Integer::sum);
+                    } else if (engine.reserve("order-" + consumer + "-" + i, List.of(new OrderItem("p2", 1, 10.0))).isSuccess()) {
+                        moved.merge("reserved", 1, Integer::sum);
+                    }
+                }
+                return moved;
+            });
+        }
+
+        Map<String, Integer> moved = runAll(tasks, start);
+
+        int reserved = counter("p2", "reservedQuantity");
+        assertThat(reserved).isEqualTo(moved.getOrDefault("reserved", 0));
+        assertThat(counter("p2", "availableQuantity") + reserved).isEqualTo(40 + moved.get("added"));
+    }
+
+    @Test
+    void adjustmentNeverTakesStockBelowZero() {
+        assertThat(engine.adjust("p3", -8).getReason()).isEqualTo(ReservationResult.INSUFFICIENT_STOCK);
+        assertThat(engine.adjust("missing", 1).getReason()).isEqualTo(ReservationResult.NOT_FOUND);
+        assertThat(engine.adjust("p3", -7).isSuccess()).isTrue();
+        assertThat(counter("p3", "availableQuantity")).isZero();
+    }
+
+    private static Map<String, Integer> runAll(List<Callable<Map<String, Integer>>> tasks, CountDownLatch start)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<Future<Map<String, Integer>>> futures = new ArrayList<>();
+            tasks.forEach(task -> futures.add(executor.submit(task)));
+            start.countDown();
+            Map<String, Integer> total = new HashMap<>();
+            for (Future<Map<String, Integer>> future : futures) {
+                future.get().forEach((productId, quantity) -> total.merge(productId, quantity, Integer::sum));
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int counter(String productId, String field) {
+        Object value = redisTemplate.opsForHash().get(RedisReservationEngine.PRODUCT_KEY_PREFIX + productId, field);
+        return Integer.parseInt(String.valueOf(value));
+    }
+}
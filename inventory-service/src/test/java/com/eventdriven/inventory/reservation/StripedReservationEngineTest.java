@@ -0,0 +1,218 @@
+package com.eventdriven.inventory.reservation;
+
+import com.eventdriven.inventory.cache.ProductNearCache;
+import com.eventdriven.shared.dto.OrderItem;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link StripedReservationEngine} against jedis-mock, flushed only on demand: stock
+ * adjustments and edits of the product hash made outside the engine must combine with
+ * reservations not flushed yet instead of overwriting them, and a redelivered order must be
+ * reserved once whether it arrives concurrently, after a restart or after it was settled.
+ */
+class StripedReservationEngineTest {
+
+    private static final String PRODUCT_KEY = RedisReservationEngine.PRODUCT_KEY_PREFIX + "p1";
+
+    private RedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private StripedReservationEngine engine;
+
+    @BeforeEach
+    void startRedis() throws Exception {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()),
+                LettuceClientConfiguration.builder()
+                        // jedis-mock does not implement HELLO, so skip the RESP3 handshake
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        engine = newEngine();
+
+        redisTemplate.opsForHash().putAll(PRODUCT_KEY,
+                Map.of("productId", "p1", "availableQuantity", "10", "reservedQuantity", "0"));
+    }
+
+    @AfterEach
+    void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void adjustmentIsWrittenBehindWithReservations() {
+        assertThat(engine.reserve("order-1", List.of(new OrderItem("p1", 4, 10.0))).isSuccess()).isTrue();
+        assertThat(engine.adjust("p1", -7).getReason()).isEqualTo(ReservationResult.INSUFFICIENT_STOCK);
+        assertThat(engine.adjust("p1", 5).isSuccess()).isTrue();
+
+        engine.shutdown();
+
+        assertThat(counter("availableQuantity")).isEqualTo(11);
+        assertThat(counter("reservedQuantity")).isEqualTo(4);
+    }
+
+    @Test
+    void invalidateKeepsUnflushedReservationsAndExternalEdits() {
+        assertThat(engine.reserve("order-1", List.of(new OrderItem("p1", 4, 10.0))).isSuccess()).isTrue();
+        // Bulk import style edit straight on the hash
+        redisTemplate.opsForHash().increment(PRODUCT_KEY, "availableQuantity", 20);
+
+        engine.invalidate("p1");
+
+        assertThat(counter("availableQuantity")).isEqualTo(26);
+        assertThat(counter("reservedQuantity")).isEqualTo(4);
+        // The counter now includes the edit: all 26 can be reserved, no more
+        assertThat(engine.reserve("order-2", List.of(new OrderItem("p1", 27, 10.0))).isSuccess()).isFalse();
+        assertThat(engine.reserve("order-3", List.of(new OrderItem("p1", 26, 10.0))).isSuccess()).isTrue();
+        engine.shutdown();
+        assertThat(counter("availableQuantity")).isZero();
+        assertThat(counter("reservedQuantity")).isEqualTo(30);
+    }
+
+    @Test
+    void setAvailableKeepsUnflushedReservations() {
+        assertThat(engine.reserve("order-1", List.of(new OrderItem("p1", 4, 10.0))).isSuccess()).isTrue();
+        // Redis still says 10 available; the engine knows 6
+        assertThat(engine.setAvailable("p1", 20).isSuccess()).isTrue();
+        assertThat(engine.setAvailable("p1", -1).isSuccess()).isFalse();
+
+        engine.shutdown();
+
+        assertThat(counter("availableQuantity")).isEqualTo(20);
+        assertThat(counter("reservedQuantity")).isEqualTo(4);
+    }
+
+    @Test
+    void deltasOfADeletedProductDoNotReachItsSuccessor() {
+        assertThat(engine.reserve("order-1", List.of(new OrderItem("p1", 4, 10.0))).isSuccess()).isTrue();
+        redisTemplate.delete(PRODUCT_KEY);
+
+        // As createProduct does before saving the new product
+        engine.discard("p1");
+        redisTemplate.opsForHash().putAll(PRODUCT_KEY,
+                Map.of("productId", "p1", "availableQuantity", "3", "reservedQuantity", "0"));
+        // Discarding a product that exists keeps its counter
+        assertThat(engine.reserve("order-2", List.of(new OrderItem("p1", 1, 10.0))).isSuccess()).isTrue();
+        engine.discard("p1");
+        engine.shutdown();
+
+        assertThat(counter("availableQuantity")).isEqualTo(2);
+        assertThat(counter("reservedQuantity")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRedeliveriesReserveOnce() throws Exception {
+        List<OrderItem> items = List.of(new OrderItem("p1", 3, 10.0));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> deliveries = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                deliveries.add(executor.submit(() -> {
+                    start.await();
+                    return engine.reserve("order-1", items).isSuccess();
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> delivery : deliveries) {
+                assertThat(delivery.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        engine.shutdown();
+
+        assertThat(counter("availableQuantity")).isEqualTo(7);
+        assertThat(counter("reservedQuantity")).isEqualTo(3);
+    }
+
+    @Test
+    void orderRedeliveredAfterRestartIsNotReservedAgain() {
+        List<OrderItem> items = List.of(new OrderItem("p1", 4, 10.0));
+        assertThat(engine.reserve("order-1", items).isSuccess()).isTrue();
+        engine.shutdown();
+
+        StripedReservationEngine restarted = newEngine();
+        assertThat(restarted.reserve("order-1", items).isSuccess()).isTrue();
+        restarted.shutdown();
+
+        assertThat(counter("availableQuantity")).isEqualTo(6);
+        assertThat(counter("reservedQuantity")).isEqualTo(4);
+    }
+
+    @Test
+    void settledOrderIsNotReservedAgain() {
+        List<OrderItem> items = List.of(new OrderItem("p1", 4, 10.0));
+        assertThat(engine.reserve("order-1", items).isSuccess()).isTrue();
+        assertThat(engine.commitOrder("order-1")).containsExactly("p1");
+        assertThat(engine.reserve("order-1", items).isSuccess()).isTrue();
+        engine.shutdown();
+
+        // Once the tombstone is flushed, a restarted instance finds it in Redis
+        StripedReservationEngine restarted = newEngine();
+        assertThat(restarted.reserve("order-1", items).isSuccess()).isTrue();
+        assertThat(restarted.releaseOrder("order-1")).isEmpty();
+        restarted.shutdown();
+
+        assertThat(counter("availableQuantity")).isEqualTo(6);
+        assertThat(counter("reservedQuantity")).isZero();
+        assertThat(redisTemplate.getExpire(RedisReservationEngine.LEDGER_KEY_PREFIX + "order-1")).isPositive();
+    }
+
+    @Test
+    void sweepGoesOnPastExpiredEntriesWithNothingToRelease() {
+        StripedReservationEngine expiring = new StripedReservationEngine(redisTemplate, Duration.ofMillis(1), 8, 3_600_000);
+        for (int i = 1; i <= 3; i++) {
+            assertThat(expiring.reserve("order-" + i, List.of(new OrderItem("p1", 2, 10.0))).isSuccess()).isTrue();
+        }
+        expiring.shutdown();
+        // Released in memory; its expiry entry stays until the next flush
+        assertThat(engine.releaseOrder("order-1")).containsExactly("p1");
+
+        ReservationExpirySweeper sweeper = new ReservationExpirySweeper(engine, mock(ProductNearCache.class),
+                new SimpleMeterRegistry(), Duration.ofHours(1), 1);
+        int released = sweeper.sweep();
+        sweeper.shutdown();
+        engine.shutdown();
+
+        assertThat(released).isEqualTo(2);
+        assertThat(counter("availableQuantity")).isEqualTo(10);
+        assertThat(counter("reservedQuantity")).isZero();
+    }
+
+    private StripedReservationEngine newEngine() {
+        // Long interval: the tests decide when deltas reach Redis
+        return new StripedReservationEngine(redisTemplate, Duration.ofMinutes(15), 8, 3_600_000);
+    }
+
+    private int counter(String field) {
+        return Integer.parseInt(String.valueOf(redisTemplate.opsForHash().get(PRODUCT_KEY, field)));
+    }
+}
@@ -0,0 +1,182 @@
+package com.eventdriven.inventory.service;
+
+import com.eventdriven.inventory.cache.ProductNearCache;
+import com.eventdriven.inventory.dto.BulkImportResult;
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.inventory.repository.ProductStore;
+import com.eventdriven.inventory.reservation.RedisReservationEngine;
+import com.eventdriven.inventory.reservation.ReservationEngine;
+import com.eventdriven.inventory.reservation.ReservationResult;
+import com.eventdriven.inventory.reservation.StripedReservationEngine;
+import com.eventdriven.shared.dto.OrderItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link BulkImportService} against jedis-mock with both reservation engines: every row must
+ * be checked against the stock at the moment it is written, including reservations made
+ * after the import started and reservations the in-memory engine has not flushed yet, and a
+ * create must never overwrite a product that exists.
+ */
+class BulkImportServiceTest {
+
+    private static final String HEADER = "op,productId,quantity,name,description,price,category\n";
+    private static final String PRODUCT_KEY = "product:p1";
+
+    private RedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private AnnotationConfigApplicationContext context;
+    private StringRedisTemplate redisTemplate;
+    private ProductRepository productRepository;
+    private ProductNearCache nearCache;
+
+    @BeforeEach
+    void startRedis() throws Exception {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()),
+                LettuceClientConfiguration.builder()
+                        // jedis-mock does not implement HELLO, so skip the RESP3 handshake
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("redisConnectionFactory", connectionFactory);
+        context.register(RepositoryConfiguration.class);
+        context.refresh();
+        redisTemplate = context.getBean(StringRedisTemplate.class);
+        productRepository = context.getBean(ProductRepository.class);
+        nearCache = new ProductNearCache(productRepository, redisTemplate, new SimpleMeterRegistry(),
+                false, 100, Duration.ofSeconds(30), 100);
+    }
+
+    @AfterEach
+    void stopRedis() throws Exception {
+        nearCache.shutdown();
+        context.close();
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void adjustmentSeesReservationMadeAfterTheImportStarted() throws Exception {
+        RedisReservationEngine engine = new RedisReservationEngine(redisTemplate, Duration.ofMinutes(15)) {
+            @Override
+            public List<ReservationResult> adjustAll(List<Adjustment> adjustments) {
+                // Lands after the rows were read and before they are written
+                assertThat(reserve("order-1", List.of(new OrderItem("p1", 8, 10.0))).isSuccess()).isTrue();
+                return super.adjustAll(adjustments);
+            }
+        };
+        BulkImportService importer = importer(engine);
+        importCsv(importer, "CREATE,p1,10,Lamp,,9.5,home\n");
+
+        BulkImportResult result = importCsv(importer, "ADJUST,p1,-5\nADJUST,p1,-3\n");
+
+        assertThat(result.getApplied()).isEqualTo(0);
+        assertThat(result.getErrors()).containsExactly(
+                "line 2: insufficient stock for product: p1", "line 3: insufficient stock for product: p1");
+        assertThat(counter("availableQuantity")).isEqualTo(2);
+        assertThat(counter("reservedQuantity")).isEqualTo(8);
+    }
+
+    @Test
+    void adjustmentSeesReservationsNotFlushedYet() throws Exception {
+        StripedReservationEngine engine = new StripedReservationEngine(redisTemplate, Duration.ofMinutes(15), 8, 3_600_000);
+        BulkImportService importer = importer(engine);
+        importCsv(importer, "CREATE,p1,10,Lamp,,9.5,home\n");
+        assertThat(engine.reserve("order-1", List.of(new OrderItem("p1", 8, 10.0))).isSuccess()).isTrue();
+        // Only in memory so far
+        assertThat(counter("availableQuantity")).isEqualTo(10);
+
+        BulkImportResult result = importCsv(importer, "ADJUST,p1,-5\nADJUST,p1,-2\n");
+        engine.shutdown();
+
+        assertThat(result.getApplied()).isEqualTo(1);
+        assertThat(result.getErrors()).containsExactly("line 2: insufficient stock for product: p1");
+        assertThat(counter("availableQuantity")).isZero();
+        assertThat(counter("reservedQuantity")).isEqualTo(8);
+    }
+
+    @Test
+    void createNeverOverwritesAnExistingProduct() throws Exception {
+        BulkImportService importer = importer(new RedisReservationEngine(redisTemplate, Duration.ofMinutes(15)));
+        importCsv(importer, "CREATE,p1,10,Lamp,,9.5,home\n");
+        assertThat(new RedisReservationEngine(redisTemplate, Duration.ofMinutes(15))
+                .reserve("order-1", List.of(new OrderItem("p1", 4, 10.0))).isSuccess()).isTrue();
+
+        BulkImportResult result = importCsv(importer,
+                "CREATE,p1,50,Chair,,20.0,office\nCREATE,p2,5,Desk,,99.0,office\nCREATE,p2,7,Desk,,99.0,office\n");
+
+        assertThat(result.getApplied()).isEqualTo(1);
+        assertThat(result.getErrors()).containsExactly(
+                "line 2: product already exists: p1", "line 4: product already exists: p2");
+        Product p1 = productRepository.findById("p1").orElseThrow();
+        assertThat(p1.getName()).isEqualTo("Lamp");
+        assertThat(p1.getAvailableQuantity()).isEqualTo(6);
+        assertThat(p1.getReservedQuantity()).isEqualTo(4);
+        assertThat(productRepository.findByCategory("office")).extracting(Product::getProductId).containsExactly("p2");
+        assertThat(productRepository.findById("p2").orElseThrow().getAvailableQuantity()).isEqualTo(5);
+    }
+
+    private BulkImportService importer(ReservationEngine engine) {
+        ProductStore productStore = new ProductStore(redisTemplate, context.getBean(RedisConverter.class));
+        BulkImportService importer = new BulkImportService(productStore, engine, nearCache, new ObjectMapper(),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(importer, "chunkSize", 1000);
+        return importer;
+    }
+
+    private static BulkImportResult importCsv(BulkImportService importer, String rows) throws Exception {
+        return importer.importCsv(new ByteArrayInputStream((HEADER + rows).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private int counter(String field) {
+        return Integer.parseInt(String.valueOf(redisTemplate.opsForHash().get(PRODUCT_KEY, field)));
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableRedisRepositories(basePackageClasses = ProductRepository.class)
+    static class RepositoryConfiguration {
+
+        @Bean
+        public RedisTemplate<?, ?> redisTemplate(RedisConnectionFactory connectionFactory) {
+            RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+            template.setConnectionFactory(connectionFactory);
+            return template;
+        }
+
+        @Bean
+        public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.eventdriven.inventory.service;
+
+import com.eventdriven.inventory.cache.ProductNearCache;
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.inventory.repository.ProductStore;
+import com.eventdriven.inventory.reservation.ReservationEngine;
+import com.eventdriven.inventory.reservation.ReservationResult;
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
+import com.eventdriven.shared.events.OrderCreatedEvent;
+import com.eventdriven.shared.kafka.EventPublisher;
+import com.eventdriven.shared.kafka.RetryTopology;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisKeyValueTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The batch order listener with a mocked engine and publisher: each order of a poll gets one
+ * outcome, and a transient failure goes back to the container for the retry tiers rather
+ * than failing the orders.
+ */
+class InventoryServiceBatchListenerTest {
+
+    private ReservationEngine reservationEngine;
+    private EventPublisher eventPublisher;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        reservationEngine = mock(ReservationEngine.class);
+        eventPublisher = mock(EventPublisher.class);
+        when(eventPublisher.publish(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        RetryTopology retryTopology = mock(RetryTopology.class);
+        when(retryTopology.isEnabled()).thenReturn(true);
+        inventoryService = new InventoryService(mock(ProductRepository.class), mock(ProductStore.class),
+                reservationEngine, mock(ProductNearCache.class), eventPublisher, new SimpleMeterRegistry(),
+                retryTopology, mock(RedisKeyValueTemplate.class));
+    }
+
+    @Test
+    void orderAppearingTwiceInAPollIsAnnouncedOnce() {
+        when(reservationEngine.reserveAll(anyMap())).thenReturn(Map.of(
+                "order-1", ReservationResult.success(), "order-2", ReservationResult.success()));
+
+        inventoryService.handleOrderCreatedEvents(List.of(event("order-1"), event("order-2"), event("order-1")));
+
+        verify(eventPublisher, times(1)).publish(eq("inventory-result-events"), eq("order-1"),
+                any(InventoryReservationResultEvent.class));
+        verify(eventPublisher, times(1)).publish(eq("inventory-result-events"), eq("order-2"),
+                any(InventoryReservationResultEvent.class));
+    }
+
+    @Test
+    void transientFailureIsHandedToTheContainerWithoutFailingOrders() {
+        when(reservationEngine.reserveAll(anyMap())).thenThrow(new QueryTimeoutException("Redis timed out"));
+
+        assertThatThrownBy(() -> inventoryService.handleOrderCreatedEvents(List.of(event("order-1"), event("order-2"))))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, e -> assertThat(e.getIndex()).isZero());
+
+        verify(eventPublisher, never()).publish(eq("inventory-result-events"), anyString(), any());
+        verify(reservationEngine, never()).releaseOrder(anyString());
+    }
+
+    private static OrderCreatedEvent event(String orderId) {
+        return new OrderCreatedEvent(orderId, "customer-1", List.of(new OrderItem("p1", 1, 10.0)),
+                10.0, "1 Main St", "CREDIT_CARD");
+    }
+}
@@ -0,0 +1,117 @@
+package com.eventdriven.loadtest;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows each order from the time it was meant to be sent until it has been through every
+ * service: notification-service has persisted {@code ORDER_CREATED}, inventory-service has
+ * published its reservation outcome ({@code INVENTORY_RESULT}, see
+ * {@link InventoryOutcomeProbe}), and for orders of a product without stock
+ * notification-service has persisted {@code INVENTORY_UNAVAILABLE} as well.
+ * <p>
+ * Notifications can be persisted before the order's POST returns; they are held until the
+ * order is accepted. Latencies of measured orders go to the recorders, per stock outcome
+ * and overall.
+ */
+final class DeliveryTracker {
+
+    static final String ORDER_CREATED = "ORDER_CREATED";
+    static final String INVENTORY_UNAVAILABLE = "INVENTORY_UNAVAILABLE";
+    static final String INVENTORY_RESULT = "INVENTORY_RESULT";
+
+    private final Map<String, Delivery> deliveries = new ConcurrentHashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong lastCompletedNanos = new AtomicLong();
+    private final LatencyRecorder all = new LatencyRecorder();
+    private final LatencyRecorder inStock = new LatencyRecorder();
+    private final LatencyRecorder outOfStock = new LatencyRecorder();
+
+    /**
+     * The order's POST returned its id.
+     *
+     * @param startNanos {@link System#nanoTime} the order was scheduled for, so time spent
+     *                   queued in the generator counts against the platform
+     * @param measured   false for warmup orders, which are followed but not recorded
+     */
+    void accepted(String orderId, long startNanos, boolean outOfStockOrder, boolean measured) {
+        if (measured) {
+            outstanding.incrementAndGet();
+        }
+        Delivery delivery = deliveries.computeIfAbsent(orderId, id -> new Delivery());
+        synchronized (delivery) {
+            delivery.startNanos = startNanos;
+            delivery.outOfStock = outOfStockOrder;
+            delivery.measured = measured;
+            delivery.pending = new HashSet<>(outOfStockOrder
+                    ? Set.of(ORDER_CREATED, INVENTORY_RESULT, INVENTORY_UNAVAILABLE)
+                    : Set.of(ORDER_CREATED, INVENTORY_RESULT));
+            delivery.pending.removeAll(delivery.early);
+            if (delivery.pending.isEmpty()) {
+                complete(orderId, delivery);
+            }
+        }
+    }
+
+    /** notification-service persisted a notification of the order, or inventory-service its outcome. */
+    void persisted(String orderId, String type, long nanos) {
+        Delivery delivery = deliveries.computeIfAbsent(orderId, id -> new Delivery());
+        synchronized (delivery) {
+            delivery.lastNanos = Math.max(delivery.lastNanos, nanos);
+            if (delivery.pending == null) {
+                delivery.early.add(type);
+            } else if (delivery.pending.remove(type) && delivery.pending.isEmpty()) {
+                complete(orderId, delivery);
+            }
+        }
+    }
+
+    /** Measured orders accepted but not yet complete. */
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    /** {@link System#nanoTime} the last measured order completed at, or 0 if none has. */
+    long lastCompletedNanos() {
+        return lastCompletedNanos.get();
+    }
+
+    LatencyRecorder all() {
+        return all;
+    }
+
+    LatencyRecorder inStock() {
+        return inStock;
+    }
+
+    LatencyRecorder outOfStock() {
+        return outOfStock;
+    }
+
+    private void complete(String orderId, Delivery delivery) {
+        deliveries.remove(orderId);
+        if (!delivery.measured) {
+            return;
+        }
+        long latency = delivery.lastNanos - delivery.startNanos;
+        all.record(latency);
+        (delivery.outOfStock ? outOfStock : inStock).record(latency);
+        lastCompletedNanos.accumulateAndGet(delivery.lastNanos, Math::max);
+        outstanding.decrementAndGet();
+    }
+
+    /** Guarded by its own monitor. */
+    private static final class Delivery {
+
+        private final Set<String> early = new HashSet<>();
+        private Set<String> pending;
+        private long startNanos;
+        private long lastNanos;
+        private boolean outOfStock;
+        private boolean measured;
+    }
+}
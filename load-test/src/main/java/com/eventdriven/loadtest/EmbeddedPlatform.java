@@ -0,0 +1,257 @@
+package com.eventdriven.loadtest;
+
+import com.eventdriven.inventory.InventoryServiceApplication;
+import com.eventdriven.inventory.model.Product;
+import com.eventdriven.inventory.repository.ProductRepository;
+import com.eventdriven.notification.NotificationServiceApplication;
+import com.eventdriven.order.OrderServiceApplication;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaZKBroker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * order-, inventory- and notification-service started in this JVM, each with its own
+ * application.yml, against an embedded Kafka broker and the in-process Redis stand-in
+ * (jedis-mock) unless existing ones are given. The services get random HTTP ports, no
+ * service discovery and WARN logging; any service property can be overridden from the
+ * command line (see {@link LoadTestOptions}).
+ * <p>
+ * With the stand-in the order outbox is off by default and orders are published straight
+ * to Kafka: the stand-in is not a faithful host for the relay's stream consumer group.
+ * Pass {@code --order.outbox.enabled=true} with {@code --redis} to measure it.
+ */
+final class EmbeddedPlatform implements AutoCloseable {
+
+    static final String OUT_OF_STOCK_PRODUCT = "out-of-stock";
+
+    private static final List<String> TOPICS = List.of("order-events", "inventory-events", "inventory-result-events",
+            "inventory-rollback-events", "payment-events");
+    private static final int STOCK = 1_000_000_000;
+    private static final Duration ASSIGNMENT_TIMEOUT = Duration.ofSeconds(60);
+
+    private final List<ConfigurableApplicationContext> services = new ArrayList<>();
+    private EmbeddedKafkaBroker broker;
+    private RedisServer redisServer;
+    private ConfigurableApplicationContext orderService;
+    private ConfigurableApplicationContext inventoryService;
+    private Admin admin;
+
+    static EmbeddedPlatform start(LoadTestOptions options, DeliveryTracker tracker) {
+        EmbeddedPlatform platform = new EmbeddedPlatform();
+        try {
+            platform.startServices(options, tracker);
+            return platform;
+        } catch (RuntimeException e) {
+            platform.close();
+            throw e;
+        }
+    }
+
+    private void startServices(LoadTestOptions options, DeliveryTracker tracker) {
+        String bootstrapServers = options.kafka();
+        if (bootstrapServers == null) {
+            broker = new EmbeddedKafkaZKBroker(1, false, options.partitions(), TOPICS.toArray(String[]::new));
+            broker.afterPropertiesSet();
+            bootstrapServers = broker.getBrokersAsString();
+        }
+
+        String redisHost;
+        int redisPort;
+        if (options.redis() == null) {
+            try {
+                redisServer = RedisServer.newRedisServer().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start the Redis stand-in", e);
+            }
+            redisHost = redisServer.getHost();
+            redisPort = redisServer.getBindPort();
+        } else {
+            int separator = options.redis().lastIndexOf(':');
+            redisHost = options.redis().substring(0, separator);
+            redisPort = Integer.parseInt(options.redis().substring(separator + 1));
+        }
+
+        admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.kafka.bootstrap-servers", bootstrapServers);
+        properties.put("spring.data.redis.host", redisHost);
+        properties.put("spring.data.redis.port", String.valueOf(redisPort));
+        properties.put("server.port", "0");
+        properties.put("eureka.client.enabled", "false");
+        properties.put("spring.cloud.discovery.enabled", "false");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.eventdriven", "WARN");
+        properties.put("logging.level.org.springframework.kafka", "WARN");
+        if (redisServer != null) {
+            properties.put("order.outbox.enabled", "false");
+        }
+        for (String arg : options.serviceArgs()) {
+            int separator = arg.indexOf('=');
+            properties.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        // Consumers first, so they are assigned before the first order is published
+        services.add(start(NotificationServiceApplication.class, "notification-service", properties,
+                context -> context.getBeanFactory().addBeanPostProcessor(new NotificationProbe(tracker))));
+        inventoryService = start(InventoryServiceApplication.class, "inventory-service", properties,
+                context -> context.getBeanFactory().addBeanPostProcessor(new InventoryOutcomeProbe(tracker)));
+        services.add(inventoryService);
+        orderService = start(OrderServiceApplication.class, "order-service", properties, context -> {
+        });
+        services.add(orderService);
+        services.forEach(EmbeddedPlatform::awaitAssignments);
+    }
+
+    private ConfigurableApplicationContext start(Class<?> application, String name, Map<String, String> properties,
+            ApplicationContextInitializer<ConfigurableApplicationContext> initializer) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.location=" + configLocation(name));
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(application).initializers(initializer);
+        if (redisServer != null) {
+            builder.initializers(context -> context.getBeanFactory().registerSingleton("standInLettuceCustomizer",
+                    (LettuceClientConfigurationBuilderCustomizer) lettuce -> lettuce.clientOptions(ClientOptions.builder()
+                            // The stand-in does not implement HELLO, so skip the RESP3 handshake
+                            .protocolVersion(ProtocolVersion.RESP2)
+                            .build())));
+        }
+        System.out.printf("Starting %s%n", name);
+        return builder.run(args.toArray(String[]::new));
+    }
+
+    /** Puts {@code products} products in stock and one without stock. */
+    void seedProducts(int products) {
+        ProductRepository repository = inventoryService.getBean(ProductRepository.class);
+        List<Product> catalog = new ArrayList<>(IntStream.range(0, products)
+                .mapToObj(i -> new Product(productId(i), "Product " + i, "Load test product", STOCK, 10.0, "load-test"))
+                .toList());
+        catalog.add(new Product(OUT_OF_STOCK_PRODUCT, "Sold out", "Load test product", 0, 10.0, "load-test"));
+        repository.saveAll(catalog);
+    }
+
+    static String productId(int index) {
+        return "product-" + index;
+    }
+
+    URI ordersUri() {
+        int port = ((WebServerApplicationContext) orderService).getWebServer().getPort();
+        return URI.create("http://localhost:" + port + "/orders");
+    }
+
+    /**
+     * Records notification-service's group has not committed yet, summed over the partitions
+     * it has committed on, as the broker reports them. The {@code event.consumer.lag} gauges
+     * are set right after each commit, so they read zero whenever the group keeps up.
+     */
+    long notificationLag() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets("notification-service")
+                    .partitionsToOffsetAndMetadata().get();
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            committed.keySet().forEach(partition -> latest.put(partition, OffsetSpec.latest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(latest).all().get();
+            long lag = 0;
+            for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : committed.entrySet()) {
+                lag += Math.max(0, ends.get(entry.getKey()).offset() - entry.getValue().offset());
+            }
+            return lag;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted reading the notification lag", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not read the notification lag", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = services.size() - 1; i >= 0; i--) {
+            services.get(i).close();
+        }
+        if (admin != null) {
+            admin.close();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+        if (redisServer != null) {
+            try {
+                redisServer.stop();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not stop the Redis stand-in", e);
+            }
+        }
+    }
+
+    /**
+     * The application.yml whose {@code spring.application.name} is {@code name}. Every
+     * service jar has one at the same path, so the classpath location alone would give all
+     * three services the same file.
+     */
+    private static String configLocation(String name) {
+        try {
+            YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:application.yml")) {
+                for (PropertySource<?> source : loader.load(resource.getDescription(), resource)) {
+                    if (name.equals(source.getProperty("spring.application.name"))) {
+                        return resource.getURL().toString();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the services' application.yml", e);
+        }
+        throw new IllegalStateException("No application.yml of " + name + " on the classpath");
+    }
+
+    private static void awaitAssignments(ConfigurableApplicationContext service) {
+        long deadline = System.nanoTime() + ASSIGNMENT_TIMEOUT.toNanos();
+        for (MessageListenerContainer container : service.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers()) {
+            while (container.isRunning() && container.getAssignedPartitions().isEmpty()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Listener " + container.getListenerId() + " of "
+                            + service.getId() + " got no partitions within " + ASSIGNMENT_TIMEOUT);
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for partition assignment", e);
+                }
+            }
+        }
+    }
+}
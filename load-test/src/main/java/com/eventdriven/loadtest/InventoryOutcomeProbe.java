@@ -0,0 +1,45 @@
+package com.eventdriven.loadtest;
+
+import com.eventdriven.shared.kafka.EventPublisher;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reports to the {@link DeliveryTracker} every reservation outcome inventory-service's
+ * {@link EventPublisher} got acknowledged on {@code inventory-result-events}, successful or
+ * not. notification-service skips successful outcomes without decoding them, so without
+ * this probe an in-stock order would complete before inventory-service has handled it.
+ */
+final class InventoryOutcomeProbe implements BeanPostProcessor {
+
+    static final String TOPIC = "inventory-result-events";
+
+    private final DeliveryTracker tracker;
+
+    InventoryOutcomeProbe(DeliveryTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof EventPublisher)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            Object[] arguments = invocation.getArguments();
+            if (invocation.getMethod().getName().equals("publish") && arguments.length == 3
+                    && TOPIC.equals(arguments[0]) && arguments[1] instanceof String orderId
+                    && result instanceof CompletableFuture<?> send) {
+                send.thenRun(() -> tracker.persisted(orderId, DeliveryTracker.INVENTORY_RESULT, System.nanoTime()));
+            }
+            return result;
+        });
+        return proxyFactory.getProxy(EventPublisher.class.getClassLoader());
+    }
+}
@@ -0,0 +1,27 @@
+package com.eventdriven.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Consumer lag sampled through a run, in records. */
+final class LagSamples {
+
+    private long samples;
+    private long total;
+    private long max;
+
+    synchronized void record(long lag) {
+        samples++;
+        total += lag;
+        max = Math.max(max, lag);
+    }
+
+    /** Sample count, mean and maximum, in a stable order for printing and JSON. */
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("samples", samples);
+        summary.put("mean", samples == 0 ? 0.0 : (double) total / samples);
+        summary.put("max", max);
+        return summary;
+    }
+}
@@ -0,0 +1,50 @@
+package com.eventdriven.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects every latency of a run, so percentiles are exact rather than bucketed. A run of
+ * an hour at a thousand orders per second takes under 30 MB.
+ */
+final class LatencyRecorder {
+
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private long[] nanos = new long[1024];
+    private int count;
+
+    synchronized void record(long latencyNanos) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = latencyNanos;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /** Count, percentiles and maximum in milliseconds, in a stable order for printing and JSON. */
+    synchronized Map<String, Object> summary() {
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            summary.put(PERCENTILE_NAMES[i], millis(sorted, PERCENTILES[i]));
+        }
+        summary.put("max", count == 0 ? 0.0 : sorted[count - 1] / 1e6);
+        return summary;
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,113 @@
+package com.eventdriven.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the order flow: order-service, inventory-service and
+ * notification-service in one JVM against embedded Kafka and a Redis stand-in, driven
+ * with an open-loop stream of orders over HTTP. Each order's latency runs from the time it
+ * was due to be sent until notification-service has persisted every notification expected
+ * for it and inventory-service has published its reservation outcome (see
+ * {@link DeliveryTracker}).
+ * <p>
+ * Usage: {@code java -jar load-test/target/load-test-1.0.0-exec.jar --rate=500 --duration=60s};
+ * see {@link LoadTestOptions} for the options.
+ */
+public final class LoadTest {
+
+    private static final long LAG_SAMPLE_MS = 250;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        DeliveryTracker tracker = new DeliveryTracker();
+        Map<String, Object> report;
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        try (EmbeddedPlatform platform = EmbeddedPlatform.start(options, tracker)) {
+            platform.seedProducts(options.products());
+            System.out.printf("Sending %d orders/s: %s warmup, %s measured%n",
+                    options.rate(), options.warmup(), options.duration());
+            LagSamples lag = new LagSamples();
+            sampler.scheduleAtFixedRate(() -> lag.record(platform.notificationLag()),
+                    options.warmup().toMillis(), LAG_SAMPLE_MS, TimeUnit.MILLISECONDS);
+            OpenLoopDriver.Result result = new OpenLoopDriver(platform.ordersUri(), options, tracker).run();
+            drain(tracker, options);
+            sampler.shutdownNow();
+            report = report(options, result, tracker, lag);
+        } finally {
+            sampler.shutdownNow();
+        }
+        print(report);
+        if (options.report() != null) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(options.report()), report);
+            System.out.println("Report written to " + options.report());
+        }
+        // Kafka and Lettuce leave non-daemon threads behind
+        System.exit(tracker.outstanding() == 0 ? 0 : 1);
+    }
+
+    private static void drain(DeliveryTracker tracker, LoadTestOptions options) {
+        long deadline = System.nanoTime() + options.drainTimeout().toNanos();
+        while (tracker.outstanding() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(10_000_000);
+        }
+    }
+
+    private static Map<String, Object> report(LoadTestOptions options, OpenLoopDriver.Result result,
+            DeliveryTracker tracker, LagSamples notificationLag) {
+        int completed = tracker.all().count();
+        // Orders sent near the end complete after the window, so the platform had longer than the duration
+        long elapsedNanos = Math.max(options.duration().toNanos(), tracker.lastCompletedNanos() - result.measureFrom());
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("offeredRate", options.rate());
+        report.put("duration", options.duration().toString());
+        report.put("serviceArgs", options.serviceArgs());
+        report.put("sent", result.sent());
+        report.put("failed", result.failed());
+        report.put("completed", completed);
+        report.put("incomplete", tracker.outstanding());
+        report.put("completedRate", completed / (elapsedNanos / 1e9));
+        report.put("endToEnd", tracker.all().summary());
+        report.put("endToEndInStock", tracker.inStock().summary());
+        report.put("endToEndOutOfStock", tracker.outOfStock().summary());
+        report.put("postResponse", result.responses().summary());
+        report.put("notificationLag", notificationLag.summary());
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.println();
+        System.out.printf("Offered      %d orders/s for %s%n", report.get("offeredRate"), report.get("duration"));
+        System.out.printf("Completed    %.1f orders/s%n", (Double) report.get("completedRate"));
+        System.out.printf("Orders       %d sent, %d failed, %d completed, %d incomplete%n",
+                report.get("sent"), report.get("failed"), report.get("completed"), report.get("incomplete"));
+        System.out.println();
+        System.out.printf("%-24s %8s %9s %9s %9s %9s %9s%n", "Latency (ms)", "count", "p50", "p90", "p99", "p99.9", "max");
+        printRow("end to end", (Map<String, Object>) report.get("endToEnd"));
+        printRow("  in stock", (Map<String, Object>) report.get("endToEndInStock"));
+        printRow("  out of stock", (Map<String, Object>) report.get("endToEndOutOfStock"));
+        printRow("POST /orders response", (Map<String, Object>) report.get("postResponse"));
+        Map<String, Object> lag = (Map<String, Object>) report.get("notificationLag");
+        System.out.println();
+        System.out.printf("Notification lag (records, sampled every %d ms): mean %.1f, max %d%n",
+                LAG_SAMPLE_MS, lag.get("mean"), lag.get("max"));
+    }
+
+    private static void printRow(String name, Map<String, Object> summary) {
+        System.out.printf("%-24s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, summary.get("count"),
+                summary.get("p50"), summary.get("p90"), summary.get("p99"), summary.get("p99.9"), summary.get("max"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.eventdriven.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load test. Options are {@code --name=value}; any other
+ * {@code --property=value} is passed to all three services, so their settings can be
+ * changed per run (for example
+ * {@code --spring.kafka.producer.properties.event.codec.format=binary}).
+ *
+ * @param rate             orders per second sent, regardless of how fast they complete
+ * @param warmup           time sent before measuring, not counted in the results
+ * @param duration         time measured after the warmup
+ * @param drainTimeout     time to wait for measured orders to complete after sending stops
+ * @param products         products in stock that orders pick from
+ * @param customers        customers that orders pick from
+ * @param outOfStockRatio  share of orders for a product without stock
+ * @param partitions       partitions of each main topic on the embedded broker
+ * @param kafka            bootstrap servers of an existing cluster instead of the embedded broker, or {@code null}
+ * @param redis            {@code host:port} of an existing Redis instead of the stand-in, or {@code null}
+ * @param report           file to write the results to as JSON, or {@code null}
+ * @param serviceArgs      properties passed to every service
+ */
+record LoadTestOptions(int rate, Duration warmup, Duration duration, Duration drainTimeout, int products,
+        int customers, double outOfStockRatio, int partitions, String kafka, String redis, String report,
+        List<String> serviceArgs) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> serviceArgs = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, separator);
+            if (name.contains(".")) {
+                serviceArgs.add(arg);
+            } else {
+                options.put(name, arg.substring(separator + 1));
+            }
+        }
+        LoadTestOptions parsed = new LoadTestOptions(
+                Integer.parseInt(take(options, "rate", "200")),
+                DurationStyle.detectAndParse(take(options, "warmup", "15s")),
+                DurationStyle.detectAndParse(take(options, "duration", "60s")),
+                DurationStyle.detectAndParse(take(options, "drain-timeout", "30s")),
+                Integer.parseInt(take(options, "products", "1000")),
+                Integer.parseInt(take(options, "customers", "10000")),
+                Double.parseDouble(take(options, "out-of-stock-ratio", "0.1")),
+                Integer.parseInt(take(options, "partitions", "3")),
+                take(options, "kafka", null),
+                take(options, "redis", null),
+                take(options, "report", null),
+                List.copyOf(serviceArgs));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + options.keySet());
+        }
+        if (parsed.rate <= 0 || parsed.products <= 0 || parsed.customers <= 0 || parsed.partitions <= 0) {
+            throw new IllegalArgumentException("rate, products, customers and partitions must be positive");
+        }
+        if (parsed.outOfStockRatio < 0 || parsed.outOfStockRatio > 1) {
+            throw new IllegalArgumentException("out-of-stock-ratio must be between 0 and 1");
+        }
+        return parsed;
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,55 @@
+package com.eventdriven.loadtest;
+
+import com.eventdriven.notification.model.Notification;
+import com.eventdriven.notification.repository.NotificationStore;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Reports to the {@link DeliveryTracker} every notification notification-service's
+ * {@link NotificationStore} has persisted, once its save method returns. Accepts methods
+ * taking one notification or a collection of them, so batched saves are seen too.
+ */
+final class NotificationProbe implements BeanPostProcessor {
+
+    private final DeliveryTracker tracker;
+
+    NotificationProbe(DeliveryTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof NotificationStore)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            if (invocation.getMethod().getName().startsWith("save")) {
+                long now = System.nanoTime();
+                for (Object argument : invocation.getArguments()) {
+                    if (argument instanceof Notification notification) {
+                        report(notification, now);
+                    } else if (argument instanceof Iterable<?> notifications) {
+                        for (Object element : notifications) {
+                            if (element instanceof Notification notification) {
+                                report(notification, now);
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+        return proxyFactory.getProxy(NotificationStore.class.getClassLoader());
+    }
+
+    private void report(Notification notification, long nanos) {
+        if (notification.getOrderId() != null) {
+            tracker.persisted(notification.getOrderId(), notification.getType(), nanos);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.eventdriven.loadtest;
+
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.dto.OrderRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends orders at a fixed rate whatever the platform's response time: order {@code i} is
+ * due at {@code start + i / rate} and is sent then, without waiting for earlier responses.
+ * A platform that falls behind builds a backlog rather than slowing the generator down, so
+ * the latencies include the queueing a closed-loop client would hide.
+ */
+final class OpenLoopDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long PROGRESS_NANOS = Duration.ofSeconds(5).toNanos();
+    private static final int LOGGED_ERRORS = 5;
+
+    private final URI ordersUri;
+    private final LoadTestOptions options;
+    private final DeliveryTracker tracker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final LatencyRecorder responses = new LatencyRecorder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    OpenLoopDriver(URI ordersUri, LoadTestOptions options, DeliveryTracker tracker) {
+        this.ordersUri = ordersUri;
+        this.options = options;
+        this.tracker = tracker;
+    }
+
+    /** Sends for the warmup and the measured duration, then waits for the outstanding responses. */
+    Result run() {
+        long periodNanos = 1_000_000_000L / options.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        long nextProgress = start + PROGRESS_NANOS;
+        for (long i = 0; ; i++) {
+            long due = start + i * periodNanos;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(due, due >= measureFrom);
+            if (due >= nextProgress) {
+                System.out.printf("%s %d sent, %d failed, %d awaiting notifications%n",
+                        due < measureFrom ? "warmup  " : "measured", sent.get(), failed.get(), tracker.outstanding());
+                nextProgress += PROGRESS_NANOS;
+            }
+        }
+        long responseDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < responseDeadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        return new Result(measureFrom, sent.get(), failed.get(), responses);
+    }
+
+    private void send(long due, boolean measured) {
+        boolean outOfStock = ThreadLocalRandom.current().nextDouble() < options.outOfStockRatio();
+        HttpRequest request = HttpRequest.newBuilder(ordersUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body(outOfStock)))
+                .build();
+        if (measured) {
+            sent.incrementAndGet();
+        }
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+            try {
+                // 202: stored, its event not acknowledged within the ack timeout yet
+                if (error == null && (response.statusCode() == 201 || response.statusCode() == 202)) {
+                    tracker.accepted(orderId(response.body()), due, outOfStock, measured);
+                    if (measured) {
+                        responses.record(System.nanoTime() - due);
+                    }
+                } else if (measured && failed.incrementAndGet() <= LOGGED_ERRORS) {
+                    System.out.println("Order failed: " + (error != null ? error
+                            : response.statusCode() + " " + new String(response.body())));
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private byte[] body(boolean outOfStock) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String productId = outOfStock
+                ? EmbeddedPlatform.OUT_OF_STOCK_PRODUCT
+                : EmbeddedPlatform.productId(random.nextInt(options.products()));
+        int quantity = 1 + random.nextInt(3);
+        OrderRequest order = new OrderRequest("customer-" + random.nextInt(options.customers()),
+                List.of(new OrderItem(productId, quantity, 10.0)), quantity * 10.0, "1 Load Test Way", "CREDIT_CARD");
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order", e);
+        }
+    }
+
+    private String orderId(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("orderId").asText();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable order response", e);
+        }
+    }
+
+    /**
+     * @param measureFrom {@link System#nanoTime} the measured part of the run began
+     * @param sent        measured orders sent
+     * @param failed      measured orders rejected or unanswered
+     * @param responses   POST response times of the measured orders accepted
+     */
+    record Result(long measureFrom, long sent, long failed, LatencyRecorder responses) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.eventdriven.notification.config;
+
+import com.eventdriven.shared.kafka.RetryTopicRecoverer;
+import com.eventdriven.shared.kafka.RetryTopology;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * Same settings as the default listener factory, but hands listeners a whole poll
+     * (up to {@code max.poll.records}) at a time. A listener names the record it failed on
+     * with a {@link BatchListenerFailedException}: the records before it are committed, and
+     * it is tried {@code event.consumer.max-attempts} times in all, {@code retry-backoff}
+     * apart, then forwarded to the group's first retry tier as the key-ordered listeners do,
+     * or only logged with retries off.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            RetryTopology eventRetryTopology,
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            @Qualifier("keyOrderedRecordRecoverer") ConsumerRecordRecoverer recoverer,
+            @Value("${event.consumer.max-attempts:3}") int maxAttempts,
+            @Value("${event.consumer.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${event.retry.send-timeout:10s}") Duration sendTimeout) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        ConsumerRecordRecoverer batchRecoverer = eventRetryTopology.isEnabled()
+                ? new RetryTopicRecoverer(kafkaTemplate, eventRetryTopology, "notification-service", sendTimeout)
+                : recoverer;
+        factory.setCommonErrorHandler(new DefaultErrorHandler(batchRecoverer,
+                new FixedBackOff(retryBackoff.toMillis(), Math.max(0, maxAttempts - 1))));
+        return factory;
+    }
+
+    /**
+     * Retry tiers and dead-letter topics of every topic notification-service consumes through
+     * {@code eventRetryTopology.topics(...)}; keep in step with the listeners.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(RetryTopology eventRetryTopology,
+            @Value("${event.retry.partitions:3}") int partitions,
+            @Value("${event.retry.replicas:1}") int replicas) {
+        return eventRetryTopology.newTopics("notification-service", partitions, replicas,
+                "order-events", "inventory-events", "inventory-result-events",
+                "payment-events");
+    }
+}
@@ -2,10 +2,13 @@ package com.eventdriven.notification.controller;
 
 import com.eventdriven.notification.model.Notification;
 import com.eventdriven.notification.service.NotificationService;
+import com.eventdriven.shared.kafka.DeadLetterReplayer;
+import com.eventdriven.shared.kafka.RetryTopology;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,7 +21,12 @@ import java.util.List;
 @Tag(name = "Notification Service", description = "APIs for managing notifications")
 public class NotificationController {
 
+    private static final int MAX_REPLAY = 10000;
+    private static final String CONSUMER_GROUP = "notification-service";
+
     private final NotificationService notificationService;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final RetryTopology retryTopology;
 
     @GetMapping
     @Operation(summary = "Get all notifications")
@@ -60,6 +68,22 @@ public class NotificationController {
         return ResponseEntity.ok(sentNotification);
     }
 
+    @PostMapping("/dead-letters/{topic}/replay")
+    @Operation(summary = "Replay dead-lettered events of a consumed topic",
+            description = "Sends up to max records from the notification-service dead-letter topic of the topic back through its retry tiers")
+    public ResponseEntity<DeadLetterReplayer.ReplayResult> replayDeadLetters(@PathVariable String topic,
+            @RequestParam(defaultValue = "100") int max) {
+        if (max < 1 || max > MAX_REPLAY) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!retryTopology.isEnabled()) {
+            // Nothing consumes the retry tiers, so replayed records would sit there unread
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("Replaying up to {} dead letters of {}", max, topic);
+        return ResponseEntity.ok(deadLetterReplayer.replay(topic, CONSUMER_GROUP, max));
+    }
+
     @GetMapping("/health")
     @Operation(summary = "Health check endpoint")
     public ResponseEntity<String> health() {
@@ -0,0 +1,39 @@
+package com.eventdriven.notification.repository;
+
+import com.eventdriven.shared.storage.StorageFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rewrites notifications still stored as hashes in the binary format once the application is up,
+ * when {@code notification.storage.format} is {@code binary}. Runs on its own thread; reads accept
+ * both formats meanwhile.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.storage.migrate-on-startup", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationStorageMigration {
+
+    private final NotificationStore notificationStore;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (notificationStore.format() != StorageFormat.BINARY) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                notificationStore.migrateToBinary();
+            } catch (Exception e) {
+                log.error("Notification storage migration failed", e);
+            }
+        }, "notification-storage-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
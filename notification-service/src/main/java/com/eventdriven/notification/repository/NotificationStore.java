@@ -0,0 +1,90 @@
+package com.eventdriven.notification.repository;
+
+import com.eventdriven.notification.model.Notification;
+import com.eventdriven.shared.metrics.InstrumentedStore;
+import com.eventdriven.shared.storage.BinaryEntityStore;
+import com.eventdriven.shared.storage.StorageFormat;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Saves notifications in the format chosen by {@code notification.storage.format}: hashes
+ * through {@link NotificationRepository}, or one MessagePack value per notification through
+ * {@link BinaryEntityStore}, with the same keyspace and {@code @Indexed} index sets. Reads
+ * accept both formats, so the format can be switched, and existing hashes migrated, while
+ * the service runs.
+ */
+@Component
+@InstrumentedStore
+public class NotificationStore {
+
+    public static final String KEYSPACE = "notification";
+
+    private final NotificationRepository notificationRepository;
+    private final StorageFormat format;
+    private final BinaryEntityStore<Notification> binaryStore;
+
+    public NotificationStore(NotificationRepository notificationRepository, StringRedisTemplate redisTemplate,
+            RedisConverter redisConverter, MeterRegistry meterRegistry,
+            @Value("${notification.storage.format:hash}") StorageFormat format) {
+        this.notificationRepository = notificationRepository;
+        this.format = format;
+
+        Map<String, Function<Notification, Object>> indexes = new LinkedHashMap<>();
+        indexes.put("orderId", Notification::getOrderId);
+        indexes.put("customerId", Notification::getCustomerId);
+        this.binaryStore = new BinaryEntityStore<>(redisTemplate, redisConverter, meterRegistry, Notification.class,
+                KEYSPACE, Notification::getNotificationId, indexes, "status");
+    }
+
+    public StorageFormat format() {
+        return format;
+    }
+
+    public Notification save(Notification notification) {
+        if (format == StorageFormat.BINARY) {
+            binaryStore.save(notification);
+            return notification;
+        }
+        return binaryStore.saveAsHash(notification, notificationRepository::save);
+    }
+
+    /**
+     * Saves a batch of notifications in the configured format with one pipelined round trip,
+     * keyed and indexed as {@link #save} would. If it throws, any subset may have been saved.
+     */
+    public List<Notification> saveAll(List<Notification> notifications) {
+        binaryStore.saveAll(notifications, format);
+        return notifications;
+    }
+
+    public Optional<Notification> findById(String notificationId) {
+        return binaryStore.findById(notificationId);
+    }
+
+    public List<Notification> findAll() {
+        return binaryStore.findAll();
+    }
+
+    public List<Notification> findByCustomerId(String customerId) {
+        return binaryStore.findByIndex("customerId", customerId);
+    }
+
+    public List<Notification> findByOrderId(String orderId) {
+        return binaryStore.findByIndex("orderId", orderId);
+    }
+
+    /** Rewrites the notifications still stored as hashes in the binary format. */
+    public BinaryEntityStore.MigrationReport migrateToBinary() {
+        return binaryStore.migrate();
+    }
+}
@@ -1,30 +1,207 @@
 package com.eventdriven.notification.service;
 
 import com.eventdriven.shared.events.*;
+import com.eventdriven.shared.id.IdGenerator;
+import com.eventdriven.shared.kafka.ListenerMetrics;
 import com.eventdriven.notification.model.Notification;
-import com.eventdriven.notification.repository.NotificationRepository;
-import lombok.RequiredArgsConstructor;
+import com.eventdriven.notification.repository.NotificationStore;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Function;
 
+/**
+ * Turns order, payment and inventory events into notifications. By default each event is
+ * handled by a record listener and saved on its own; with
+ * {@code notification.consumer.batch-enabled} batch listeners take over the main topics and
+ * save the notifications of a whole poll with one pipelined Redis round trip. The record
+ * listeners then keep consuming the retry tiers, which the batch listeners forward failed
+ * records to.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
+    private static final String GROUP_ID = "notification-service";
 
-    @KafkaListener(topics = "order-events", groupId = "notification-service")
+    private final NotificationStore notificationStore;
+    private final ListenerMetrics batchMetrics;
+
+    public NotificationService(NotificationStore notificationStore,
+            ObjectProvider<ListenerMetrics.Factory> listenerMetrics) {
+        this.notificationStore = notificationStore;
+        // The event.listener and event.consumer.lag meters of the record listeners, so both modes compare directly
+        this.batchMetrics = listenerMetrics.getIfAvailable(() -> groupId -> ListenerMetrics.NOOP).forGroup(GROUP_ID);
+    }
+
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('order-events', 'notification-service', ${notification.consumer.batch-enabled:false})}",
+            groupId = "notification-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory",
+            autoStartup = "#{!${notification.consumer.batch-enabled:false} || @eventRetryTopology.enabled}")
     public void handleOrderCreated(OrderCreatedEvent event) {
         log.info("Received order created event: {}", event.getOrderId());
-        
+        notificationStore.save(orderCreatedNotification(event));
+        log.info("Created notification for order: {}", event.getOrderId());
+    }
+
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('payment-events', 'notification-service', ${notification.consumer.batch-enabled:false})}",
+            groupId = "notification-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory",
+            autoStartup = "#{!${notification.consumer.batch-enabled:false} || @eventRetryTopology.enabled}")
+    public void handlePaymentProcessed(PaymentProcessedEvent event) {
+        log.info("Received payment processed event: {}", event.getOrderId());
+        notificationStore.save(paymentNotification(event));
+        log.info("Created payment notification for order: {}", event.getOrderId());
+    }
+
+    /**
+     * Legacy per-order-line listener, only started while
+     * {@code notification.inventory.aggregated-events-enabled} is off.
+     */
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('inventory-events', 'notification-service', ${notification.consumer.batch-enabled:false})}",
+            groupId = "notification-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory",
+            autoStartup = "#{(!${notification.consumer.batch-enabled:false} || @eventRetryTopology.enabled) && !${notification.inventory.aggregated-events-enabled:true}}",
+            // Successful reservations need no notification; skip them without decoding
+            properties = "event.route.outcomes=failure")
+    public void handleInventoryReserved(InventoryReservedEvent event) {
+        log.info("Received inventory reserved event: {}", event.getOrderId());
+
+        Notification notification = inventoryNotification(event);
+        if (notification != null) {
+            notificationStore.save(notification);
+            log.info("Created inventory notification for order: {}", event.getOrderId());
+        }
+    }
+
+    @KafkaListener(topics = "#{@eventRetryTopology.topics('inventory-result-events', 'notification-service', ${notification.consumer.batch-enabled:false})}",
+            groupId = "notification-service",
+            containerFactory = "keyOrderedKafkaListenerContainerFactory",
+            autoStartup = "#{(!${notification.consumer.batch-enabled:false} || @eventRetryTopology.enabled) && ${notification.inventory.aggregated-events-enabled:true}}",
+            // Successful reservations need no notification; skip them without decoding
+            properties = "event.route.outcomes=failure")
+    public void handleInventoryReservationResult(InventoryReservationResultEvent event) {
+        log.info("Received inventory reservation result event: {}", event.getOrderId());
+
+        Notification notification = inventoryNotification(event);
+        if (notification != null) {
+            notificationStore.save(notification);
+            log.info("Created inventory notification for order: {}", event.getOrderId());
+        }
+    }
+
+    /**
+     * Batch variant of {@link #handleOrderCreated}, enabled with {@code notification.consumer.batch-enabled}.
+     * A record whose notification cannot be saved goes to the retry tiers; see {@link #saveBatch}.
+     */
+    @KafkaListener(topics = "order-events", groupId = "notification-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${notification.consumer.batch-enabled:false}")
+    public void handleOrderCreatedBatch(List<ConsumerRecord<String, Object>> records, Consumer<?, ?> consumer) {
+        saveBatch(records, consumer, value -> value instanceof OrderCreatedEvent event ? orderCreatedNotification(event) : null);
+    }
+
+    /** Batch variant of {@link #handlePaymentProcessed}. */
+    @KafkaListener(topics = "payment-events", groupId = "notification-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${notification.consumer.batch-enabled:false}")
+    public void handlePaymentProcessedBatch(List<ConsumerRecord<String, Object>> records, Consumer<?, ?> consumer) {
+        saveBatch(records, consumer, value -> value instanceof PaymentProcessedEvent event ? paymentNotification(event) : null);
+    }
+
+    /** Batch variant of {@link #handleInventoryReserved}. */
+    @KafkaListener(topics = "inventory-events", groupId = "notification-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{${notification.consumer.batch-enabled:false} && !${notification.inventory.aggregated-events-enabled:true}}",
+            properties = "event.route.outcomes=failure")
+    public void handleInventoryReservedBatch(List<ConsumerRecord<String, Object>> records, Consumer<?, ?> consumer) {
+        saveBatch(records, consumer, value -> value instanceof InventoryReservedEvent event ? inventoryNotification(event) : null);
+    }
+
+    /** Batch variant of {@link #handleInventoryReservationResult}. */
+    @KafkaListener(topics = "inventory-result-events", groupId = "notification-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{${notification.consumer.batch-enabled:false} && ${notification.inventory.aggregated-events-enabled:true}}",
+            properties = "event.route.outcomes=failure")
+    public void handleInventoryReservationResultBatch(List<ConsumerRecord<String, Object>> records, Consumer<?, ?> consumer) {
+        saveBatch(records, consumer,
+                value -> value instanceof InventoryReservationResultEvent event ? inventoryNotification(event) : null);
+    }
+
+    /**
+     * Saves the notifications {@code toNotification} builds from a poll in one pipeline.
+     * Records it returns {@code null} for, including those the event routing skipped, need no
+     * notification. Each record is reported with an equal share of the batch's time.
+     * <p>
+     * If the pipeline fails, the notifications are saved again one at a time, under the same
+     * ids, to find the record that fails. That record is thrown as a
+     * {@link BatchListenerFailedException}, so the container commits the records before it
+     * and retries it, then hands it to the retry tiers (see {@code batchKafkaListenerContainerFactory}).
+     */
+    private void saveBatch(List<ConsumerRecord<String, Object>> records, Consumer<?, ?> consumer,
+            Function<Object, Notification> toNotification) {
+        long start = System.nanoTime();
+        List<Notification> notifications = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, Object>> sources = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, Object> record : records) {
+            Notification notification = toNotification.apply(record.value());
+            if (notification != null) {
+                notifications.add(notification);
+                sources.add(record);
+            }
+        }
+
+        try {
+            notificationStore.saveAll(notifications);
+        } catch (RuntimeException e) {
+            log.warn("Saving {} notifications in one pipeline failed, saving them one at a time", notifications.size(), e);
+            for (int i = 0; i < notifications.size(); i++) {
+                try {
+                    notificationStore.save(notifications.get(i));
+                } catch (RuntimeException single) {
+                    reportHandled(records, start, false);
+                    ConsumerRecord<String, Object> record = sources.get(i);
+                    throw new BatchListenerFailedException("Could not save the notification of "
+                            + record.topic() + "-" + record.partition() + "@" + record.offset(), single, record);
+                }
+            }
+        }
+        reportHandled(records, start, true);
+        batchMetrics.committed(consumer, nextOffsets(records));
+        log.info("Created {} notifications from a batch of {} records", notifications.size(), records.size());
+    }
+
+    private void reportHandled(List<ConsumerRecord<String, Object>> records, long start, boolean success) {
+        long nanosPerRecord = (System.nanoTime() - start) / records.size();
+        records.forEach(record -> batchMetrics.handled(record.topic(), nanosPerRecord, success));
+    }
+
+    /** Offsets the container commits once the batch listener returns. */
+    private static Map<TopicPartition, OffsetAndMetadata> nextOffsets(List<ConsumerRecord<String, Object>> records) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            offsets.merge(new TopicPartition(record.topic(), record.partition()),
+                    new OffsetAndMetadata(record.offset() + 1),
+                    (current, next) -> next.offset() > current.offset() ? next : current);
+        }
+        return offsets;
+    }
+
+    private Notification orderCreatedNotification(OrderCreatedEvent event) {
         Notification notification = new Notification();
-        notification.setNotificationId(UUID.randomUUID().toString());
+        notification.setNotificationId(IdGenerator.nextId());
         notification.setOrderId(event.getOrderId());
         notification.setCustomerId(event.getCustomerId());
         notification.setType("ORDER_CREATED");
@@ -32,71 +209,76 @@ public class NotificationService {
         notification.setStatus("PENDING");
         notification.setChannel("EMAIL");
         notification.setCreatedAt(LocalDateTime.now());
-        
-        notificationRepository.save(notification);
-        log.info("Created notification for order: {}", event.getOrderId());
+        return notification;
     }
 
-    @KafkaListener(topics = "payment-events", groupId = "notification-service")
-    public void handlePaymentProcessed(PaymentProcessedEvent event) {
-        log.info("Received payment processed event: {}", event.getOrderId());
-        
-        String message = event.getStatus().equals("SUCCESS") 
+    private Notification paymentNotification(PaymentProcessedEvent event) {
+        boolean paid = Boolean.TRUE.equals(event.getSuccess());
+        String message = paid
             ? "Payment processed successfully for order: " + event.getOrderId()
             : "Payment failed for order: " + event.getOrderId();
-            
-        String type = event.getStatus().equals("SUCCESS") ? "PAYMENT_SUCCESS" : "PAYMENT_FAILED";
-        
+
+        String type = paid ? "PAYMENT_SUCCESS" : "PAYMENT_FAILED";
+
         Notification notification = new Notification();
-        notification.setNotificationId(UUID.randomUUID().toString());
+        notification.setNotificationId(IdGenerator.nextId());
         notification.setOrderId(event.getOrderId());
         notification.setType(type);
         notification.setMessage(message);
         notification.setStatus("PENDING");
         notification.setChannel("EMAIL");
         notification.setCreatedAt(LocalDateTime.now());
-        
-        notificationRepository.save(notification);
-        log.info("Created payment notification for order: {}", event.getOrderId());
+        return notification;
     }
 
-    @KafkaListener(topics = "inventory-events", groupId = "notification-service")
-    public void handleInventoryReserved(InventoryReservedEvent event) {
-        log.info("Received inventory reserved event: {}", event.getOrderId());
-        
-        if (!event.isReserved()) {
-            Notification notification = new Notification();
-            notification.setNotificationId(UUID.randomUUID().toString());
-            notification.setOrderId(event.getOrderId());
-            notification.setType("INVENTORY_UNAVAILABLE");
-            notification.setMessage("Sorry, the requested quantity is not available for product: " + event.getProductId());
-            notification.setStatus("PENDING");
-            notification.setChannel("EMAIL");
-            notification.setCreatedAt(LocalDateTime.now());
-            
-            notificationRepository.save(notification);
-            log.info("Created inventory notification for order: {}", event.getOrderId());
+    /** Notification of a failed reservation of one order line; {@code null} if it succeeded. */
+    private Notification inventoryNotification(InventoryReservedEvent event) {
+        if (Boolean.TRUE.equals(event.getSuccess())) {
+            return null;
+        }
+        return inventoryUnavailable(event.getOrderId(),
+                "Sorry, the requested quantity is not available for product: " + event.getProductId());
+    }
+
+    /** Notification of a failed reservation of an order; {@code null} if it succeeded. */
+    private Notification inventoryNotification(InventoryReservationResultEvent event) {
+        if (Boolean.TRUE.equals(event.getSuccess())) {
+            return null;
         }
+        return inventoryUnavailable(event.getOrderId(),
+                "Sorry, we could not reserve the items of your order: " + event.getMessage());
+    }
+
+    private Notification inventoryUnavailable(String orderId, String message) {
+        Notification notification = new Notification();
+        notification.setNotificationId(IdGenerator.nextId());
+        notification.setOrderId(orderId);
+        notification.setType("INVENTORY_UNAVAILABLE");
+        notification.setMessage(message);
+        notification.setStatus("PENDING");
+        notification.setChannel("EMAIL");
+        notification.setCreatedAt(LocalDateTime.now());
+        return notification;
     }
 
     public List<Notification> getAllNotifications() {
-        return (List<Notification>) notificationRepository.findAll();
+        return notificationStore.findAll();
     }
 
     public Notification getNotificationById(String notificationId) {
-        return notificationRepository.findById(notificationId).orElse(null);
+        return notificationStore.findById(notificationId).orElse(null);
     }
 
     public List<Notification> getNotificationsByCustomer(String customerId) {
-        return notificationRepository.findByCustomerId(customerId);
+        return notificationStore.findByCustomerId(customerId);
     }
 
     public List<Notification> getNotificationsByOrder(String orderId) {
-        return notificationRepository.findByOrderId(orderId);
+        return notificationStore.findByOrderId(orderId);
     }
 
     public Notification sendNotification(Notification notification) {
-        notification.setNotificationId(UUID.randomUUID().toString());
+        notification.setNotificationId(IdGenerator.nextId());
         notification.setCreatedAt(LocalDateTime.now());
         notification.setStatus("PENDING");
         
@@ -107,6 +289,6 @@ public class NotificationService {
         notification.setStatus("SENT");
         notification.setSentAt(LocalDateTime.now());
         
-        return notificationRepository.save(notification);
+        return notificationStore.save(notification);
     }
 } 
\ No newline at end of file
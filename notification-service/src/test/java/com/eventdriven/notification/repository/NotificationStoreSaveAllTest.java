@@ -0,0 +1,157 @@
+package com.eventdriven.notification.repository;
+
+import com.eventdriven.notification.model.Notification;
+import com.eventdriven.shared.storage.StorageFormat;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link NotificationStore#saveAll} in the hash format against jedis-mock: it must leave
+ * exactly what {@link NotificationRepository#save} leaves, so notifications saved by the
+ * batch listeners are found by the repository's lookups like any other.
+ */
+class NotificationStoreSaveAllTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private AnnotationConfigApplicationContext context;
+    private StringRedisTemplate redisTemplate;
+    private NotificationRepository repository;
+    private NotificationStore store;
+
+    @BeforeEach
+    void startRedis() throws Exception {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()),
+                LettuceClientConfiguration.builder()
+                        // jedis-mock does not implement HELLO, so skip the RESP3 handshake
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("redisConnectionFactory", connectionFactory);
+        context.register(RepositoryConfiguration.class);
+        context.refresh();
+        redisTemplate = context.getBean(StringRedisTemplate.class);
+        repository = context.getBean(NotificationRepository.class);
+        store = new NotificationStore(repository, redisTemplate, context.getBean(RedisConverter.class),
+                new SimpleMeterRegistry(), StorageFormat.HASH);
+    }
+
+    @AfterEach
+    void stopRedis() throws Exception {
+        context.close();
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void saveAllWritesWhatTheRepositoryWrites() {
+        List<Notification> notifications = List.of(
+                notification("n-1", "order-1", "customer-1", "ORDER_CREATED"),
+                notification("n-2", "order-1", null, "PAYMENT_SUCCESS"),
+                notification("n-3", "order-2", "customer-1", "INVENTORY_UNAVAILABLE"));
+
+        notifications.forEach(repository::save);
+        Map<String, Object> repositoryWrites = dump();
+
+        flushAll();
+        store.saveAll(notifications);
+        Map<String, Object> saveAllWrites = dump();
+
+        assertThat(saveAllWrites.keySet()).contains("notification:n-1", "notification:n-1:idx",
+                "notification:orderId:order-1", "notification:customerId:customer-1");
+        assertThat(saveAllWrites).isEqualTo(repositoryWrites);
+    }
+
+    @Test
+    void saveAllReplacesTheIndexEntriesOfAnEarlierSave() {
+        Notification notification = notification("n-1", "order-1", "customer-1", "ORDER_CREATED");
+        repository.save(notification);
+        notification.setOrderId("order-2");
+        notification.setCustomerId(null);
+        repository.save(notification);
+        Map<String, Object> repositoryWrites = dump();
+
+        flushAll();
+        Notification first = notification("n-1", "order-1", "customer-1", "ORDER_CREATED");
+        store.saveAll(List.of(first));
+        store.saveAll(List.of(notification));
+        Map<String, Object> saveAllWrites = dump();
+
+        assertThat(saveAllWrites).doesNotContainKeys("notification:orderId:order-1", "notification:customerId:customer-1");
+        assertThat(saveAllWrites).isEqualTo(repositoryWrites);
+    }
+
+    /** Every key with its value: hash fields, set members or the string. */
+    private Map<String, Object> dump() {
+        Map<String, Object> values = new TreeMap<>();
+        for (String key : redisTemplate.keys("*")) {
+            DataType type = redisTemplate.type(key);
+            switch (type) {
+                case HASH -> values.put(key, new TreeMap<>(redisTemplate.opsForHash().entries(key)));
+                case SET -> values.put(key, redisTemplate.opsForSet().members(key));
+                case STRING -> values.put(key, redisTemplate.opsForValue().get(key));
+                default -> values.put(key, type);
+            }
+        }
+        return values;
+    }
+
+    private void flushAll() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    private static Notification notification(String id, String orderId, String customerId, String type) {
+        return new Notification(id, orderId, customerId, type, "Message of " + id, "PENDING", "EMAIL",
+                LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000), null);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableRedisRepositories(basePackageClasses = NotificationRepository.class)
+    static class RepositoryConfiguration {
+
+        @Bean
+        public RedisTemplate<?, ?> redisTemplate(RedisConnectionFactory connectionFactory) {
+            RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+            template.setConnectionFactory(connectionFactory);
+            return template;
+        }
+
+        @Bean
+        public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+    }
+}
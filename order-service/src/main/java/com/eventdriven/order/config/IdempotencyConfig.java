@@ -0,0 +1,26 @@
+package com.eventdriven.order.config;
+
+import com.eventdriven.shared.idempotency.RecentKeyFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    /**
+     * Idempotency keys this instance has stored, so that only keys that may be retries pay for
+     * a lookup before the order is written. Keys are kept for up to the idempotency TTL, less
+     * if more than {@code expected-keys} arrive within it; a retry the filter has forgotten is
+     * still caught by the store, which records the key atomically with the order.
+     */
+    @Bean
+    public RecentKeyFilter recentIdempotencyKeys(
+            @Value("${order.idempotency.prefilter.expected-keys:1000000}") long expectedKeys,
+            @Value("${order.idempotency.prefilter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${order.idempotency.ttl:24h}") Duration ttl) {
+        return new RecentKeyFilter(expectedKeys, falsePositiveRate, ttl);
+    }
+}
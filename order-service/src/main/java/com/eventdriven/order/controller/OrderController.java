@@ -1,17 +1,23 @@
 package com.eventdriven.order.controller;
 
+import com.eventdriven.order.dto.BatchOrderResult;
+import com.eventdriven.order.dto.OrderPage;
 import com.eventdriven.shared.dto.OrderRequest;
 import com.eventdriven.shared.dto.OrderResponse;
+import com.eventdriven.order.service.OrderNotPublishedException;
 import com.eventdriven.order.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,14 +27,42 @@ import java.util.List;
 @Tag(name = "Order Management", description = "APIs for managing orders")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final OrderService orderService;
 
     @PostMapping
-    @Operation(summary = "Create a new order", description = "Creates a new order and publishes OrderCreatedEvent")
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderRequest request) {
+    @Operation(summary = "Create a new order",
+            description = "Creates a new order and publishes OrderCreatedEvent. Retries with the same Idempotency-Key return the original order")
+    public ResponseEntity<OrderResponse> createOrder(
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody OrderRequest request) {
         log.info("Received order creation request for customer: {}", request.getCustomerId());
-        OrderResponse response = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        OrderService.Submission submission = orderService.createOrder(request, idempotencyKey);
+        if (submission.replayed()) {
+            return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, "true").body(submission.order());
+        }
+        if (submission.publishPending()) {
+            // Stored, and its event may still reach the broker: a retry with the key replays this order
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(submission.order());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(submission.order());
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create orders in bulk",
+            description = "Validates and creates up to order.batch.max-size orders with batched storage and publishing; reports a result per order")
+    public ResponseEntity<BatchOrderResult> createOrders(@RequestBody List<OrderRequest> requests) {
+        log.info("Received batch order creation request with {} orders", requests.size());
+        BatchOrderResult result = orderService.createOrders(requests);
+        HttpStatus status = result.getCreated() == requests.size() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(result);
     }
 
     @GetMapping("/{orderId}")
@@ -49,11 +83,28 @@ public class OrderController {
     }
 
     @GetMapping("/customer/{customerId}")
-    @Operation(summary = "Get orders by customer", description = "Retrieves all orders for a specific customer")
-    public ResponseEntity<List<OrderResponse>> getOrdersByCustomer(@PathVariable String customerId) {
-        log.info("Received request to get orders for customer: {}", customerId);
-        List<OrderResponse> orders = orderService.getOrdersByCustomer(customerId);
-        return ResponseEntity.ok(orders);
+    @Operation(summary = "Get orders by customer",
+            description = "Returns one page of a customer's orders by creation time; pass nextCursor back as after to get the next page")
+    public ResponseEntity<OrderPage> getOrdersByCustomer(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+        log.info("Received request to get orders for customer: {}, limit: {}", customerId, limit);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(orderService.getOrdersByCustomer(customerId, after, pageSize, from, to, direction));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(OrderNotPublishedException.class)
+    public ResponseEntity<String> handleNotPublished(OrderNotPublishedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
     }
 
     @PutMapping("/{orderId}/status")
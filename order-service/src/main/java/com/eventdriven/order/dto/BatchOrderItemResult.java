@@ -0,0 +1,35 @@
+package com.eventdriven.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderItemResult {
+
+    public static final String CREATED = "CREATED";
+    /** The request failed validation; nothing was stored. */
+    public static final String REJECTED = "REJECTED";
+    /** The order was not stored; it may be retried. */
+    public static final String FAILED = "FAILED";
+    /**
+     * Storing the order failed and whether it was stored could not be read back. Check
+     * {@code orderId} before resubmitting, or resubmit with an idempotency key.
+     */
+    public static final String UNKNOWN = "UNKNOWN";
+    /** The order's event could not be published, so the order was taken back; it may be retried. */
+    public static final String PUBLISH_FAILED = "PUBLISH_FAILED";
+    /**
+     * The order was stored and its event sent, but the broker had not acknowledged it in time.
+     * The order stands and its event may still be published; do not resubmit it.
+     */
+    public static final String PUBLISH_PENDING = "PUBLISH_PENDING";
+
+    /** Position of the order in the submitted list. */
+    private int index;
+    private String orderId;
+    private String status;
+    private String error;
+}
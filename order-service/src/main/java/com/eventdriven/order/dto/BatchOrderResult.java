@@ -0,0 +1,23 @@
+package com.eventdriven.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderResult {
+
+    private int created;
+    /** Orders stored whose event was not acknowledged in time; see {@link BatchOrderItemResult#PUBLISH_PENDING}. */
+    private int pending;
+    private int rejected;
+    private int failed;
+    private long elapsedMs;
+
+    /** One result per submitted order, in submission order. */
+    private List<BatchOrderItemResult> results;
+}
@@ -0,0 +1,19 @@
+package com.eventdriven.order.dto;
+
+import com.eventdriven.shared.dto.OrderResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPage {
+
+    private List<OrderResponse> items;
+
+    /** Opaque cursor for the next page, {@code null} on the last page. */
+    private String nextCursor;
+}
@@ -1,6 +1,7 @@
 package com.eventdriven.order.model;
 
 import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.id.IdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -33,7 +34,7 @@ public class Order {
 
     public Order(String customerId, List<OrderItem> items, Double totalAmount,
             String shippingAddress, String paymentMethod) {
-        this.orderId = java.util.UUID.randomUUID().toString();
+        this.orderId = IdGenerator.nextId();
         this.customerId = customerId;
         this.items = items;
         this.totalAmount = totalAmount;
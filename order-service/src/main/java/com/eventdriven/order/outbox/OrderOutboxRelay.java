@@ -0,0 +1,291 @@
+package com.eventdriven.order.outbox;
+
+import com.eventdriven.order.repository.OrderStore;
+import com.eventdriven.shared.id.IdGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the order outbox stream to Kafka. Entries are read in batches through a consumer
+ * group, sent with at most {@code max-in-flight} unacknowledged sends, and acknowledged and
+ * deleted from the stream only once the broker has acknowledged them. Entries whose send
+ * failed, or that another relay instance left pending for longer than {@code claim-idle},
+ * are sent again, so delivery is at least once.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OrderOutboxRelay implements SmartLifecycle {
+
+    private static final String GROUP = "outbox-relay";
+
+    private final StringRedisTemplate redisTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration pollTimeout;
+    private final Duration claimIdle;
+    private final Semaphore inFlight;
+    private final Consumer consumer;
+    private final AtomicLong depth = new AtomicLong();
+    private final Counter relayedCounter;
+    private final Counter failedCounter;
+    private final Timer lagTimer;
+    private final ExecutorService relay;
+
+    private volatile boolean running;
+    private boolean drainPending = true;
+    private long nextClaimAt = System.nanoTime();
+
+    public OrderOutboxRelay(StringRedisTemplate redisTemplate,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${order.outbox.batch-size:500}") int batchSize,
+            @Value("${order.outbox.max-in-flight:1000}") int maxInFlight,
+            @Value("${order.outbox.poll-timeout:1s}") Duration pollTimeout,
+            @Value("${order.outbox.claim-idle:30s}") Duration claimIdle) {
+        this.redisTemplate = redisTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.pollTimeout = pollTimeout;
+        this.claimIdle = claimIdle;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.consumer = Consumer.from(GROUP, consumerName());
+        meterRegistry.gauge("order.outbox.depth", depth);
+        this.relayedCounter = meterRegistry.counter("order.outbox.relayed");
+        this.failedCounter = meterRegistry.counter("order.outbox.failed");
+        this.lagTimer = Timer.builder("order.outbox.relay.lag")
+                .description("Time from the outbox append to the broker acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.relay = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void start() {
+        createGroup();
+        running = true;
+        relay.execute(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                relayBatch();
+            } catch (Exception e) {
+                log.error("Outbox relay failed, will retry", e);
+                drainPending = true;
+                sleepQuietly(pollTimeout);
+            }
+        }
+    }
+
+    /**
+     * Relays one batch. While entries of this consumer are pending (after a restart or a
+     * failed send) they are re-read from the start of its pending list; otherwise new
+     * entries are read, blocking up to {@code poll-timeout}.
+     */
+    void relayBatch() {
+        StreamOperations<String, Object, Object> stream = redisTemplate.opsForStream();
+        List<MapRecord<String, Object, Object>> records;
+        if (System.nanoTime() >= nextClaimAt) {
+            drainPending |= claimAbandoned(stream);
+            nextClaimAt = System.nanoTime() + claimIdle.toNanos();
+        }
+        if (drainPending) {
+            records = stream.read(consumer, StreamReadOptions.empty().count(batchSize),
+                    StreamOffset.create(OrderStore.OUTBOX_STREAM, ReadOffset.from("0")));
+            drainPending = records != null && !records.isEmpty();
+        } else {
+            records = stream.read(consumer, StreamReadOptions.empty().count(batchSize).block(pollTimeout),
+                    StreamOffset.create(OrderStore.OUTBOX_STREAM, ReadOffset.lastConsumed()));
+        }
+        if (records != null && !records.isEmpty()) {
+            send(stream, records);
+        }
+        Long length = stream.size(OrderStore.OUTBOX_STREAM);
+        depth.set(length == null ? 0 : length);
+    }
+
+    private void send(StreamOperations<String, Object, Object> stream, List<MapRecord<String, Object, Object>> records) {
+        ConcurrentLinkedQueue<RecordId> acked = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> entry = record.getValue();
+            Object event;
+            try {
+                event = objectMapper.readValue((String) entry.get(OrderStore.PAYLOAD_FIELD),
+                        Class.forName((String) entry.get(OrderStore.TYPE_FIELD)));
+            } catch (Exception e) {
+                // Retrying cannot fix an entry this relay cannot decode; drop it loudly
+                log.error("Dropping undecodable outbox entry {}: {}", record.getId(), entry, e);
+                failedCounter.increment();
+                acked.add(record.getId());
+                continue;
+            }
+
+            inFlight.acquireUninterruptibly();
+            long appendedAt = record.getId().getTimestamp();
+            sends.add(kafkaTemplate.send((String) entry.get(OrderStore.TOPIC_FIELD), (String) entry.get(OrderStore.KEY_FIELD), event)
+                    .whenComplete((result, ex) -> {
+                        inFlight.release();
+                        if (ex == null) {
+                            acked.add(record.getId());
+                            relayedCounter.increment();
+                            lagTimer.record(Math.max(0, System.currentTimeMillis() - appendedAt), TimeUnit.MILLISECONDS);
+                        } else {
+                            log.warn("Failed to relay outbox entry {}, will retry: {}", record.getId(), ex.getMessage());
+                            failedCounter.increment();
+                        }
+                    }));
+        }
+
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        } catch (Exception e) {
+            // Failed entries stay pending; back off before reading them again
+            drainPending = true;
+            sleepQuietly(pollTimeout);
+        }
+
+        if (!acked.isEmpty()) {
+            RecordId[] ids = acked.toArray(RecordId[]::new);
+            stream.acknowledge(OrderStore.OUTBOX_STREAM, GROUP, ids);
+            stream.delete(OrderStore.OUTBOX_STREAM, ids);
+        }
+    }
+
+    /**
+     * Takes over entries other relay consumers read but never acknowledged, a page of the
+     * group's pending list at a time, then removes consumers left with nothing pending that
+     * have not read for {@code claim-idle}, such as those of retired instances.
+     */
+    private boolean claimAbandoned(StreamOperations<String, Object, Object> stream) {
+        int claimed = 0;
+        Range<String> page = Range.unbounded();
+        while (true) {
+            PendingMessages pending = stream.pending(OrderStore.OUTBOX_STREAM, GROUP, page, batchSize);
+            List<RecordId> abandoned = new ArrayList<>();
+            RecordId last = null;
+            for (PendingMessage message : pending) {
+                last = message.getId();
+                if (!message.getConsumerName().equals(consumer.getName())
+                        && message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0) {
+                    abandoned.add(message.getId());
+                }
+            }
+            if (!abandoned.isEmpty()) {
+                stream.claim(OrderStore.OUTBOX_STREAM, GROUP, consumer.getName(), claimIdle, abandoned.toArray(RecordId[]::new));
+                claimed += abandoned.size();
+            }
+            if (pending.size() < batchSize) {
+                break;
+            }
+            // The next page starts right after the last entry of this one
+            page = Range.rightUnbounded(Range.Bound.inclusive(
+                    RecordId.of(last.getTimestamp(), last.getSequence() + 1).getValue()));
+        }
+        if (claimed > 0) {
+            log.info("Claimed {} abandoned outbox entries", claimed);
+        }
+        removeIdleConsumers(stream);
+        return claimed > 0;
+    }
+
+    private void removeIdleConsumers(StreamOperations<String, Object, Object> stream) {
+        for (StreamInfo.XInfoConsumer other : stream.consumers(OrderStore.OUTBOX_STREAM, GROUP)) {
+            if (!other.consumerName().equals(consumer.getName()) && other.pendingCount() == 0
+                    && other.idleTimeMs() >= claimIdle.toMillis()) {
+                stream.deleteConsumer(OrderStore.OUTBOX_STREAM, Consumer.from(GROUP, other.consumerName()));
+                log.info("Removed idle outbox consumer {}", other.consumerName());
+            }
+        }
+    }
+
+    private void createGroup() {
+        try {
+            redisTemplate.opsForStream().createGroup(OrderStore.OUTBOX_STREAM, ReadOffset.from("0"), GROUP);
+        } catch (RedisSystemException e) {
+            // BUSYGROUP: another instance or an earlier run created it already
+            log.debug("Outbox consumer group already exists: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Named after the instance's node id, so a restarted relay takes up its own pending
+     * entries under the same name instead of leaving another consumer behind in the group.
+     */
+    private static String consumerName() {
+        return "relay-" + IdGenerator.defaultNodeId();
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        relay.shutdown();
+        try {
+            relay.awaitTermination(pollTimeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.eventdriven.order.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Adds orders written before the customer index existed to it, once the application is up.
+ * A one-off: enable it on a single instance, and a completed run leaves {@value #DONE_KEY}
+ * behind so later starts skip the keyspace scan; delete the key to run it again. A lock key
+ * keeps instances started together from scanning at the same time. Runs on its own thread so
+ * startup is not held up; orders created meanwhile are indexed as they are written.
+ */
+@Component
+@ConditionalOnProperty(name = "order.customer-index.backfill-on-startup", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerIndexBackfill {
+
+    static final String DONE_KEY = "backfill:customer-index:done";
+    private static final String LOCK_KEY = "backfill:customer-index:lock";
+    private static final Duration LOCK_TTL = Duration.ofHours(1);
+
+    private final OrderStore orderStore;
+    private final StringRedisTemplate redisTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(DONE_KEY))) {
+            log.info("Customer order index backfill already done at {}, skipping", redisTemplate.opsForValue().get(DONE_KEY));
+            return;
+        }
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, LocalDateTime.now().toString(), LOCK_TTL))) {
+            log.info("Customer order index backfill is running on another instance, skipping");
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                long indexed = orderStore.indexAllByCustomer();
+                redisTemplate.opsForValue().set(DONE_KEY, LocalDateTime.now().toString());
+                log.info("Customer order index backfill done, {} orders indexed", indexed);
+            } catch (Exception e) {
+                log.error("Customer order index backfill failed", e);
+            } finally {
+                redisTemplate.delete(LOCK_KEY);
+            }
+        }, "customer-index-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
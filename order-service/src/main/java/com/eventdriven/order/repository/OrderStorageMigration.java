@@ -0,0 +1,39 @@
+package com.eventdriven.order.repository;
+
+import com.eventdriven.shared.storage.StorageFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rewrites orders still stored as hashes in the binary format once the application is up,
+ * when {@code order.storage.format} is {@code binary}. Runs on its own thread; reads accept
+ * both formats meanwhile.
+ */
+@Component
+@ConditionalOnProperty(name = "order.storage.migrate-on-startup", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStorageMigration {
+
+    private final OrderStore orderStore;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (orderStore.format() != StorageFormat.BINARY) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                orderStore.migrateToBinary();
+            } catch (Exception e) {
+                log.error("Order storage migration failed", e);
+            }
+        }, "order-storage-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,448 @@
+package com.eventdriven.order.repository;
+
+import com.eventdriven.order.model.Order;
+import com.eventdriven.shared.events.BaseEvent;
+import com.eventdriven.shared.metrics.InstrumentedStore;
+import com.eventdriven.shared.storage.BinaryEntityStore;
+import com.eventdriven.shared.storage.StorageFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.IndexedData;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+import org.springframework.data.redis.core.convert.SimpleIndexedPropertyValue;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Writes {@code order} entities together with the events they produce. In the default hash
+ * format the hash, its keyspace and index entries are laid out exactly as
+ * {@link OrderRepository#save} would write them; with {@code order.storage.format=binary}
+ * the order is one MessagePack value (see {@link BinaryEntityStore}) with the same keyspace
+ * and index entries. Either way a new order is written by one script together with its
+ * outbox stream entry, so an order is never stored without its event or the other way round.
+ * Reads accept both formats.
+ * <p>
+ * A new order can carry a client idempotency key. The key is claimed with {@code SET NX}
+ * in the same script, for {@code order.idempotency.ttl}, and nothing is written when it
+ * already belongs to an earlier order; the caller gets that order's id instead.
+ * <p>
+ * Each order is also added to a {@code order:by-customer:<customerId>} sorted set scored by
+ * createdAt, which serves keyset-paginated order history without loading every order of a
+ * customer.
+ */
+@Component
+@InstrumentedStore
+public class OrderStore {
+
+    public static final String KEYSPACE = "order";
+    public static final String OUTBOX_STREAM = "outbox:orders";
+
+    public static final String TOPIC_FIELD = "topic";
+    public static final String KEY_FIELD = "key";
+    public static final String TYPE_FIELD = "type";
+    public static final String PAYLOAD_FIELD = "payload";
+
+    private static final String KEY_PREFIX = KEYSPACE + ":";
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    private static final RedisScript<String> CREATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/create-order.lua"), String.class);
+
+    /** Create script result for an order whose id is already stored. */
+    private static final String ID_TAKEN = "-";
+
+    private static final RedisScript<Long> DELETE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/delete-order.lua"), Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/page-customer-orders.lua"), List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConverter redisConverter;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final StorageFormat format;
+    private final BinaryEntityStore<Order> binaryStore;
+    private final Duration idempotencyTtl;
+
+    public OrderStore(StringRedisTemplate redisTemplate, RedisConverter redisConverter, OrderRepository orderRepository,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${order.storage.format:hash}") StorageFormat format,
+            @Value("${order.idempotency.ttl:24h}") Duration idempotencyTtl) {
+        this.redisTemplate = redisTemplate;
+        this.redisConverter = redisConverter;
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.format = format;
+        this.idempotencyTtl = idempotencyTtl;
+        this.binaryStore = new BinaryEntityStore<>(redisTemplate, redisConverter, meterRegistry, Order.class, KEYSPACE,
+                Order::getOrderId, Map.of("customerId", Order::getCustomerId), "updatedAt");
+    }
+
+    public StorageFormat format() {
+        return format;
+    }
+
+    /** Saves a new order with its customer index entry in one transaction. */
+    public void save(Order order) {
+        write(order, null, null);
+    }
+
+    /**
+     * Saves a new order unless {@code idempotencyKey} (may be {@code null}) already belongs to
+     * another order, whose id is returned then.
+     */
+    public Optional<String> save(Order order, String idempotencyKey) {
+        return write(order, null, idempotencyKey);
+    }
+
+    /**
+     * Saves a new order and appends {@code event} to the outbox in one transaction. The event
+     * is published to {@code topic} under the order id by the outbox relay.
+     */
+    public void saveWithEvent(Order order, String topic, BaseEvent event) {
+        saveWithEvent(order, topic, event, null);
+    }
+
+    /**
+     * As {@link #saveWithEvent(Order, String, BaseEvent)}, unless {@code idempotencyKey} (may
+     * be {@code null}) already belongs to another order, whose id is returned then.
+     */
+    public Optional<String> saveWithEvent(Order order, String topic, BaseEvent event, String idempotencyKey) {
+        return write(order, outboxEntry(order, topic, event), idempotencyKey);
+    }
+
+    /**
+     * Saves new orders with one pipelined round trip, each order written atomically by the
+     * same script as {@link #save(Order)}. With {@code events} (same order as {@code orders})
+     * each order's event is appended to the outbox with it, for {@code topic}; {@code null}
+     * stores the orders alone. Returns the ids of the orders not stored because an order with
+     * the same id already is, which is never overwritten. Throws if the pipeline fails, in
+     * which case any subset of the orders may have been stored.
+     */
+    public Set<String> saveAll(List<Order> orders, String topic, List<? extends BaseEvent> events) {
+        if (orders.isEmpty()) {
+            return Set.of();
+        }
+        List<CreateCall> calls = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            calls.add(createCall(order, events == null ? null : outboxEntry(order, topic, events.get(i)), null));
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        byte[] sha = bytes(CREATE_SCRIPT.getSha1());
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loaded ahead of the calls in the same pipeline, so EVALSHA cannot miss the script
+            connection.scriptingCommands().scriptLoad(bytes(CREATE_SCRIPT.getScriptAsString()));
+            for (CreateCall call : calls) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.VALUE, call.keys().size(), call.keysAndArgs());
+            }
+            return null;
+        });
+        sample.stop(meterRegistry.timer("storage.entity.save.batch", "entity", KEYSPACE, "format", format.name().toLowerCase()));
+
+        Set<String> taken = new HashSet<>();
+        for (int i = 0; i < orders.size(); i++) {
+            // The first reply belongs to the script load
+            if (ID_TAKEN.equals(replies.get(i + 1))) {
+                taken.add(orders.get(i).getOrderId());
+            }
+        }
+        return taken;
+    }
+
+    /** Ids of the given orders that are stored, in either format, read with one pipeline. */
+    public Set<String> findExistingIds(List<String> orderIds) {
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String orderId : orderIds) {
+                connection.keyCommands().exists(bytes(KEY_PREFIX + orderId));
+            }
+            return null;
+        });
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < orderIds.size(); i++) {
+            if (Boolean.TRUE.equals(exists.get(i))) {
+                existing.add(orderIds.get(i));
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Takes back a new order stored by {@link #save(Order, String)}: removes it with its index
+     * entries and releases {@code idempotencyKey} (may be {@code null}) if it still belongs to
+     * the order, so a retry with the key creates the order afresh.
+     */
+    public boolean delete(Order order, String idempotencyKey) {
+        List<String> keys = new ArrayList<>(List.of(binaryStore.key(order.getOrderId()), KEYSPACE,
+                binaryStore.indexTracker(order.getOrderId()), customerIndex(order.getCustomerId())));
+        if (idempotencyKey != null) {
+            keys.add(idempotencyIndex(idempotencyKey));
+        }
+        Long deleted = redisTemplate.execute(DELETE_SCRIPT, keys, order.getOrderId());
+        return deleted != null && deleted > 0;
+    }
+
+    /** Id of the order an idempotency key belongs to, if the key has not expired. */
+    public Optional<String> findOrderIdByIdempotencyKey(String idempotencyKey) {
+        return Optional.ofNullable(redisTemplate.opsForValue().get(idempotencyIndex(idempotencyKey)));
+    }
+
+    /** Replaces an existing order in the configured format. */
+    public void update(Order order) {
+        if (format == StorageFormat.BINARY) {
+            binaryStore.save(order);
+        } else {
+            binaryStore.saveAsHash(order, orderRepository::save);
+        }
+    }
+
+    public Optional<Order> findById(String orderId) {
+        return binaryStore.findById(orderId);
+    }
+
+    public List<Order> findAll() {
+        return binaryStore.findAll();
+    }
+
+    /** Rewrites the orders still stored as hashes in the binary format. */
+    public BinaryEntityStore.MigrationReport migrateToBinary() {
+        return binaryStore.migrate();
+    }
+
+    /** Sorted set of a customer's order ids, scored by {@link #score(LocalDateTime) createdAt}. */
+    public static String customerIndex(String customerId) {
+        return KEY_PREFIX + "by-customer:" + customerId;
+    }
+
+    /** Key holding the id of the order created under a client idempotency key. */
+    public static String idempotencyIndex(String idempotencyKey) {
+        return KEY_PREFIX + "idempotency:" + idempotencyKey;
+    }
+
+    /** Score of an order in its customer index. */
+    public static double score(LocalDateTime createdAt) {
+        return createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Reads one page of a customer's orders, ordered by createdAt, with one script call.
+     * {@code from} and {@code to} bound createdAt inclusively and may be {@code null}.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Page findCustomerPage(String customerId, String cursor, int limit,
+            LocalDateTime from, LocalDateTime to, Sort.Direction direction) {
+        PagePosition after = PagePosition.decode(cursor);
+        // Raw bytes back, so values and hashes can be decoded
+        List result = redisTemplate.execute(PAGE_SCRIPT, RedisSerializer.string(), (RedisSerializer) RedisSerializer.byteArray(),
+                List.of(customerIndex(customerId)),
+                direction.isAscending() ? "asc" : "desc",
+                from == null ? "-inf" : String.valueOf((long) score(from)),
+                to == null ? "+inf" : String.valueOf((long) score(to)),
+                after == null ? "" : after.score(),
+                after == null ? "" : after.orderId(),
+                String.valueOf(limit),
+                KEY_PREFIX);
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Customer order page script returned no result");
+        }
+
+        List<Order> orders = new ArrayList<>(limit);
+        for (int i = 2; i + 1 < result.size(); i += 2) {
+            String orderId = new String((byte[]) result.get(i), StandardCharsets.UTF_8);
+            Object stored = result.get(i + 1);
+            orders.add(stored instanceof byte[] value ? binaryStore.decode(value) : readHash(orderId, (List<byte[]>) stored));
+        }
+
+        String lastScore = new String((byte[]) result.get(0), StandardCharsets.UTF_8);
+        String lastId = new String((byte[]) result.get(1), StandardCharsets.UTF_8);
+        return new Page(orders, lastScore.isEmpty() ? null : new PagePosition(lastScore, lastId).encode());
+    }
+
+    /**
+     * Adds every stored order to its customer index, a page of the keyspace at a time.
+     * Idempotent; used to index orders written before the customer index existed.
+     */
+    public long indexAllByCustomer() {
+        long indexed = 0;
+        ScanOptions options = ScanOptions.scanOptions().count(BACKFILL_PAGE_SIZE).build();
+        try (Cursor<String> ids = redisTemplate.opsForSet().scan(KEYSPACE, options)) {
+            List<String> page = new ArrayList<>(BACKFILL_PAGE_SIZE);
+            while (ids.hasNext()) {
+                page.add(ids.next());
+                if (page.size() == BACKFILL_PAGE_SIZE || !ids.hasNext()) {
+                    indexed += indexByCustomer(binaryStore.findAllById(page));
+                    page.clear();
+                }
+            }
+        }
+        return indexed;
+    }
+
+    private int indexByCustomer(List<Order> orders) {
+        List<Order> indexable = orders.stream()
+                .filter(order -> order.getCustomerId() != null && order.getCreatedAt() != null)
+                .toList();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            indexable.forEach(order -> connection.zSetCommands().zAdd(bytes(customerIndex(order.getCustomerId())),
+                    score(order.getCreatedAt()), bytes(order.getOrderId())));
+            return null;
+        });
+        return indexable.size();
+    }
+
+    private Optional<String> write(Order order, List<String> outboxEntry, String idempotencyKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CreateCall call = createCall(order, outboxEntry, idempotencyKey);
+        // Arguments go out as raw bytes: hash fields and binary values are not strings. Keys
+        // always go through the template's key serializer, so they stay strings
+        String existing = redisTemplate.execute(CREATE_SCRIPT, RedisSerializer.byteArray(), RedisSerializer.string(),
+                call.keys(), call.args().toArray());
+        sample.stop(meterRegistry.timer("storage.entity.save", "entity", KEYSPACE, "format", format.name().toLowerCase()));
+        if (ID_TAKEN.equals(existing)) {
+            throw new IllegalStateException("Order id already in use, not overwriting it: " + order.getOrderId());
+        }
+        return existing == null || existing.isEmpty() ? Optional.empty() : Optional.of(existing);
+    }
+
+    /** Keys and arguments of the create script for one order; see create-order.lua. */
+    private CreateCall createCall(Order order, List<String> outboxEntry, String idempotencyKey) {
+        String orderId = order.getOrderId();
+        List<String> keys = new ArrayList<>();
+        keys.add(binaryStore.key(orderId));
+        keys.add(KEYSPACE);
+        keys.add(binaryStore.indexTracker(orderId));
+        keys.add(customerIndex(order.getCustomerId()));
+        keys.add(OUTBOX_STREAM);
+
+        List<byte[]> args = new ArrayList<>();
+        args.add(bytes(orderId));
+        args.add(bytes(String.valueOf((long) score(order.getCreatedAt()))));
+        args.add(bytes(idempotencyKey == null ? "" : String.valueOf(idempotencyTtl.toMillis())));
+        if (format == StorageFormat.BINARY) {
+            args.add(binaryStore.encode(order));
+            args.add(bytes("0"));
+            keys.addAll(binaryStore.indexKeys(order));
+        } else {
+            RedisData data = new RedisData();
+            redisConverter.write(order, data);
+            Map<byte[], byte[]> hash = data.getBucket().rawMap();
+            args.add(new byte[0]);
+            args.add(bytes(String.valueOf(hash.size() * 2)));
+            hash.forEach((field, value) -> {
+                args.add(field);
+                args.add(value);
+            });
+            for (IndexedData indexedData : data.getIndexedData()) {
+                if (indexedData instanceof SimpleIndexedPropertyValue indexedValue && indexedValue.getValue() != null) {
+                    keys.add(indexedData.getKeyspace() + ":" + indexedData.getIndexName() + ":" + indexedValue.getValue());
+                }
+            }
+        }
+        if (outboxEntry != null) {
+            outboxEntry.forEach(value -> args.add(bytes(value)));
+        }
+        if (idempotencyKey != null) {
+            keys.add(idempotencyIndex(idempotencyKey));
+        }
+        return new CreateCall(keys, args);
+    }
+
+    private List<String> outboxEntry(Order order, String topic, BaseEvent event) {
+        return List.of(
+                TOPIC_FIELD, topic,
+                KEY_FIELD, order.getOrderId(),
+                TYPE_FIELD, event.getClass().getName(),
+                PAYLOAD_FIELD, toJson(event));
+    }
+
+    private Order readHash(String orderId, List<byte[]> fields) {
+        Map<byte[], byte[]> raw = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            raw.put(fields.get(i), fields.get(i + 1));
+        }
+        return binaryStore.readHash(orderId, raw);
+    }
+
+    private String toJson(BaseEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + event.getEventType(), e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record CreateCall(List<String> keys, List<byte[]> args) {
+
+        private byte[][] keysAndArgs() {
+            List<byte[]> all = new ArrayList<>(keys.size() + args.size());
+            keys.forEach(key -> all.add(bytes(key)));
+            all.addAll(args);
+            return all.toArray(byte[][]::new);
+        }
+    }
+
+    /** One page of orders and the cursor of the next page, {@code null} on the last page. */
+    public record Page(List<Order> orders, String nextCursor) {
+    }
+
+    /**
+     * Score and id of the last order of a page, where the next page resumes. Exposed to
+     * clients only in encoded form.
+     */
+    private record PagePosition(String score, String orderId) {
+
+        private static PagePosition decode(String encoded) {
+            if (encoded == null || encoded.isBlank()) {
+                return null;
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                String score = decoded.substring(0, separator);
+                Double.parseDouble(score);
+                return new PagePosition(score, decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + encoded, e);
+            }
+        }
+
+        private String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((score + ":" + orderId).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.eventdriven.order.saga;
+
+/**
+ * States of the order saga. An order only moves to a higher rank; {@code PAID},
+ * {@code FAILED} and {@code CANCELLED} are final.
+ */
+public enum OrderSagaStatus {
+
+    PENDING(0),
+    RESERVED(1),
+    PAID(2),
+    FAILED(2),
+    CANCELLED(2);
+
+    private final int rank;
+
+    OrderSagaStatus(int rank) {
+        this.rank = rank;
+    }
+
+    public boolean isFinal() {
+        return rank == 2;
+    }
+
+    /** Whether an order in this state may move to {@code next}. */
+    public boolean canAdvanceTo(OrderSagaStatus next) {
+        return next.rank > rank;
+    }
+}
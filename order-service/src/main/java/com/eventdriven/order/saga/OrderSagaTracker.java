@@ -0,0 +1,191 @@
+package com.eventdriven.order.saga;
+
+import com.eventdriven.order.repository.OrderStore;
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
+import com.eventdriven.shared.events.PaymentProcessedEvent;
+import com.eventdriven.shared.routing.EventMetadata;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Advances {@code Order.status} from the inventory and payment outcomes of each order.
+ * <p>
+ * Both topics are keyed by order id and have the same partition count, and the listener
+ * uses the range assignor, so all events of an order reach the same consumer, which keeps
+ * the last known status of its in-flight orders in memory per partition. The state machine
+ * only moves forward, so duplicates and events that arrive after a later one are ignored.
+ * The changes of a poll are written with one script call that touches only the
+ * {@code status} and {@code updatedAt} fields, and that enforces the same ordering in Redis
+ * for orders this instance has no memory of (after a restart or a rebalance).
+ * <p>
+ * The order id and the outcome are all the tracker needs, so it reads them from the event
+ * headers and never decodes a payload, except from producers that do not write them yet.
+ */
+@Component
+@Slf4j
+public class OrderSagaTracker implements ConsumerSeekAware {
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADVANCE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/advance-order-status.lua"), List.class);
+
+    private static final String INVENTORY_RESULT_TYPE = new InventoryReservationResultEvent().getEventType();
+    private static final String PAYMENT_TYPE = new PaymentProcessedEvent().getEventType();
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxTrackedOrders;
+    private final Map<Integer, Map<String, OrderSagaStatus>> statusByPartition = new ConcurrentHashMap<>();
+
+    public OrderSagaTracker(StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${order.saga.max-tracked-orders:100000}") int maxTrackedOrders) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxTrackedOrders = maxTrackedOrders;
+    }
+
+    @KafkaListener(topics = {"inventory-result-events", "payment-events"}, groupId = "order-saga",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = {"partition.assignment.strategy=org.apache.kafka.clients.consumer.RangeAssignor",
+                    "event.route.headers-only=true"})
+    public void handleSagaEvents(List<ConsumerRecord<String, Object>> records) {
+        Map<String, OrderSagaStatus> changes = new LinkedHashMap<>();
+        Map<String, Integer> partitions = new HashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            String orderId = orderId(record.value());
+            OrderSagaStatus next = nextStatus(record.value());
+            if (orderId == null || next == null) {
+                log.warn("Ignoring unexpected record on {} at offset {}", record.topic(), record.offset());
+                continue;
+            }
+
+            OrderSagaStatus current = changes.containsKey(orderId)
+                    ? changes.get(orderId)
+                    : tracked(record.partition()).getOrDefault(orderId, OrderSagaStatus.PENDING);
+            if (!current.canAdvanceTo(next)) {
+                log.debug("Ignoring {} for order {} already {}", next, orderId, current);
+                meterRegistry.counter("order.saga.ignored").increment();
+                continue;
+            }
+            changes.put(orderId, next);
+            partitions.put(orderId, record.partition());
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+        // Remembered only once written: if the write throws, the redelivered poll must not look stale
+        write(changes);
+        changes.forEach((orderId, status) -> {
+            Map<String, OrderSagaStatus> tracked = tracked(partitions.get(orderId));
+            if (status.isFinal()) {
+                // Final orders need no memory: the script rejects anything that arrives for them later
+                tracked.remove(orderId);
+            } else {
+                tracked.put(orderId, status);
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        // Another consumer takes over these orders; the script guards whatever it writes
+        partitions.forEach(partition -> statusByPartition.remove(partition.partition()));
+    }
+
+    private void write(Map<String, OrderSagaStatus> changes) {
+        List<String> keys = new ArrayList<>(changes.size());
+        List<String> args = new ArrayList<>(changes.size() + 1);
+        args.add(LocalDateTime.now().toString());
+        changes.forEach((orderId, status) -> {
+            keys.add(OrderStore.KEYSPACE + ":" + orderId);
+            args.add(status.name());
+        });
+
+        List<?> createdAts = redisTemplate.execute(ADVANCE_SCRIPT, keys, args.toArray());
+        LocalDateTime now = LocalDateTime.now();
+        int i = 0;
+        for (Map.Entry<String, OrderSagaStatus> change : changes.entrySet()) {
+            String createdAt = (String) createdAts.get(i++);
+            if (createdAt.isEmpty()) {
+                meterRegistry.counter("order.saga.ignored").increment();
+                continue;
+            }
+            OrderSagaStatus status = change.getValue();
+            meterRegistry.counter("order.saga.transitions", "status", status.name()).increment();
+            if (status.isFinal()) {
+                Timer.builder("order.saga.completion")
+                        .description("Time from order creation to its final saga status")
+                        .tag("status", status.name())
+                        .publishPercentiles(0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(Duration.between(LocalDateTime.parse(createdAt), now));
+            }
+            log.info("Order {} is now {}", change.getKey(), status);
+        }
+    }
+
+    private Map<String, OrderSagaStatus> tracked(int partition) {
+        return statusByPartition.computeIfAbsent(partition, p -> new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OrderSagaStatus> eldest) {
+                return size() > maxTrackedOrders;
+            }
+        });
+    }
+
+    private static String orderId(Object event) {
+        if (event instanceof EventMetadata metadata) {
+            return metadata.orderId();
+        }
+        if (event instanceof InventoryReservationResultEvent result) {
+            return result.getOrderId();
+        }
+        if (event instanceof PaymentProcessedEvent payment) {
+            return payment.getOrderId();
+        }
+        return null;
+    }
+
+    private static OrderSagaStatus nextStatus(Object event) {
+        if (event instanceof EventMetadata metadata) {
+            boolean success = Boolean.TRUE.equals(metadata.success());
+            if (INVENTORY_RESULT_TYPE.equals(metadata.eventType())) {
+                return success ? OrderSagaStatus.RESERVED : OrderSagaStatus.FAILED;
+            }
+            if (PAYMENT_TYPE.equals(metadata.eventType())) {
+                return success ? OrderSagaStatus.PAID : OrderSagaStatus.CANCELLED;
+            }
+            return null;
+        }
+        if (event instanceof InventoryReservationResultEvent result) {
+            return Boolean.TRUE.equals(result.getSuccess()) ? OrderSagaStatus.RESERVED : OrderSagaStatus.FAILED;
+        }
+        if (event instanceof PaymentProcessedEvent payment) {
+            return Boolean.TRUE.equals(payment.getSuccess()) ? OrderSagaStatus.PAID : OrderSagaStatus.CANCELLED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.eventdriven.order.service;
+
+/**
+ * Thrown when an order is not created because its event could not be published straight to
+ * Kafka: the publish window was full, or the producer reported the send failed and the order
+ * was taken back.
+ */
+public class OrderNotPublishedException extends RuntimeException {
+
+    public OrderNotPublishedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
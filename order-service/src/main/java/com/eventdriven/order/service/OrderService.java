@@ -1,17 +1,36 @@
 package com.eventdriven.order.service;
 
+import com.eventdriven.order.dto.BatchOrderItemResult;
+import com.eventdriven.order.dto.BatchOrderResult;
+import com.eventdriven.order.dto.OrderPage;
 import com.eventdriven.order.model.Order;
-import com.eventdriven.order.repository.OrderRepository;
+import com.eventdriven.order.repository.OrderStore;
 import com.eventdriven.shared.dto.OrderRequest;
 import com.eventdriven.shared.dto.OrderResponse;
 import com.eventdriven.shared.events.OrderCreatedEvent;
+import com.eventdriven.shared.idempotency.RecentKeyFilter;
+import com.eventdriven.shared.kafka.EventPublisher;
+import com.eventdriven.shared.kafka.PublishRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,67 +38,350 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderService {
 
-    private final OrderRepository orderRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderStore orderStore;
+    private final EventPublisher eventPublisher;
+    private final RecentKeyFilter recentIdempotencyKeys;
+    private final MeterRegistry meterRegistry;
+    private final Validator validator;
+
+    @Value("${order.outbox.enabled:true}")
+    private boolean outboxEnabled;
+
+    @Value("${order.publish.ack-timeout:5s}")
+    private Duration publishAckTimeout;
+
+    @Value("${order.batch.max-size:5000}")
+    private int batchMaxSize;
+
+    @Value("${order.batch.chunk-size:500}")
+    private int batchChunkSize;
 
     public OrderResponse createOrder(OrderRequest request) {
+        return createOrder(request, null).order();
+    }
+
+    /**
+     * Creates an order, or returns the order already created under {@code idempotencyKey}
+     * (may be {@code null}) without creating another one or publishing another event. Keys
+     * this instance has certainly not seen go straight to the store, which claims the key in
+     * the same call that writes the order; only keys the prefilter might have seen are looked
+     * up first.
+     */
+    public Submission createOrder(OrderRequest request, String idempotencyKey) {
         log.info("Creating order for customer: {}", request.getCustomerId());
 
+        if (idempotencyKey != null && recentIdempotencyKeys.mightContain(idempotencyKey)) {
+            Optional<String> existing = orderStore.findOrderIdByIdempotencyKey(idempotencyKey);
+            if (existing.isPresent()) {
+                return replay(existing.get(), idempotencyKey, "prefilter");
+            }
+        }
+
         // Create order
-        Order order = new Order(
+        Order order = toOrder(request);
+        OrderCreatedEvent event = toCreatedEvent(order);
+
+        if (outboxEnabled) {
+            // Order and event are stored in one transaction; the outbox relay publishes the event
+            Optional<String> existing = orderStore.saveWithEvent(order, "order-events", event, idempotencyKey);
+            if (existing.isPresent()) {
+                return replay(existing.get(), idempotencyKey, "store");
+            }
+            remember(idempotencyKey);
+            log.info("Order created with ID: {}, OrderCreatedEvent queued in outbox", order.getOrderId());
+            return new Submission(mapToResponse(order), false, false);
+        }
+
+        // The event goes straight to Kafka: take a publish slot first, so a full window rejects
+        // the order before anything is stored
+        CompletableFuture<?> send;
+        try (EventPublisher.Permit permit = eventPublisher.reserve("order-events")) {
+            Optional<String> existing = orderStore.save(order, idempotencyKey);
+            if (existing.isPresent()) {
+                return replay(existing.get(), idempotencyKey, "store");
+            }
+            log.info("Order created with ID: {}", order.getOrderId());
+            send = permit.publish(order.getOrderId(), event);
+        } catch (PublishRejectedException e) {
+            meterRegistry.counter("order.create.unpublished", "reason", "rejected").increment();
+            throw new OrderNotPublishedException("Order not created: " + e.getMessage(), e);
+        }
+
+        Ack ack = awaitAck(send, System.nanoTime() + publishAckTimeout.toNanos());
+        if (ack.failure() != null) {
+            log.error("OrderCreatedEvent for order {} was not published, taking the order back",
+                    order.getOrderId(), ack.failure());
+            meterRegistry.counter("order.create.unpublished", "reason", "failed").increment();
+            takeBack(order, idempotencyKey);
+            throw new OrderNotPublishedException("Order not created: its event was not published", ack.failure());
+        }
+        // Unless the send failed, the order stays whether or not the broker acknowledged in time
+        remember(idempotencyKey);
+        if (ack.pending()) {
+            log.warn("OrderCreatedEvent for order {} not acknowledged within {}, keeping the order",
+                    order.getOrderId(), publishAckTimeout);
+            meterRegistry.counter("order.create.publish.pending").increment();
+            return new Submission(mapToResponse(order), false, true);
+        }
+        log.info("OrderCreatedEvent published for order: {}", order.getOrderId());
+        return new Submission(mapToResponse(order), false, false);
+    }
+
+    /**
+     * Waits until {@code deadline} ({@link System#nanoTime}) for the broker to acknowledge a
+     * send. Only a send the producer reports failed is known not to reach the broker; one
+     * still unacknowledged at the deadline, or when the thread is interrupted, may yet do so.
+     */
+    private static Ack awaitAck(CompletableFuture<?> send, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return Ack.ACKNOWLEDGED;
+        } catch (ExecutionException e) {
+            return new Ack(false, e.getCause());
+        } catch (TimeoutException e) {
+            return Ack.PENDING;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Ack.PENDING;
+        }
+    }
+
+    /** Deletes an order whose event is known not to be published, so a retry starts afresh. */
+    private boolean takeBack(Order order, String idempotencyKey) {
+        try {
+            orderStore.delete(order, idempotencyKey);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not take back order {} after its event was not published", order.getOrderId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a batch of orders. Each request is validated on its own and invalid ones are
+     * reported without failing the batch. Valid orders are stored with one pipelined Redis
+     * call per {@code order.batch.chunk-size} orders, and their events are queued in the
+     * outbox with them or, without the outbox, sent together and flushed as one producer
+     * batch. The result reports every order in submission order.
+     * <p>
+     * If storing a chunk fails, any subset of it may have been stored, so the chunk's ids are
+     * read back: stored orders count as created, the rest as {@code FAILED}, and if the read
+     * back fails too, all of them as {@code UNKNOWN}. Batch orders carry no idempotency key,
+     * so clients must check {@code UNKNOWN} ids before resubmitting them.
+     */
+    public BatchOrderResult createOrders(List<OrderRequest> requests) {
+        if (requests.size() > batchMaxSize) {
+            throw new IllegalArgumentException("A batch holds at most " + batchMaxSize + " orders, got " + requests.size());
+        }
+        log.info("Creating batch of {} orders", requests.size());
+        long start = System.nanoTime();
+        BatchOrderItemResult[] results = new BatchOrderItemResult[requests.size()];
+        List<Integer> indexes = new ArrayList<>(requests.size());
+        List<Order> orders = new ArrayList<>(requests.size());
+        List<OrderCreatedEvent> events = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            String violations = violations(requests.get(i));
+            if (violations != null) {
+                results[i] = new BatchOrderItemResult(i, null, BatchOrderItemResult.REJECTED, violations);
+                continue;
+            }
+            Order order = toOrder(requests.get(i));
+            indexes.add(i);
+            orders.add(order);
+            events.add(toCreatedEvent(order));
+        }
+
+        for (int from = 0; from < orders.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, orders.size());
+            List<Order> chunk = orders.subList(from, to);
+            // Ids stored by a failed chunk, read back; null while the whole chunk is stored
+            Set<String> stored = null;
+            Set<String> taken = Set.of();
+            boolean storedKnown = true;
+            String error = null;
+            try {
+                taken = orderStore.saveAll(chunk, "order-events", outboxEnabled ? events.subList(from, to) : null);
+            } catch (RuntimeException e) {
+                log.error("Failed to store orders {} to {} of batch, reading back which were stored", from, to - 1, e);
+                error = e.getMessage();
+                try {
+                    stored = orderStore.findExistingIds(chunk.stream().map(Order::getOrderId).toList());
+                } catch (RuntimeException readError) {
+                    log.error("Could not read back which orders of the failed chunk were stored", readError);
+                    storedKnown = false;
+                }
+            }
+            for (int j = from; j < to; j++) {
+                int index = indexes.get(j);
+                String orderId = orders.get(j).getOrderId();
+                if (taken.contains(orderId)) {
+                    results[index] = new BatchOrderItemResult(index, orderId, BatchOrderItemResult.FAILED,
+                            "Order id already in use by another order");
+                } else if (!storedKnown) {
+                    results[index] = new BatchOrderItemResult(index, orderId, BatchOrderItemResult.UNKNOWN,
+                            "Storing the order failed and it may or may not be stored: " + error);
+                } else if (stored == null || stored.contains(orderId)) {
+                    results[index] = new BatchOrderItemResult(index, orderId, BatchOrderItemResult.CREATED, null);
+                } else {
+                    results[index] = new BatchOrderItemResult(index, orderId, BatchOrderItemResult.FAILED,
+                            "Could not store order: " + error);
+                }
+            }
+        }
+
+        if (!outboxEnabled) {
+            publishAll(results, indexes, orders, events);
+        }
+
+        int created = 0;
+        int pending = 0;
+        int rejected = 0;
+        int failed = 0;
+        for (BatchOrderItemResult result : results) {
+            switch (result.getStatus()) {
+                case BatchOrderItemResult.CREATED -> created++;
+                case BatchOrderItemResult.PUBLISH_PENDING -> pending++;
+                case BatchOrderItemResult.REJECTED -> rejected++;
+                default -> failed++;
+            }
+            meterRegistry.counter("order.batch.orders", "outcome", result.getStatus().toLowerCase()).increment();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Batch of {} orders done in {} ms: {} created, {} pending, {} rejected, {} failed",
+                requests.size(), elapsedMs, created, pending, rejected, failed);
+        return new BatchOrderResult(created, pending, rejected, failed, elapsedMs, Arrays.asList(results));
+    }
+
+    /**
+     * Sends the events of the stored orders, flushes them as one batch and waits for the acks,
+     * all within one {@code order.publish.ack-timeout}. As for a single order, an order whose
+     * send is rejected or fails is taken back, and one still unacknowledged is kept.
+     */
+    private void publishAll(BatchOrderItemResult[] results, List<Integer> indexes, List<Order> orders,
+            List<OrderCreatedEvent> events) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        for (int j = 0; j < events.size(); j++) {
+            OrderCreatedEvent event = events.get(j);
+            BatchOrderItemResult result = results[indexes.get(j)];
+            CompletableFuture<?> send = null;
+            if (BatchOrderItemResult.CREATED.equals(result.getStatus())) {
+                try {
+                    send = eventPublisher.publish("order-events", event.getOrderId(), event);
+                } catch (RuntimeException e) {
+                    // Rejected before it was queued, e.g. serialization or a full publish window
+                    markPublishFailed(result, orders.get(j), e);
+                }
+            }
+            sends.add(send);
+        }
+        eventPublisher.flush();
+
+        long deadline = System.nanoTime() + publishAckTimeout.toNanos();
+        for (int j = 0; j < sends.size(); j++) {
+            if (sends.get(j) == null) {
+                continue;
+            }
+            BatchOrderItemResult result = results[indexes.get(j)];
+            Ack ack = awaitAck(sends.get(j), deadline);
+            if (ack.failure() != null) {
+                markPublishFailed(result, orders.get(j), ack.failure());
+            } else if (ack.pending()) {
+                meterRegistry.counter("order.create.publish.pending").increment();
+                result.setStatus(BatchOrderItemResult.PUBLISH_PENDING);
+                result.setError("Order stored but its event was not acknowledged within " + publishAckTimeout
+                        + "; it may still be published");
+            }
+        }
+    }
+
+    private void markPublishFailed(BatchOrderItemResult result, Order order, Throwable e) {
+        log.error("Failed to publish OrderCreatedEvent for order {}, taking the order back", result.getOrderId(), e);
+        if (takeBack(order, null)) {
+            result.setStatus(BatchOrderItemResult.PUBLISH_FAILED);
+            result.setError("Order not created: its event was not published: " + e.getMessage());
+        } else {
+            result.setStatus(BatchOrderItemResult.UNKNOWN);
+            result.setError("Its event was not published and the order may or may not be stored: " + e.getMessage());
+        }
+    }
+
+    private String violations(OrderRequest request) {
+        if (request == null) {
+            return "Order request is missing";
+        }
+        Set<ConstraintViolation<OrderRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private Order toOrder(OrderRequest request) {
+        return new Order(
                 request.getCustomerId(),
                 request.getItems(),
                 request.getTotalAmount(),
                 request.getShippingAddress(),
                 request.getPaymentMethod());
+    }
 
-        // Save to Redis
-        Order savedOrder = orderRepository.save(order);
-        log.info("Order created with ID: {}", savedOrder.getOrderId());
-
-        // Publish event to Kafka
-        OrderCreatedEvent event = new OrderCreatedEvent(
-                savedOrder.getOrderId(),
-                savedOrder.getCustomerId(),
-                savedOrder.getItems(),
-                savedOrder.getTotalAmount(),
-                savedOrder.getShippingAddress(),
-                savedOrder.getPaymentMethod());
+    private OrderCreatedEvent toCreatedEvent(Order order) {
+        return new OrderCreatedEvent(
+                order.getOrderId(),
+                order.getCustomerId(),
+                order.getItems(),
+                order.getTotalAmount(),
+                order.getShippingAddress(),
+                order.getPaymentMethod());
+    }
 
-        kafkaTemplate.send("order-events", savedOrder.getOrderId(), event);
-        log.info("OrderCreatedEvent published for order: {}", savedOrder.getOrderId());
+    private Submission replay(String orderId, String idempotencyKey, String detectedBy) {
+        log.info("Idempotency key {} already used for order {}, returning it", idempotencyKey, orderId);
+        meterRegistry.counter("order.idempotency.replayed", "detected_by", detectedBy).increment();
+        remember(idempotencyKey);
+        OrderResponse original = getOrder(orderId)
+                .orElseThrow(() -> new IllegalStateException("Order " + orderId + " of idempotency key " + idempotencyKey + " no longer exists"));
+        return new Submission(original, true, false);
+    }
 
-        return mapToResponse(savedOrder);
+    private void remember(String idempotencyKey) {
+        if (idempotencyKey != null) {
+            recentIdempotencyKeys.put(idempotencyKey);
+        }
     }
 
     public Optional<OrderResponse> getOrder(String orderId) {
         log.info("Fetching order: {}", orderId);
-        return orderRepository.findByOrderId(orderId)
+        return orderStore.findById(orderId)
                 .map(this::mapToResponse);
     }
 
     public List<OrderResponse> getAllOrders() {
         log.info("Fetching all orders");
-        return ((List<Order>) orderRepository.findAll())
+        return orderStore.findAll()
                 .stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
-    public List<OrderResponse> getOrdersByCustomer(String customerId) {
-        log.info("Fetching orders for customer: {}", customerId);
-        return orderRepository.findByCustomerId(customerId)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public OrderPage getOrdersByCustomer(String customerId, String cursor, int limit,
+            LocalDateTime from, LocalDateTime to, Sort.Direction direction) {
+        log.info("Fetching orders page for customer: {}, limit: {}", customerId, limit);
+        OrderStore.Page page = orderStore.findCustomerPage(customerId, cursor, limit, from, to, direction);
+        return new OrderPage(page.orders().stream().map(this::mapToResponse).collect(Collectors.toList()),
+                page.nextCursor());
     }
 
     public void updateOrderStatus(String orderId, String status) {
         log.info("Updating order {} status to: {}", orderId, status);
-        orderRepository.findByOrderId(orderId).ifPresent(order -> {
+        orderStore.findById(orderId).ifPresent(order -> {
             order.setStatus(status);
-            order.setUpdatedAt(java.time.LocalDateTime.now());
-            orderRepository.save(order);
+            order.setUpdatedAt(LocalDateTime.now());
+            orderStore.update(order);
         });
     }
 
@@ -95,4 +397,20 @@ public class OrderService {
                 order.getCreatedAt(),
                 order.getUpdatedAt());
     }
-}
\ No newline at end of file
+
+    /** The order of a submission, and whether it was created by an earlier submission. */
+    /**
+     * @param replayed       the order was created earlier under the same idempotency key
+     * @param publishPending the order is stored and its event sent, but the broker had not
+     *                       acknowledged it within {@code order.publish.ack-timeout}
+     */
+    public record Submission(OrderResponse order, boolean replayed, boolean publishPending) {
+    }
+
+    /** Outcome of waiting for a send: acknowledged, failed with {@code failure}, or still pending. */
+    private record Ack(boolean pending, Throwable failure) {
+
+        private static final Ack ACKNOWLEDGED = new Ack(false, null);
+        private static final Ack PENDING = new Ack(true, null);
+    }
+}
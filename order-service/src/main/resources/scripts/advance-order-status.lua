@@ -0,0 +1,32 @@
+-- Advances the status of a batch of orders, never moving an order backwards.
+-- KEYS: order hash keys
+-- ARGV[1]: updatedAt timestamp, ARGV[2..n]: target statuses aligned with KEYS
+-- Ranks: PENDING < RESERVED < PAID | FAILED | CANCELLED. A status outside the saga
+-- (for example one set through PUT /orders/{id}/status) is never overwritten, and the
+-- first final status wins. Missing orders are skipped.
+-- Returns one entry per key: the order's createdAt when its status changed, '' otherwise.
+-- Orders stored in the binary format are MessagePack maps and are rewritten whole.
+local rank = { PENDING = 0, RESERVED = 1, PAID = 2, FAILED = 2, CANCELLED = 2 }
+local changed = {}
+for i, key in ipairs(KEYS) do
+    changed[i] = ''
+    local target = ARGV[i + 1]
+    local keyType = redis.call('TYPE', key).ok
+    if keyType == 'hash' then
+        local currentRank = rank[redis.call('HGET', key, 'status') or '']
+        if currentRank and currentRank < rank[target] then
+            redis.call('HSET', key, 'status', target, 'updatedAt', ARGV[1])
+            changed[i] = redis.call('HGET', key, 'createdAt') or ''
+        end
+    elseif keyType == 'string' then
+        local order = cmsgpack.unpack(redis.call('GET', key))
+        local currentRank = rank[order.status or '']
+        if currentRank and currentRank < rank[target] then
+            order.status = target
+            order.updatedAt = ARGV[1]
+            redis.call('SET', key, cmsgpack.pack(order))
+            changed[i] = order.createdAt or ''
+        end
+    end
+end
+return changed
@@ -0,0 +1,40 @@
+-- Stores a new order with its index entries and, optionally, its outbox entry in one atomic
+-- step, unless an order is already stored under its id or its idempotency key already
+-- belongs to another order.
+-- KEYS[1]: order key, KEYS[2]: keyspace id set, KEYS[3]: index tracking set of the order,
+-- KEYS[4]: order:by-customer:<customerId>, KEYS[5]: outbox stream,
+-- KEYS[6..n]: index sets of the order, followed by the idempotency key when ARGV[3] is set
+-- ARGV[1]: order id, ARGV[2]: customer index score,
+-- ARGV[3]: idempotency key TTL in milliseconds ('' for no idempotency key),
+-- ARGV[4]: binary value ('' for the hash format), ARGV[5]: number of hash arguments,
+-- ARGV[6..]: hash field/value pairs, then outbox entry field/value pairs (none for no entry)
+-- Returns '' when stored, '-' when the order id is taken (two instances generating ids with the
+-- same node id), or the id of the order the idempotency key already belongs to.
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return '-'
+end
+
+local lastIndexKey = #KEYS
+if ARGV[3] ~= '' then
+    lastIndexKey = #KEYS - 1
+    if not redis.call('SET', KEYS[#KEYS], ARGV[1], 'NX', 'PX', ARGV[3]) then
+        return redis.call('GET', KEYS[#KEYS])
+    end
+end
+
+local hashArgs = tonumber(ARGV[5])
+if ARGV[4] ~= '' then
+    redis.call('SET', KEYS[1], ARGV[4])
+else
+    redis.call('HSET', KEYS[1], unpack(ARGV, 6, 5 + hashArgs))
+end
+redis.call('SADD', KEYS[2], ARGV[1])
+for i = 6, lastIndexKey do
+    redis.call('SADD', KEYS[i], ARGV[1])
+    redis.call('SADD', KEYS[3], KEYS[i])
+end
+redis.call('ZADD', KEYS[4], ARGV[2], ARGV[1])
+if #ARGV > 5 + hashArgs then
+    redis.call('XADD', KEYS[5], '*', unpack(ARGV, 6 + hashArgs))
+end
+return ''
@@ -0,0 +1,16 @@
+-- Removes an order written by create-order.lua, with its index entries and, when it still
+-- belongs to the order, its idempotency key. Outbox entries are left alone.
+-- KEYS[1]: order key, KEYS[2]: keyspace id set, KEYS[3]: index tracking set of the order,
+-- KEYS[4]: order:by-customer:<customerId>, KEYS[5]: idempotency key (optional)
+-- ARGV[1]: order id
+-- Returns 1 when the order existed, 0 otherwise.
+for _, indexKey in ipairs(redis.call('SMEMBERS', KEYS[3])) do
+    redis.call('SREM', indexKey, ARGV[1])
+end
+redis.call('DEL', KEYS[3])
+redis.call('SREM', KEYS[2], ARGV[1])
+redis.call('ZREM', KEYS[4], ARGV[1])
+if KEYS[5] and redis.call('GET', KEYS[5]) == ARGV[1] then
+    redis.call('DEL', KEYS[5])
+end
+return redis.call('DEL', KEYS[1])
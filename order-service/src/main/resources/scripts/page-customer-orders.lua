@@ -0,0 +1,62 @@
+-- Reads one page of a customer's orders from its createdAt-scored sorted set.
+-- KEYS[1]: order:by-customer:<customerId>
+-- ARGV[1]: 'asc' or 'desc', ARGV[2]/ARGV[3]: min/max score ('-inf'/'+inf' for no bound),
+-- ARGV[4]/ARGV[5]: score and id of the last order of the previous page ('' on the first page),
+-- ARGV[6]: page size, ARGV[7]: order hash key prefix
+-- Returns {lastScore, lastId, id1, order1, id2, order2, ...}; lastScore and lastId are the
+-- position to resume from, or '' when this is the last page. Each order is its HGETALL field
+-- list, or its value when stored in the binary format. Ids whose order no longer exists are
+-- left out.
+local asc = ARGV[1] == 'asc'
+local min, max = ARGV[2], ARGV[3]
+local afterScore, afterId = ARGV[4], ARGV[5]
+local limit = tonumber(ARGV[6])
+
+if afterScore ~= '' then
+    -- Resume at the previous page's score; ties there are skipped by id below
+    if asc then min = afterScore else max = afterScore end
+end
+
+-- Collect one id past the page to tell whether another page follows
+local ids, scores = {}, {}
+local offset = 0
+while #ids <= limit do
+    local batch
+    if asc then
+        batch = redis.call('ZRANGEBYSCORE', KEYS[1], min, max, 'WITHSCORES', 'LIMIT', offset, limit + 1)
+    else
+        batch = redis.call('ZREVRANGEBYSCORE', KEYS[1], max, min, 'WITHSCORES', 'LIMIT', offset, limit + 1)
+    end
+    if #batch == 0 then
+        break
+    end
+    for i = 1, #batch, 2 do
+        local id, score = batch[i], batch[i + 1]
+        -- Equal scores are ordered by id, ascending for ZRANGEBYSCORE and descending for ZREVRANGEBYSCORE
+        local seen = afterScore ~= '' and tonumber(score) == tonumber(afterScore)
+                and ((asc and id <= afterId) or (not asc and id >= afterId))
+        if not seen and #ids <= limit then
+            table.insert(ids, id)
+            table.insert(scores, score)
+        end
+    end
+    offset = offset + #batch / 2
+end
+
+local result = {'', ''}
+if #ids > limit then
+    result[1] = scores[limit]
+    result[2] = ids[limit]
+end
+for i = 1, math.min(#ids, limit) do
+    local key = ARGV[7] .. ids[i]
+    local keyType = redis.call('TYPE', key).ok
+    if keyType == 'string' then
+        table.insert(result, ids[i])
+        table.insert(result, redis.call('GET', key))
+    elseif keyType == 'hash' then
+        table.insert(result, ids[i])
+        table.insert(result, redis.call('HGETALL', key))
+    end
+end
+return result
@@ -0,0 +1,88 @@
+package com.eventdriven.order.outbox;
+
+import com.eventdriven.order.repository.OrderStore;
+import com.eventdriven.shared.id.IdGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The relay's claim pass over a mocked stream (jedis-mock has no consumer groups): every page
+ * of the group's pending list is looked at, not only the first, and only consumers holding
+ * nothing that stopped reading are removed.
+ */
+class OrderOutboxRelayTest {
+
+    private static final String GROUP = "outbox-relay";
+    private static final Duration CLAIM_IDLE = Duration.ofSeconds(30);
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void claimsAbandonedEntriesOnEveryPageAndRemovesIdleConsumers() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        StreamOperations<String, Object, Object> stream = mock(StreamOperations.class);
+        when(redisTemplate.opsForStream()).thenReturn(stream);
+        when(stream.pending(eq(OrderStore.OUTBOX_STREAM), eq(GROUP), any(Range.class), anyLong())).thenAnswer(call -> {
+            Range<String> range = call.getArgument(2);
+            // Pages of two: the relay must ask again from just after the last entry it saw
+            return range.getLowerBound().getValue().isEmpty()
+                    ? pending(pendingMessage("1-1", "retired-relay"), pendingMessage("1-2", "retired-relay"))
+                    : range.getLowerBound().getValue().get().equals("1-3")
+                            ? pending(pendingMessage("1-5", "retired-relay"))
+                            : pending();
+        });
+        when(stream.read(any(Consumer.class), any(), any())).thenReturn(List.of());
+        when(stream.size(OrderStore.OUTBOX_STREAM)).thenReturn(0L);
+        String self = "relay-" + IdGenerator.defaultNodeId();
+        when(stream.consumers(OrderStore.OUTBOX_STREAM, GROUP)).thenReturn(StreamInfo.XInfoConsumers.fromList(GROUP, List.of(
+                consumerInfo("retired-relay", 0, CLAIM_IDLE.toMillis()),
+                consumerInfo("busy-relay", 2, CLAIM_IDLE.toMillis()),
+                consumerInfo("reading-relay", 0, 100),
+                consumerInfo(self, 3, 0))));
+
+        OrderOutboxRelay relay = new OrderOutboxRelay(redisTemplate, mock(KafkaTemplate.class), new ObjectMapper(),
+                new SimpleMeterRegistry(), 2, 10, Duration.ofMillis(10), CLAIM_IDLE);
+        relay.relayBatch();
+        relay.shutdown();
+
+        verify(stream).claim(OrderStore.OUTBOX_STREAM, GROUP, self, CLAIM_IDLE, RecordId.of("1-1"), RecordId.of("1-2"));
+        verify(stream).claim(OrderStore.OUTBOX_STREAM, GROUP, self, CLAIM_IDLE, RecordId.of("1-5"));
+        verify(stream).deleteConsumer(OrderStore.OUTBOX_STREAM, Consumer.from(GROUP, "retired-relay"));
+        verify(stream, never()).deleteConsumer(OrderStore.OUTBOX_STREAM, Consumer.from(GROUP, "busy-relay"));
+        verify(stream, never()).deleteConsumer(OrderStore.OUTBOX_STREAM, Consumer.from(GROUP, "reading-relay"));
+        verify(stream, never()).deleteConsumer(OrderStore.OUTBOX_STREAM, Consumer.from(GROUP, self));
+    }
+
+    private static PendingMessages pending(PendingMessage... messages) {
+        return new PendingMessages(GROUP, List.of(messages));
+    }
+
+    private static PendingMessage pendingMessage(String id, String consumerName) {
+        return new PendingMessage(RecordId.of(id), Consumer.from(GROUP, consumerName), CLAIM_IDLE.plusSeconds(1), 1);
+    }
+
+    /** One consumer as XINFO CONSUMERS replies it. */
+    private static List<Object> consumerInfo(String name, long pending, long idleMs) {
+        return List.of("name", name, "pending", pending, "idle", idleMs);
+    }
+}
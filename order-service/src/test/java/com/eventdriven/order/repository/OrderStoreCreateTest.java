@@ -0,0 +1,127 @@
+package com.eventdriven.order.repository;
+
+import com.eventdriven.order.model.Order;
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.storage.StorageFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link OrderStore} against jedis-mock: an order id generated twice, as by two instances
+ * sharing a node id, must never overwrite the order stored first, nor claim an idempotency
+ * key for the refused order.
+ */
+class OrderStoreCreateTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private AnnotationConfigApplicationContext context;
+    private StringRedisTemplate redisTemplate;
+    private OrderStore store;
+
+    @BeforeEach
+    void startRedis() throws Exception {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()),
+                LettuceClientConfiguration.builder()
+                        // jedis-mock does not implement HELLO, so skip the RESP3 handshake
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("redisConnectionFactory", connectionFactory);
+        context.register(RepositoryConfiguration.class);
+        context.refresh();
+        redisTemplate = context.getBean(StringRedisTemplate.class);
+        store = new OrderStore(redisTemplate, context.getBean(RedisConverter.class), context.getBean(OrderRepository.class),
+                new ObjectMapper(), new SimpleMeterRegistry(), StorageFormat.HASH, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void stopRedis() throws Exception {
+        context.close();
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void createRefusesAnOrderIdAlreadyStored() {
+        Order first = order("customer-1");
+        store.save(first);
+        Order duplicate = order("customer-2");
+        duplicate.setOrderId(first.getOrderId());
+
+        assertThatThrownBy(() -> store.save(duplicate, "key-1"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(first.getOrderId());
+
+        assertThat(customerOf(first.getOrderId())).isEqualTo("customer-1");
+        assertThat(store.findOrderIdByIdempotencyKey("key-1")).isEmpty();
+        assertThat(redisTemplate.opsForZSet().size(OrderStore.customerIndex("customer-2"))).isZero();
+    }
+
+    @Test
+    void saveAllReportsOrderIdsAlreadyStored() {
+        Order first = order("customer-1");
+        store.save(first);
+        Order duplicate = order("customer-2");
+        duplicate.setOrderId(first.getOrderId());
+        Order fresh = order("customer-3");
+
+        assertThat(store.saveAll(List.of(duplicate, fresh), "order-events", null)).containsExactly(first.getOrderId());
+
+        assertThat(customerOf(first.getOrderId())).isEqualTo("customer-1");
+        assertThat(customerOf(fresh.getOrderId())).isEqualTo("customer-3");
+    }
+
+    private Object customerOf(String orderId) {
+        return redisTemplate.opsForHash().get(OrderStore.KEYSPACE + ":" + orderId, "customerId");
+    }
+
+    private static Order order(String customerId) {
+        return new Order(customerId, List.of(new OrderItem("p1", 1, 10.0)), 10.0, "1 Main St", "CREDIT_CARD");
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableRedisRepositories(basePackageClasses = OrderRepository.class)
+    static class RepositoryConfiguration {
+
+        @Bean
+        public RedisTemplate<?, ?> redisTemplate(RedisConnectionFactory connectionFactory) {
+            RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+            template.setConnectionFactory(connectionFactory);
+            return template;
+        }
+
+        @Bean
+        public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+    }
+}
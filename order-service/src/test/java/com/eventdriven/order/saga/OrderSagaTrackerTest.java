@@ -0,0 +1,59 @@
+package com.eventdriven.order.saga;
+
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link OrderSagaTracker} remembers a transition only once the script has written it: a
+ * poll whose write failed is redelivered and must be written again, not ignored as stale.
+ */
+class OrderSagaTrackerTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderSagaTracker tracker = new OrderSagaTracker(redisTemplate, meterRegistry, 100);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pollIsWrittenAgainAfterAFailedWrite() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisSystemException("Redis unavailable", null))
+                .thenReturn(List.of("2024-05-01T12:30:15"));
+        List<ConsumerRecord<String, Object>> poll = List.of(
+                record(0, "order-1", true),
+                // The same outcome twice in one poll, as a redelivered producer batch leaves it
+                record(1, "order-1", true));
+
+        assertThatThrownBy(() -> tracker.handleSagaEvents(poll)).isInstanceOf(RedisSystemException.class);
+        tracker.handleSagaEvents(poll);
+        // A later duplicate is remembered as written and costs no round trip
+        tracker.handleSagaEvents(List.of(record(2, "order-1", true)));
+
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), eq(List.of("order:order-1")), any(Object[].class));
+        assertThat(meterRegistry.counter("order.saga.transitions", "status", "RESERVED").count()).isEqualTo(1);
+        // The second record of each delivery and the later duplicate
+        assertThat(meterRegistry.counter("order.saga.ignored").count()).isEqualTo(3);
+    }
+
+    private static ConsumerRecord<String, Object> record(long offset, String orderId, boolean success) {
+        return new ConsumerRecord<>("inventory-result-events", 0, offset, orderId,
+                new InventoryReservationResultEvent(orderId, success, null, List.of()));
+    }
+}
@@ -1,5 +1,7 @@
 package com.eventdriven.shared.events;
 
+import com.eventdriven.shared.id.IdGenerator;
+import com.eventdriven.shared.tracing.EventClock;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,9 +20,13 @@ public abstract class BaseEvent {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
 
+    /** Creation time in microseconds since the epoch; {@code timestamp} is kept to the second on the wire. */
+    private Long timestampMicros;
+
     public BaseEvent(String eventType) {
-        this.eventId = java.util.UUID.randomUUID().toString();
+        this.eventId = IdGenerator.nextId();
         this.eventType = eventType;
         this.timestamp = LocalDateTime.now();
+        this.timestampMicros = EventClock.nowMicros();
     }
 }
\ No newline at end of file
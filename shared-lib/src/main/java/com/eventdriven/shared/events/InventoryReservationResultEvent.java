@@ -0,0 +1,45 @@
+package com.eventdriven.shared.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of reserving inventory for a whole order, published once per order
+ * in place of one {@link InventoryReservedEvent} per order line.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class InventoryReservationResultEvent extends BaseEvent implements OrderScopedEvent, OutcomeEvent {
+
+    private String orderId;
+    private Boolean success;
+    private String message;
+    private List<LineResult> lines;
+
+    public InventoryReservationResultEvent() {
+        super("InventoryReservationResultEvent");
+    }
+
+    public InventoryReservationResultEvent(String orderId, Boolean success, String message, List<LineResult> lines) {
+        super("InventoryReservationResultEvent");
+        this.orderId = orderId;
+        this.success = success;
+        this.message = message;
+        this.lines = lines;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineResult {
+
+        private String productId;
+        private Integer quantity;
+        private Boolean reserved;
+        private String message;
+    }
+}
@@ -5,7 +5,7 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
-public class InventoryReservedEvent extends BaseEvent {
+public class InventoryReservedEvent extends BaseEvent implements OrderScopedEvent, OutcomeEvent {
 
     private String orderId;
     private String productId;
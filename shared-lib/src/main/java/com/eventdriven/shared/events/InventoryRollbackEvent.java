@@ -5,7 +5,7 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
-public class InventoryRollbackEvent extends BaseEvent {
+public class InventoryRollbackEvent extends BaseEvent implements OrderScopedEvent {
 
     private String orderId;
     private String productId;
@@ -5,7 +5,7 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
-public class NotificationEvent extends BaseEvent {
+public class NotificationEvent extends BaseEvent implements OrderScopedEvent {
 
     private String orderId;
     private String customerId;
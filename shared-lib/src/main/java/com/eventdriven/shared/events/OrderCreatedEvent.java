@@ -8,7 +8,7 @@ import java.util.List;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
-public class OrderCreatedEvent extends BaseEvent {
+public class OrderCreatedEvent extends BaseEvent implements OrderScopedEvent {
 
     private String orderId;
     private String customerId;
@@ -0,0 +1,7 @@
+package com.eventdriven.shared.events;
+
+/** An event about one order, keyed by its order id. */
+public interface OrderScopedEvent {
+
+    String getOrderId();
+}
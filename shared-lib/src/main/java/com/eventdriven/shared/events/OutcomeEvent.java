@@ -0,0 +1,7 @@
+package com.eventdriven.shared.events;
+
+/** An event that reports whether a step of the order saga succeeded. */
+public interface OutcomeEvent {
+
+    Boolean getSuccess();
+}
@@ -5,7 +5,7 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
-public class PaymentProcessedEvent extends BaseEvent {
+public class PaymentProcessedEvent extends BaseEvent implements OrderScopedEvent, OutcomeEvent {
 
     private String orderId;
     private String customerId;
@@ -0,0 +1,136 @@
+package com.eventdriven.shared.id;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates 64-bit, time-ordered ids: 41 bits of milliseconds since 2024-01-01 UTC, a 10-bit
+ * node id and a 12-bit sequence, rendered as 13 Crockford base32 characters so that string
+ * order matches generation order.
+ * <p>
+ * Generation is lock-free: the last timestamp and sequence live in one {@link AtomicLong}.
+ * Ids of one node are strictly increasing; when the sequence of a millisecond runs out, or
+ * the clock steps back, the generator keeps counting on from the last id it issued instead
+ * of waiting for the clock.
+ * <p>
+ * The node id comes from the {@code platform.node-id} system property or the
+ * {@code NODE_ID} environment variable. Replicas of one service can derive the same fallback
+ * id, so deployments running more than one instance set {@code platform.node-id.required}
+ * (or {@code NODE_ID_REQUIRED}) to {@code true}, which fails the first id instead of falling
+ * back; otherwise the node id comes from a hash of the host name, which suits a single
+ * instance.
+ */
+public final class IdGenerator {
+
+    /** 2024-01-01T00:00:00Z; 41 bits of milliseconds last until 2093. */
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private static final IdGenerator DEFAULT = new IdGenerator(configuredNodeId());
+
+    private final long nodeId;
+
+    /** Milliseconds since {@link #EPOCH_MILLIS} shifted left by the sequence bits, plus the sequence. */
+    private final AtomicLong state = new AtomicLong();
+
+    public IdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /** Next id of the process-wide generator. */
+    public static String nextId() {
+        return DEFAULT.next();
+    }
+
+    /** Node id of the process-wide generator; distinct per instance wherever ids must be. */
+    public static long defaultNodeId() {
+        return DEFAULT.nodeId();
+    }
+
+    public String next() {
+        return encode(nextLong());
+    }
+
+    public long nextLong() {
+        while (true) {
+            long last = state.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // A full sequence carries into the timestamp bits, borrowing the next millisecond
+            long next = now > last ? now : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long nodeId() {
+        return nodeId;
+    }
+
+    /** Time an id was generated, to the millisecond. */
+    public static Instant timestampOf(String id) {
+        return Instant.ofEpochMilli((decode(id) >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static long decode(String id) {
+        if (id.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Not a generated id: " + id);
+        }
+        long value = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            int digit = indexOf(Character.toUpperCase(id.charAt(i)));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a generated id: " + id);
+            }
+            value = (value << 5) | digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long configuredNodeId() {
+        String configured = System.getProperty("platform.node-id", System.getenv("NODE_ID"));
+        if (configured != null && !configured.isBlank()) {
+            return Long.parseLong(configured.trim());
+        }
+        if (Boolean.parseBoolean(System.getProperty("platform.node-id.required", System.getenv("NODE_ID_REQUIRED")))) {
+            throw new IllegalStateException("No node id configured: set NODE_ID or -Dplatform.node-id to a value between 0 and "
+                    + MAX_NODE_ID + " that no other instance uses");
+        }
+        try {
+            return (InetAddress.getLocalHost().getHostName().hashCode() & Integer.MAX_VALUE) % (MAX_NODE_ID + 1);
+        } catch (UnknownHostException e) {
+            return ProcessHandle.current().pid() % (MAX_NODE_ID + 1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.eventdriven.shared.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory Bloom filter of recently seen keys, used to skip the remote duplicate check for
+ * keys that were certainly not seen before. {@link #mightContain} returns {@code true} for an
+ * unseen key with roughly the configured false positive rate.
+ * <p>
+ * Keys are kept in two generations. The current one is rotated out once it is
+ * {@code retention} old or holds {@code expectedKeys} keys, and the previous one is dropped
+ * then, so memory stays bounded and the false positive rate does not grow with uptime.
+ * Because rotation is also triggered by size, a {@link #put} key is only guaranteed to be
+ * remembered until {@code retention} has passed or {@code expectedKeys} more keys have been
+ * put, whichever comes first; past that {@link #mightContain} may return {@code false} for it.
+ * Callers must therefore keep an authoritative check behind a negative answer, as they do
+ * for keys put before a restart, and size {@code expectedKeys} to the keys expected within
+ * {@code retention} so the fast path stays accurate.
+ * Lock-free; safe for concurrent use.
+ */
+public class RecentKeyFilter {
+
+    private final int bitCount;
+    private final int hashCount;
+    private final long expectedKeys;
+    private final long retentionNanos;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public RecentKeyFilter(long expectedKeys, double falsePositiveRate, Duration retention) {
+        if (expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected keys must be positive and the false positive rate within (0, 1)");
+        }
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(bits, Long.SIZE), (long) Integer.MAX_VALUE - Long.SIZE);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+        this.expectedKeys = expectedKeys;
+        this.retentionNanos = retention.toNanos();
+        this.current = new Generation(bitCount);
+        this.previous = new Generation(bitCount);
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        return current.mightContain(hash, hashCount) || previous.mightContain(hash, hashCount);
+    }
+
+    public void put(String key) {
+        rotateIfDue();
+        current.put(hash(key), hashCount);
+    }
+
+    /** Size of one generation in bytes; the filter holds two. */
+    public long generationBytes() {
+        return (long) bitCount / Byte.SIZE;
+    }
+
+    private void rotateIfDue() {
+        Generation generation = current;
+        if (generation.keys.get() < expectedKeys && System.nanoTime() - generation.createdAt < retentionNanos) {
+            return;
+        }
+        synchronized (this) {
+            if (current == generation) {
+                previous = generation;
+                current = new Generation(bitCount);
+            }
+        }
+    }
+
+    /** 64-bit FNV-1a of the UTF-8 bytes, finished with a mix step so both halves are usable. */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Generation {
+
+        private final AtomicLongArray words;
+        private final int bitCount;
+        private final AtomicLong keys = new AtomicLong();
+        private final long createdAt = System.nanoTime();
+
+        private Generation(int bitCount) {
+            this.bitCount = bitCount;
+            this.words = new AtomicLongArray((bitCount + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        private boolean mightContain(long hash, int hashCount) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long hash, int hashCount) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                long mask = 1L << bit;
+                words.getAndUpdate(bit >>> 6, word -> word | mask);
+            }
+            keys.incrementAndGet();
+        }
+    }
+}
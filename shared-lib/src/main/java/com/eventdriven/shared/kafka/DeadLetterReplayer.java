@@ -0,0 +1,109 @@
+package com.eventdriven.shared.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends records from a consumer group's dead-letter topic back to the group's first retry
+ * tier, due at once, so they are handled again by that group only and, if they fail again,
+ * go through the remaining tiers before returning to the dead-letter topic. Progress is
+ * committed under the group {@code <group>-dlt-replay}, so each record is replayed once.
+ */
+@Slf4j
+public class DeadLetterReplayer {
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaOperations<Object, Object> kafkaOperations;
+    private final RetryTopology topology;
+    private final Duration timeout;
+
+    public DeadLetterReplayer(ConsumerFactory<Object, Object> consumerFactory, KafkaOperations<Object, Object> kafkaOperations,
+            RetryTopology topology, Duration timeout) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaOperations = kafkaOperations;
+        this.topology = topology;
+        this.timeout = timeout;
+    }
+
+    /** Replays up to {@code maxRecords} dead letters of {@code groupId} that failed on {@code topic}. */
+    public synchronized ReplayResult replay(String topic, String groupId, int maxRecords) {
+        String deadLetterTopic = topology.deadLetterTopic(topic, groupId);
+        String target = topology.retryTopic(topic, groupId, 1);
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(Math.min(maxRecords, 500)));
+
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(groupId + "-dlt-replay", null, null, overrides)) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(deadLetterTopic, timeout);
+            if (partitions == null || partitions.isEmpty()) {
+                return new ReplayResult(deadLetterTopic, target, 0);
+            }
+            consumer.assign(partitions.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList());
+
+            List<CompletableFuture<SendResult<Object, Object>>> sends = new ArrayList<>();
+            Map<TopicPartition, OffsetAndMetadata> progress = new HashMap<>();
+            while (sends.size() < maxRecords) {
+                ConsumerRecords<Object, Object> records = consumer.poll(timeout);
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (ConsumerRecord<Object, Object> record : records) {
+                    if (sends.size() == maxRecords) {
+                        break;
+                    }
+                    sends.add(kafkaOperations.send(replayOf(record, target)));
+                    progress.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                }
+            }
+            for (CompletableFuture<SendResult<Object, Object>> send : sends) {
+                send.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (!progress.isEmpty()) {
+                consumer.commitSync(progress);
+            }
+            log.info("Replayed {} records from {} to {}", sends.size(), deadLetterTopic, target);
+            return new ReplayResult(deadLetterTopic, target, sends.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted replaying " + deadLetterTopic, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("Could not replay " + deadLetterTopic, e);
+        }
+    }
+
+    private ProducerRecord<Object, Object> replayOf(ConsumerRecord<Object, Object> record, String target) {
+        RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+        long now = System.currentTimeMillis();
+        RetryHeaders.set(headers, RetryHeaders.ATTEMPT, 1);
+        RetryHeaders.set(headers, RetryHeaders.DUE_AT, now);
+        RetryHeaders.set(headers, RetryHeaders.REPLAYED_AT, now);
+        return new ProducerRecord<>(target, null, record.key(), record.value(), headers);
+    }
+
+    public record ReplayResult(String deadLetterTopic, String targetTopic, int replayed) {
+    }
+}
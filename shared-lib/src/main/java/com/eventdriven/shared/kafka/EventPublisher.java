@@ -0,0 +1,179 @@
+package com.eventdriven.shared.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends events through the {@link KafkaTemplate} with at most {@code maxInFlight} sends
+ * waiting for the broker. Every send is timed until its acknowledgement
+ * ({@code event.publish}, tagged with topic and outcome), and the window is visible as
+ * {@code event.publish.in-flight}.
+ * <p>
+ * When the window is full, {@link Overflow#WAIT} waits up to {@code maxWait} for a slot
+ * and {@link Overflow#SHED} gives up at once; either way a send that gets no slot fails
+ * with {@link PublishRejectedException} ({@code event.publish.rejected}). A slow broker
+ * therefore costs callers at most {@code maxWait}, instead of filling the producer buffer
+ * and blocking them for {@code max.block.ms}.
+ */
+@Slf4j
+public class EventPublisher {
+
+    public enum Overflow {
+        /** Wait up to the configured time for a slot. */
+        WAIT,
+        /** Reject at once. */
+        SHED
+    }
+
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore window;
+    private final int maxInFlight;
+    private final Overflow overflow;
+    private final Duration maxWait;
+    private final Map<String, TopicMeters> meters = new ConcurrentHashMap<>();
+
+    public EventPublisher(KafkaTemplate<Object, Object> kafkaTemplate, MeterRegistry meterRegistry,
+            int maxInFlight, Overflow overflow, Duration maxWait) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.window = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.overflow = overflow;
+        this.maxWait = maxWait;
+        meterRegistry.gauge("event.publish.in-flight", this, EventPublisher::inFlight);
+    }
+
+    public CompletableFuture<SendResult<Object, Object>> publish(String topic, String key, Object event) {
+        TopicMeters topicMeters = meters.computeIfAbsent(topic, this::metersFor);
+        if (!acquire()) {
+            topicMeters.rejected.increment();
+            return CompletableFuture.failedFuture(rejection(topic));
+        }
+        return send(topicMeters, topic, key, event);
+    }
+
+    /**
+     * Takes a slot of the window for one later send to {@code topic}, as {@link #publish}
+     * would, so a caller can learn the window is full before doing the work the send belongs
+     * to. The slot is held until the permit is published or closed.
+     *
+     * @throws PublishRejectedException when no slot is free
+     */
+    public Permit reserve(String topic) {
+        TopicMeters topicMeters = meters.computeIfAbsent(topic, this::metersFor);
+        if (!acquire()) {
+            topicMeters.rejected.increment();
+            throw rejection(topic);
+        }
+        return new Permit(topic, topicMeters);
+    }
+
+    /** Sends everything buffered now rather than after {@code linger.ms}. */
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+
+    public int inFlight() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    private CompletableFuture<SendResult<Object, Object>> send(TopicMeters topicMeters, String topic, String key,
+            Object event) {
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<Object, Object>> send;
+        try {
+            send = kafkaTemplate.send(topic, key, event);
+        } catch (RuntimeException e) {
+            window.release();
+            topicMeters.failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return CompletableFuture.failedFuture(e);
+        }
+        return send.whenComplete((result, ex) -> {
+            window.release();
+            long elapsed = System.nanoTime() - start;
+            if (ex == null) {
+                topicMeters.acknowledged.record(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                topicMeters.failed.record(elapsed, TimeUnit.NANOSECONDS);
+                log.warn("Failed to publish to {} with key {}: {}", topic, key, ex.getMessage());
+            }
+        });
+    }
+
+    private PublishRejectedException rejection(String topic) {
+        return new PublishRejectedException(
+                "Publish window of " + maxInFlight + " in-flight sends is full, " + topic + " event not sent");
+    }
+
+    private boolean acquire() {
+        if (overflow == Overflow.SHED || maxWait.isZero()) {
+            return window.tryAcquire();
+        }
+        try {
+            return window.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private TopicMeters metersFor(String topic) {
+        return new TopicMeters(timer(topic, "acknowledged"), timer(topic, "failed"),
+                meterRegistry.counter("event.publish.rejected", "topic", topic));
+    }
+
+    private Timer timer(String topic, String outcome) {
+        return Timer.builder("event.publish")
+                .description("Time from send to the broker acknowledgement or failure")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /** A slot of the window taken by {@link #reserve}, good for one send. */
+    public final class Permit implements AutoCloseable {
+
+        private final String topic;
+        private final TopicMeters topicMeters;
+        private final AtomicBoolean held = new AtomicBoolean(true);
+
+        private Permit(String topic, TopicMeters topicMeters) {
+            this.topic = topic;
+            this.topicMeters = topicMeters;
+        }
+
+        /** Sends {@code event} in this permit's slot; the slot is freed when the send completes. */
+        public CompletableFuture<SendResult<Object, Object>> publish(String key, Object event) {
+            if (!held.compareAndSet(true, false)) {
+                throw new IllegalStateException("Publish permit for " + topic + " already used or closed");
+            }
+            return send(topicMeters, topic, key, event);
+        }
+
+        /** Frees the slot unless it was used for a send. */
+        @Override
+        public void close() {
+            if (held.compareAndSet(true, false)) {
+                window.release();
+            }
+        }
+    }
+
+    private record TopicMeters(Timer acknowledged, Timer failed, Counter rejected) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.eventdriven.shared.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Provides the {@link EventPublisher} over the service's {@link KafkaTemplate}, and applies
+ * the {@link ProducerProfile} named by {@code event.producer.profile} to its producer.
+ */
+@AutoConfiguration(after = KafkaAutoConfiguration.class)
+@ConditionalOnClass({KafkaTemplate.class, MeterRegistry.class})
+@Slf4j
+public class EventPublisherAutoConfiguration {
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(
+            @Value("${event.producer.profile:default}") String profileName) {
+        ProducerProfile profile = ProducerProfile.valueOf(profileName.trim().toUpperCase(Locale.ROOT));
+        return producerFactory -> {
+            Map<String, Object> configured = producerFactory.getConfigurationProperties();
+            Map<String, Object> preset = new HashMap<>();
+            profile.settings().forEach((name, value) -> {
+                if (!configured.containsKey(name)) {
+                    preset.put(name, value);
+                }
+            });
+            if (!preset.isEmpty()) {
+                producerFactory.updateConfigs(preset);
+                log.info("Applied {} producer profile: {}", profile, preset);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(KafkaTemplate.class)
+    public EventPublisher eventPublisher(KafkaTemplate<Object, Object> kafkaTemplate,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${event.publisher.max-in-flight:10000}") int maxInFlight,
+            @Value("${event.publisher.overflow:wait}") String overflow,
+            @Value("${event.publisher.max-wait:100ms}") Duration maxWait) {
+        return new EventPublisher(kafkaTemplate, meterRegistry.getIfAvailable(SimpleMeterRegistry::new), maxInFlight,
+                EventPublisher.Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT)), maxWait);
+    }
+}
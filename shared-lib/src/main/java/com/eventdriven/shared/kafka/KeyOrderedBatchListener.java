@@ -0,0 +1,189 @@
+package com.eventdriven.shared.kafka;
+
+import com.eventdriven.shared.tracing.EventTraceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.GenericMessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a record listener over each poll concurrently by record key. Records are spread over
+ * {@code lanes} by key hash and each lane runs its records in offset order, so records of one
+ * key are handled one at a time and in order, while different keys proceed in parallel
+ * regardless of the partition count. Keyless records keep their partition's order.
+ * <p>
+ * Once every lane is done, offsets are committed per partition up to the first failed
+ * record, and the consumer is rewound to it, so a commit never passes a record that has not
+ * completed. Later records of a failed key are held back until the failed one succeeds;
+ * records of other keys after it in the same partition are delivered again. A record that
+ * fails {@code maxAttempts} times is handed to the recoverer and counts as completed.
+ * <p>
+ * Records that carry a {@link RetryHeaders#DUE_AT} in the future, from a retry tier, are
+ * not handled early: their partition is rewound to the first of them and paused on the
+ * container until it is due, while other partitions keep flowing.
+ * <p>
+ * Each record's handling time and the group's lag after each commit go to the
+ * {@link ListenerMetrics}.
+ * <p>
+ * Each record is handled inside an {@link EventTraceContext}, so events published while
+ * handling it continue its trace.
+ * <p>
+ * Used as the container's listener with manual acknowledgement; it commits through the
+ * consumer itself, on the consumer thread.
+ */
+@Slf4j
+public class KeyOrderedBatchListener implements BatchAcknowledgingConsumerAwareMessageListener<Object, Object> {
+
+    private final GenericMessageListener<ConsumerRecord<Object, Object>> delegate;
+    private final Executor executor;
+    private final int lanes;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final ConsumerRecordRecoverer recoverer;
+    private final MessageListenerContainer container;
+    private final ScheduledExecutorService scheduler;
+    private final ListenerMetrics metrics;
+    private final Map<RecordPosition, Integer> attempts = new ConcurrentHashMap<>();
+
+    public KeyOrderedBatchListener(GenericMessageListener<ConsumerRecord<Object, Object>> delegate, Executor executor,
+            int lanes, int maxAttempts, Duration retryBackoff, ConsumerRecordRecoverer recoverer,
+            MessageListenerContainer container, ScheduledExecutorService scheduler, ListenerMetrics metrics) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.lanes = lanes;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.recoverer = recoverer;
+        this.container = container;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onMessage(List<ConsumerRecord<Object, Object>> records, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        long now = System.currentTimeMillis();
+        Map<TopicPartition, Long> notDue = new HashMap<>();
+        Map<Integer, List<ConsumerRecord<Object, Object>>> byLane = new HashMap<>();
+        for (ConsumerRecord<Object, Object> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (notDue.containsKey(partition)) {
+                continue;
+            }
+            long dueAt = RetryHeaders.readLong(record, RetryHeaders.DUE_AT, 0);
+            if (dueAt > now) {
+                // Tiers have one delay each, so the records after this one are due later still
+                notDue.put(partition, record.offset());
+                pauseUntil(partition, dueAt - now);
+                continue;
+            }
+            byLane.computeIfAbsent(Math.floorMod(orderingKey(record).hashCode(), lanes), lane -> new ArrayList<>()).add(record);
+        }
+
+        Map<TopicPartition, Long> firstFailed = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> runs = new ArrayList<>(byLane.size());
+        for (List<ConsumerRecord<Object, Object>> lane : byLane.values()) {
+            runs.add(CompletableFuture.runAsync(() -> runLane(lane, firstFailed), executor));
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+
+        Map<TopicPartition, Long> rewinds = new HashMap<>(notDue);
+        firstFailed.forEach((partition, offset) -> rewinds.merge(partition, offset, Math::min));
+        Map<TopicPartition, OffsetAndMetadata> commits = new LinkedHashMap<>();
+        for (ConsumerRecord<Object, Object> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            Long rewind = rewinds.get(partition);
+            commits.put(partition, new OffsetAndMetadata(rewind != null ? rewind : record.offset() + 1));
+        }
+        if (!commits.isEmpty()) {
+            metrics.committed(consumer, commits);
+        }
+        rewinds.forEach(consumer::seek);
+        if (!commits.isEmpty()) {
+            consumer.commitSync(commits);
+        }
+        if (!firstFailed.isEmpty()) {
+            sleepQuietly(retryBackoff);
+        }
+    }
+
+    private void runLane(List<ConsumerRecord<Object, Object>> lane, Map<TopicPartition, Long> firstFailed) {
+        Set<Object> failedKeys = new HashSet<>();
+        for (ConsumerRecord<Object, Object> record : lane) {
+            Object key = orderingKey(record);
+            if (failedKeys.contains(key)) {
+                continue;
+            }
+            RecordPosition position = new RecordPosition(record.topic(), record.partition(), record.offset());
+            long start = System.nanoTime();
+            try (EventTraceContext.Scope trace = EventTraceContext.enter(record.headers())) {
+                delegate.onMessage(record, null, null);
+                metrics.handled(record.topic(), System.nanoTime() - start, true);
+                attempts.remove(position);
+            } catch (Exception e) {
+                metrics.handled(record.topic(), System.nanoTime() - start, false);
+                if (!recover(record, position, e)) {
+                    failedKeys.add(key);
+                    firstFailed.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::min);
+                }
+            }
+        }
+    }
+
+    private void pauseUntil(TopicPartition partition, long delayMs) {
+        container.pausePartition(partition);
+        scheduler.schedule(() -> container.resumePartition(partition), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Returns whether the record is done with, after its last attempt. */
+    private boolean recover(ConsumerRecord<Object, Object> record, RecordPosition position, Exception e) {
+        int attempt = attempts.merge(position, 1, Integer::sum);
+        if (attempt < maxAttempts) {
+            log.warn("Attempt {} of {} failed for {}-{}@{}, will retry: {}", attempt, maxAttempts,
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            return false;
+        }
+        try {
+            recoverer.accept(record, e);
+            attempts.remove(position);
+            return true;
+        } catch (RuntimeException recoveryFailure) {
+            log.error("Recovery failed for {}-{}@{}, will retry", record.topic(), record.partition(), record.offset(), recoveryFailure);
+            return false;
+        }
+    }
+
+    private static Object orderingKey(ConsumerRecord<Object, Object> record) {
+        return record.key() != null ? record.key() : new TopicPartition(record.topic(), record.partition());
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record RecordPosition(String topic, int partition, long offset) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.eventdriven.shared.kafka;
+
+import com.eventdriven.shared.routing.SkippedEventFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.GenericMessageListener;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides {@code keyOrderedKafkaListenerContainerFactory}: the service's regular listener
+ * settings, with each record listener run by a {@link KeyOrderedBatchListener}. Listeners
+ * opt in with {@code containerFactory = "keyOrderedKafkaListenerContainerFactory"} and keep
+ * their signatures. All such listeners of a service share
+ * {@code event.consumer.concurrency} worker threads.
+ * <p>
+ * With {@code event.retry.enabled}, records that fail are forwarded to the consumer group's
+ * retry tiers and finally its dead-letter topic (see {@link RetryTopology}) instead of
+ * being retried in place, so the main partitions never wait for them.
+ * <p>
+ * With Micrometer, each group reports {@code event.listener} timers and
+ * {@code event.consumer.lag} gauges (see {@link MicrometerListenerMetrics}).
+ */
+@AutoConfiguration(after = KafkaAutoConfiguration.class)
+@ConditionalOnClass(ConcurrentKafkaListenerContainerFactory.class)
+@ConditionalOnBean(ConsumerFactory.class)
+@Slf4j
+public class KeyOrderedListenerAutoConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(name = "keyOrderedListenerExecutor")
+    public ExecutorService keyOrderedListenerExecutor(
+            @Value("${event.consumer.concurrency:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}") int concurrency) {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "key-ordered-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(name = "keyOrderedRetryScheduler")
+    public ScheduledExecutorService keyOrderedRetryScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "key-ordered-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RetryTopology eventRetryTopology(
+            @Value("${event.retry.enabled:false}") boolean enabled,
+            @Value("${event.retry.tiers:3}") int tiers,
+            @Value("${event.retry.initial-delay:1s}") Duration initialDelay,
+            @Value("${event.retry.multiplier:5}") double multiplier,
+            @Value("${event.retry.max-delay:5m}") Duration maxDelay) {
+        return new RetryTopology(enabled, tiers, initialDelay, multiplier, maxDelay);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DeadLetterReplayer deadLetterReplayer(ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            RetryTopology eventRetryTopology,
+            @Value("${event.retry.send-timeout:10s}") Duration timeout) {
+        return new DeadLetterReplayer(consumerFactory, kafkaTemplate, eventRetryTopology, timeout);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "keyOrderedRecordRecoverer")
+    public ConsumerRecordRecoverer keyOrderedRecordRecoverer() {
+        return (record, e) -> log.error("Giving up on {}-{}@{} with key {}", record.topic(), record.partition(),
+                record.offset(), record.key(), e);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "keyOrderedKafkaListenerContainerFactory")
+    @SuppressWarnings("unchecked")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> keyOrderedKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Qualifier("keyOrderedListenerExecutor") ExecutorService executor,
+            @Qualifier("keyOrderedRecordRecoverer") ConsumerRecordRecoverer recoverer,
+            @Qualifier("keyOrderedRetryScheduler") ScheduledExecutorService scheduler,
+            RetryTopology eventRetryTopology,
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            ObjectProvider<ListenerMetrics.Factory> listenerMetrics,
+            @Value("${event.consumer.concurrency:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}") int concurrency,
+            @Value("${event.consumer.max-attempts:3}") int maxAttempts,
+            @Value("${event.consumer.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${event.retry.send-timeout:10s}") Duration sendTimeout) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        // The key-ordered listener commits completed offsets itself
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Drops records the listener's event routing skipped, before any conversion
+        factory.setRecordFilterStrategy(new SkippedEventFilter());
+        ListenerMetrics.Factory metrics = listenerMetrics.getIfAvailable(() -> groupId -> ListenerMetrics.NOOP);
+        factory.setContainerCustomizer(container -> {
+            Object listener = container.getContainerProperties().getMessageListener();
+            if (listener instanceof MessageListener<?, ?> recordListener) {
+                ConsumerRecordRecoverer containerRecoverer = eventRetryTopology.isEnabled()
+                        ? new RetryTopicRecoverer(kafkaTemplate, eventRetryTopology, container.getGroupId(), sendTimeout)
+                        : recoverer;
+                container.setupMessageListener(new KeyOrderedBatchListener(
+                        (GenericMessageListener<ConsumerRecord<Object, Object>>) recordListener,
+                        executor, concurrency, maxAttempts, retryBackoff, containerRecoverer, container, scheduler,
+                        metrics.forGroup(container.getGroupId())));
+            }
+        });
+        return factory;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    static class ListenerMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ListenerMetrics.Factory keyOrderedListenerMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return groupId -> {
+                MeterRegistry registry = meterRegistry.getIfAvailable();
+                return registry != null ? new MicrometerListenerMetrics(registry, groupId) : ListenerMetrics.NOOP;
+            };
+        }
+    }
+}
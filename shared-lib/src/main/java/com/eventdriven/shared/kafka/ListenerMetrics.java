@@ -0,0 +1,37 @@
+package com.eventdriven.shared.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+
+/**
+ * What a {@link KeyOrderedBatchListener} reports about its consumer group: how long each
+ * record took and how far the group's commits trail the partitions. Free of Micrometer
+ * types so the listener works without it; see {@link MicrometerListenerMetrics}.
+ */
+public interface ListenerMetrics {
+
+    ListenerMetrics NOOP = new ListenerMetrics() {
+        @Override
+        public void handled(String topic, long nanos, boolean success) {
+        }
+
+        @Override
+        public void committed(Consumer<?, ?> consumer, Map<TopicPartition, OffsetAndMetadata> commits) {
+        }
+    };
+
+    /** One record was handled by the listener method, successfully or not. */
+    void handled(String topic, long nanos, boolean success);
+
+    /** {@code consumer} is about to commit {@code commits}; called on its thread. */
+    void committed(Consumer<?, ?> consumer, Map<TopicPartition, OffsetAndMetadata> commits);
+
+    /** Creates the metrics of one consumer group. */
+    interface Factory {
+
+        ListenerMetrics forGroup(String groupId);
+    }
+}
@@ -0,0 +1,97 @@
+package com.eventdriven.shared.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ListenerMetrics} as Micrometer meters, all tagged with the consumer group:
+ * <ul>
+ *   <li>{@code event.listener{group,topic,outcome}}: time the listener method took per
+ *       record; its count is the record rate.</li>
+ *   <li>{@code event.consumer.lag{group,topic,partition}}: records between the group's
+ *       last commit and the end of the partition, as {@code kafka-consumer-groups} shows it.
+ *       Unlike the client's fetch lag it includes records fetched but not yet completed,
+ *       such as those waiting for a retry.</li>
+ * </ul>
+ * Lag is updated on every commit, from the end offset the consumer already knows, so it
+ * costs no broker round trip. Gauges of partitions the consumer no longer owns are removed.
+ */
+public class MicrometerListenerMetrics implements ListenerMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final String groupId;
+    private final Map<String, Timer> succeeded = new ConcurrentHashMap<>();
+    private final Map<String, Timer> failed = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Lag> lags = new ConcurrentHashMap<>();
+
+    public MicrometerListenerMetrics(MeterRegistry meterRegistry, String groupId) {
+        this.meterRegistry = meterRegistry;
+        this.groupId = groupId;
+    }
+
+    @Override
+    public void handled(String topic, long nanos, boolean success) {
+        (success ? succeeded : failed).computeIfAbsent(topic, t -> timer(t, success ? "success" : "failure"))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void committed(Consumer<?, ?> consumer, Map<TopicPartition, OffsetAndMetadata> commits) {
+        commits.forEach((partition, commit) -> {
+            OptionalLong fetchLag = consumer.currentLag(partition);
+            if (fetchLag.isPresent()) {
+                long end = consumer.position(partition) + fetchLag.getAsLong();
+                lag(partition, consumer).value.set(Math.max(0, end - commit.offset()));
+            }
+        });
+        Set<TopicPartition> assignment = consumer.assignment();
+        lags.entrySet().removeIf(entry -> {
+            Lag lag = entry.getValue();
+            if (lag.owner != consumer || assignment.contains(entry.getKey())) {
+                return false;
+            }
+            meterRegistry.remove(lag.gauge);
+            return true;
+        });
+    }
+
+    private Lag lag(TopicPartition partition, Consumer<?, ?> consumer) {
+        Lag lag = lags.get(partition);
+        if (lag == null || lag.owner != consumer) {
+            AtomicLong value = lag != null ? lag.value : new AtomicLong();
+            Gauge gauge = lag != null ? lag.gauge : Gauge.builder("event.consumer.lag", value, AtomicLong::get)
+                    .description("Records between the consumer group's last commit and the end of the partition")
+                    .tag("group", groupId)
+                    .tag("topic", partition.topic())
+                    .tag("partition", Integer.toString(partition.partition()))
+                    .register(meterRegistry);
+            lag = new Lag(consumer, value, gauge);
+            lags.put(partition, lag);
+        }
+        return lag;
+    }
+
+    private Timer timer(String topic, String outcome) {
+        return Timer.builder("event.listener")
+                .description("Time the listener method took per record")
+                .tag("group", groupId)
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private record Lag(Consumer<?, ?> owner, AtomicLong value, Gauge gauge) {
+    }
+}
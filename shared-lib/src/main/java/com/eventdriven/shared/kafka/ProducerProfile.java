@@ -0,0 +1,44 @@
+package com.eventdriven.shared.kafka;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+/**
+ * Producer batching presets, chosen with {@code event.producer.profile}. Settings given
+ * explicitly under {@code spring.kafka.producer} take precedence over the preset.
+ */
+public enum ProducerProfile {
+
+    /** Kafka's own defaults. */
+    DEFAULT(Map.of()),
+
+    /**
+     * For request paths: send at once in small batches, and fail fast when the buffer is
+     * full rather than holding the request thread.
+     */
+    LATENCY(Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 0,
+            ProducerConfig.BATCH_SIZE_CONFIG, 16_384,
+            ProducerConfig.MAX_BLOCK_MS_CONFIG, 1_000)),
+
+    /**
+     * For consumers that publish in bulk: wait up to 20 ms to fill large batches, which
+     * also compress better, with a larger buffer to absorb bursts.
+     */
+    THROUGHPUT(Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 20,
+            ProducerConfig.BATCH_SIZE_CONFIG, 262_144,
+            ProducerConfig.BUFFER_MEMORY_CONFIG, 67_108_864L,
+            ProducerConfig.MAX_BLOCK_MS_CONFIG, 5_000));
+
+    private final Map<String, Object> settings;
+
+    ProducerProfile(Map<String, Object> settings) {
+        this.settings = settings;
+    }
+
+    public Map<String, Object> settings() {
+        return settings;
+    }
+}
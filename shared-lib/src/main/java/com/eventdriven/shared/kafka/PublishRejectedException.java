@@ -0,0 +1,11 @@
+package com.eventdriven.shared.kafka;
+
+import org.apache.kafka.common.KafkaException;
+
+/** Thrown through a publish future when {@link EventPublisher}'s in-flight window is full. */
+public class PublishRejectedException extends KafkaException {
+
+    public PublishRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.eventdriven.shared.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Headers {@link RetryTopicRecoverer} adds to records it forwards to a retry tier or to the
+ * dead-letter topic. Values are UTF-8 strings; times are epoch milliseconds.
+ */
+public final class RetryHeaders {
+
+    /** Topic the record was first published to. */
+    public static final String ORIGINAL_TOPIC = "retry-original-topic";
+
+    public static final String ORIGINAL_PARTITION = "retry-original-partition";
+
+    public static final String ORIGINAL_OFFSET = "retry-original-offset";
+
+    /** Retry tiers the record has been sent to so far. */
+    public static final String ATTEMPT = "retry-attempt";
+
+    /** The record is not handled before this time. */
+    public static final String DUE_AT = "retry-due-at";
+
+    public static final String FIRST_FAILED_AT = "retry-first-failed-at";
+
+    public static final String LAST_FAILED_AT = "retry-last-failed-at";
+
+    /** Class name of the last failure. */
+    public static final String EXCEPTION = "retry-exception";
+
+    public static final String EXCEPTION_MESSAGE = "retry-exception-message";
+
+    /** Set when {@link DeadLetterReplayer} sent the record back from the dead-letter topic. */
+    public static final String REPLAYED_AT = "retry-replayed-at";
+
+    private RetryHeaders() {
+    }
+
+    public static String read(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    public static long readLong(ConsumerRecord<?, ?> record, String name, long defaultValue) {
+        String value = read(record, name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    static void set(Headers headers, String name, Object value) {
+        headers.remove(name);
+        if (value != null) {
+            headers.add(name, value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.eventdriven.shared.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Forwards a failed record of one consumer group to its next retry tier, or to the group's
+ * dead-letter topic once every tier has failed, with the record's key, value and headers
+ * plus {@link RetryHeaders}. The send completes before the record counts as handled, so
+ * its offset is never committed while it exists nowhere else; a failed send is thrown and
+ * the record is tried again in place.
+ */
+@Slf4j
+public class RetryTopicRecoverer implements ConsumerRecordRecoverer {
+
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private final KafkaOperations<Object, Object> kafkaOperations;
+    private final RetryTopology topology;
+    private final String groupId;
+    private final Duration sendTimeout;
+
+    public RetryTopicRecoverer(KafkaOperations<Object, Object> kafkaOperations, RetryTopology topology, String groupId,
+            Duration sendTimeout) {
+        this.kafkaOperations = kafkaOperations;
+        this.topology = topology;
+        this.groupId = groupId;
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        String originalTopic = RetryHeaders.read(record, RetryHeaders.ORIGINAL_TOPIC);
+        boolean firstFailure = originalTopic == null;
+        if (firstFailure) {
+            originalTopic = record.topic();
+        }
+        int attempt = (int) RetryHeaders.readLong(record, RetryHeaders.ATTEMPT, 0) + 1;
+        long now = System.currentTimeMillis();
+        Throwable cause = exception instanceof ListenerExecutionFailedException && exception.getCause() != null
+                ? exception.getCause() : exception;
+
+        RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+        if (firstFailure) {
+            RetryHeaders.set(headers, RetryHeaders.ORIGINAL_TOPIC, record.topic());
+            RetryHeaders.set(headers, RetryHeaders.ORIGINAL_PARTITION, record.partition());
+            RetryHeaders.set(headers, RetryHeaders.ORIGINAL_OFFSET, record.offset());
+            RetryHeaders.set(headers, RetryHeaders.FIRST_FAILED_AT, now);
+        }
+        RetryHeaders.set(headers, RetryHeaders.LAST_FAILED_AT, now);
+        RetryHeaders.set(headers, RetryHeaders.EXCEPTION, cause.getClass().getName());
+        RetryHeaders.set(headers, RetryHeaders.EXCEPTION_MESSAGE, truncate(cause.getMessage()));
+
+        String destination;
+        if (attempt <= topology.tiers()) {
+            destination = topology.retryTopic(originalTopic, groupId, attempt);
+            RetryHeaders.set(headers, RetryHeaders.ATTEMPT, attempt);
+            RetryHeaders.set(headers, RetryHeaders.DUE_AT, now + topology.delay(attempt).toMillis());
+        } else {
+            destination = topology.deadLetterTopic(originalTopic, groupId);
+            RetryHeaders.set(headers, RetryHeaders.DUE_AT, null);
+        }
+
+        try {
+            kafkaOperations.send(new ProducerRecord<>(destination, null, record.key(), record.value(), headers))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted forwarding " + position(record) + " to " + destination, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("Could not forward " + position(record) + " to " + destination, e);
+        }
+        log.warn("Forwarded {} with key {} to {} after {}: {}", position(record), record.key(), destination,
+                cause.getClass().getSimpleName(), cause.getMessage());
+    }
+
+    private static String position(ConsumerRecord<?, ?> record) {
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_MESSAGE_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+}
@@ -0,0 +1,103 @@
+package com.eventdriven.shared.kafka;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Names and delays of the retry tiers and the dead-letter topic of each consumer group.
+ * Tiers belong to a group, not to a topic, so a record one service failed on is never
+ * redelivered to the other services that read the same topic:
+ * {@code <topic>-<group>-retry-<n>} for tier n (from 1) and {@code <topic>-<group>-dlt}.
+ * Tier n delays a record by {@code initialDelay * multiplier^(n-1)}, at most {@code maxDelay}.
+ * <p>
+ * Listeners subscribe to their retry tiers next to the main topic with
+ * {@code topics = "#{@eventRetryTopology.topics('order-events', 'inventory-service')}"},
+ * or to the tiers alone ({@link #topics(String, String, boolean)}) when a batch listener takes the main topic,
+ * and a service declares the tier topics of everything it consumes with a
+ * {@link #newTopics} bean, so {@code KafkaAdmin} creates them at startup.
+ */
+public class RetryTopology {
+
+    private final boolean enabled;
+    private final List<Duration> delays;
+
+    public RetryTopology(boolean enabled, int tiers, Duration initialDelay, double multiplier, Duration maxDelay) {
+        this.enabled = enabled;
+        List<Duration> delays = new ArrayList<>(tiers);
+        double delayMs = initialDelay.toMillis();
+        for (int tier = 1; tier <= tiers; tier++) {
+            delays.add(Duration.ofMillis((long) Math.min(delayMs, maxDelay.toMillis())));
+            delayMs *= multiplier;
+        }
+        this.delays = List.copyOf(delays);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int tiers() {
+        return delays.size();
+    }
+
+    /** Delay of tier {@code tier}, from 1. */
+    public Duration delay(int tier) {
+        return delays.get(tier - 1);
+    }
+
+    /** The main topic followed by the group's retry tiers, or only the main topic when retries are off. */
+    public String[] topics(String topic, String groupId) {
+        List<String> topics = new ArrayList<>(tiers() + 1);
+        topics.add(topic);
+        if (enabled) {
+            for (int tier = 1; tier <= tiers(); tier++) {
+                topics.add(retryTopic(topic, groupId, tier));
+            }
+        }
+        return topics.toArray(String[]::new);
+    }
+
+    /**
+     * As {@link #topics(String, String)}, or with {@code tiersOnly} the group's retry tiers
+     * alone, for a record listener that runs beside a batch listener of the main topic. A
+     * listener needs a topic, so with retries off that is the main topic still, and such a
+     * listener must not be started.
+     */
+    public String[] topics(String topic, String groupId, boolean tiersOnly) {
+        String[] topics = topics(topic, groupId);
+        return tiersOnly && topics.length > 1 ? Arrays.copyOfRange(topics, 1, topics.length) : topics;
+    }
+
+    public String retryTopic(String topic, String groupId, int tier) {
+        return topic + "-" + groupId + "-retry-" + tier;
+    }
+
+    public String deadLetterTopic(String topic, String groupId) {
+        return topic + "-" + groupId + "-dlt";
+    }
+
+    /**
+     * Every retry tier and the dead-letter topic of the group for each of {@code topics}, for
+     * {@code KafkaAdmin} to create; none when retries are off.
+     */
+    public KafkaAdmin.NewTopics newTopics(String groupId, int partitions, int replicas, String... topics) {
+        List<NewTopic> newTopics = new ArrayList<>();
+        if (enabled) {
+            for (String topic : topics) {
+                for (int tier = 1; tier <= tiers(); tier++) {
+                    newTopics.add(TopicBuilder.name(retryTopic(topic, groupId, tier))
+                            .partitions(partitions).replicas(replicas).build());
+                }
+                newTopics.add(TopicBuilder.name(deadLetterTopic(topic, groupId))
+                        .partitions(partitions).replicas(replicas).build());
+            }
+        }
+        return new KafkaAdmin.NewTopics(newTopics.toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,51 @@
+package com.eventdriven.shared.metrics;
+
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Instrumentation the services share, on top of what Spring Boot already measures
+ * (Spring Data repository calls, Kafka clients, templates and containers):
+ * <ul>
+ *   <li>{@code store.invocations} for {@link InstrumentedStore} beans.</li>
+ *   <li>Histograms for Lettuce's Redis command latency, {@code lettuce.command.completion}
+ *       and {@code lettuce.command.firstresponse}, so percentiles can be aggregated across
+ *       instances. Without it Lettuce publishes per-instance percentiles only.</li>
+ *   <li>A cap of {@code event.metrics.max-topics} distinct {@code topic} tag values on the
+ *       {@code event.*} meters. Meters for further topics are dropped rather than letting a
+ *       runaway topic name multiply the series.</li>
+ * </ul>
+ */
+@AutoConfiguration(beforeName = "org.springframework.boot.actuate.autoconfigure.metrics.redis.LettuceMetricsAutoConfiguration")
+@ConditionalOnClass(MeterRegistry.class)
+public class InstrumentationAutoConfiguration {
+
+    @Bean
+    public static StoreMetricsPostProcessor storeMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new StoreMetricsPostProcessor(meterRegistry);
+    }
+
+    @Bean
+    public MeterFilter eventTopicCardinalityFilter(@Value("${event.metrics.max-topics:200}") int maxTopics) {
+        return MeterFilter.maximumAllowableTags("event.", "topic", maxTopics, MeterFilter.deny());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MicrometerOptions.class)
+    static class LettuceMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public MicrometerOptions micrometerOptions() {
+            return MicrometerOptions.builder().histogram(true).build();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.eventdriven.shared.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean whose public methods are data store calls, to be timed as
+ * {@code store.invocations} by {@link StoreMetricsPostProcessor}. Spring Data repositories
+ * do not need it; Spring Boot already times them as {@code spring.data.repository.invocations}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface InstrumentedStore {
+}
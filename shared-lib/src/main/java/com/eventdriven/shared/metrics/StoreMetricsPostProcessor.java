@@ -0,0 +1,85 @@
+package com.eventdriven.shared.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of {@link InstrumentedStore} beans as
+ * {@code store.invocations{store,method,outcome}}, through a class proxy. Tags are the
+ * simple class name, the method name and {@code success} or {@code failure}, so the
+ * number of series is fixed by the code, never by the data. Timers are looked up once per
+ * method; an invocation costs two {@link System#nanoTime} calls and a histogram update.
+ */
+public class StoreMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public StoreMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (!AnnotatedElementUtils.hasAnnotation(type, InstrumentedStore.class)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TimingInterceptor(type.getSimpleName(), meterRegistry));
+        return proxyFactory.getProxy(type.getClassLoader());
+    }
+
+    static final class TimingInterceptor implements MethodInterceptor {
+
+        private final String store;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Map<Method, Timer> succeeded = new ConcurrentHashMap<>();
+        private final Map<Method, Timer> failed = new ConcurrentHashMap<>();
+
+        TimingInterceptor(String store, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.store = store;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (!Modifier.isPublic(method.getModifiers()) || method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                succeeded.computeIfAbsent(method, m -> timer(m, "success")).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                failed.computeIfAbsent(method, m -> timer(m, "failure")).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer timer(Method method, String outcome) {
+            return Timer.builder("store.invocations")
+                    .description("Time a data store call took")
+                    .tag("store", store)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry.getObject());
+        }
+    }
+}
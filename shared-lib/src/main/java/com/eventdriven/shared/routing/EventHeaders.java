@@ -0,0 +1,59 @@
+package com.eventdriven.shared.routing;
+
+import com.eventdriven.shared.events.BaseEvent;
+import com.eventdriven.shared.events.OrderScopedEvent;
+import com.eventdriven.shared.events.OutcomeEvent;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Record headers that describe a {@link BaseEvent} without its payload, written by
+ * {@link com.eventdriven.shared.serde.EventSerializer} in both formats. Values are UTF-8
+ * strings; a header is left out when the event has no such value.
+ */
+public final class EventHeaders {
+
+    /** {@link BaseEvent#getEventType()}, such as {@code OrderCreatedEvent}. */
+    public static final String TYPE = "event-type";
+
+    public static final String ID = "event-id";
+
+    public static final String ORDER_ID = "event-order-id";
+
+    /** Field count of the event's binary schema, for events registered for the binary format. */
+    public static final String SCHEMA_VERSION = "event-schema-version";
+
+    /** {@value #SUCCESS} or {@value #FAILURE}, for {@link OutcomeEvent}s. */
+    public static final String OUTCOME = "event-outcome";
+
+    public static final String SUCCESS = "success";
+
+    public static final String FAILURE = "failure";
+
+    private EventHeaders() {
+    }
+
+    /** Replaces the event headers with those of {@code event}; a schema version of 0 is left out. */
+    public static void write(Headers headers, BaseEvent event, int schemaVersion) {
+        set(headers, TYPE, event.getEventType());
+        set(headers, ID, event.getEventId());
+        set(headers, ORDER_ID, event instanceof OrderScopedEvent scoped ? scoped.getOrderId() : null);
+        set(headers, SCHEMA_VERSION, schemaVersion > 0 ? Integer.toString(schemaVersion) : null);
+        set(headers, OUTCOME, event instanceof OutcomeEvent outcome && outcome.getSuccess() != null
+                ? (outcome.getSuccess() ? SUCCESS : FAILURE) : null);
+    }
+
+    public static String read(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static void set(Headers headers, String name, String value) {
+        headers.remove(name);
+        if (value != null) {
+            headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.eventdriven.shared.routing;
+
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * What a consumer routed with {@code event.route.headers-only} gets instead of the event:
+ * the {@link EventHeaders} of the record, read without touching the payload.
+ */
+public record EventMetadata(String eventType, String eventId, String orderId, Integer schemaVersion, Boolean success) {
+
+    public static EventMetadata from(Headers headers) {
+        String version = EventHeaders.read(headers, EventHeaders.SCHEMA_VERSION);
+        String outcome = EventHeaders.read(headers, EventHeaders.OUTCOME);
+        return new EventMetadata(
+                EventHeaders.read(headers, EventHeaders.TYPE),
+                EventHeaders.read(headers, EventHeaders.ID),
+                EventHeaders.read(headers, EventHeaders.ORDER_ID),
+                version == null ? null : Integer.valueOf(version),
+                outcome == null ? null : EventHeaders.SUCCESS.equals(outcome));
+    }
+}
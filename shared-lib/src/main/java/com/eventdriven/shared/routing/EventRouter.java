@@ -0,0 +1,111 @@
+package com.eventdriven.shared.routing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides from a record's {@link EventHeaders} alone what a consumer does with its payload.
+ * Configured per listener through consumer properties, usually the {@code properties} of
+ * {@code @KafkaListener}:
+ * <ul>
+ *   <li>{@value #TYPES_CONFIG}: event types to accept; others are skipped.</li>
+ *   <li>{@value #OUTCOMES_CONFIG}: {@code success} and/or {@code failure}; events with
+ *       another outcome are skipped, events without an outcome are accepted.</li>
+ *   <li>{@value #HEADERS_ONLY_CONFIG}: hand accepted events over as {@link EventMetadata}
+ *       instead of decoding them.</li>
+ * </ul>
+ * Records without an {@code event-type} header, from producers that predate the headers,
+ * are always decoded. Header values are compared as bytes, so routing allocates nothing.
+ */
+public final class EventRouter {
+
+    public static final String TYPES_CONFIG = "event.route.types";
+
+    public static final String OUTCOMES_CONFIG = "event.route.outcomes";
+
+    public static final String HEADERS_ONLY_CONFIG = "event.route.headers-only";
+
+    private static final EventRouter DECODE_ALL = new EventRouter(null, null, false);
+
+    public enum Route {
+        /** Not wanted: the payload is never read. */
+        SKIP,
+        /** Wanted, but the headers are all the consumer needs. */
+        HEADERS,
+        /** Decode the payload. */
+        PAYLOAD
+    }
+
+    private final byte[][] types;
+    private final byte[][] outcomes;
+    private final boolean headersOnly;
+
+    private EventRouter(byte[][] types, byte[][] outcomes, boolean headersOnly) {
+        this.types = types;
+        this.outcomes = outcomes;
+        this.headersOnly = headersOnly;
+    }
+
+    public static EventRouter of(Collection<String> types, Collection<String> outcomes, boolean headersOnly) {
+        if (types.isEmpty() && outcomes.isEmpty() && !headersOnly) {
+            return DECODE_ALL;
+        }
+        return new EventRouter(toBytes(types), toBytes(outcomes), headersOnly);
+    }
+
+    public static EventRouter from(Map<String, ?> configs) {
+        Object headersOnly = configs.get(HEADERS_ONLY_CONFIG);
+        return of(values(configs.get(TYPES_CONFIG)), values(configs.get(OUTCOMES_CONFIG)),
+                headersOnly != null && Boolean.parseBoolean(headersOnly.toString().trim()));
+    }
+
+    public Route route(Headers headers) {
+        if (this == DECODE_ALL) {
+            return Route.PAYLOAD;
+        }
+        Header type = headers.lastHeader(EventHeaders.TYPE);
+        if (type == null) {
+            return Route.PAYLOAD;
+        }
+        if (types != null && !contains(types, type.value())) {
+            return Route.SKIP;
+        }
+        if (outcomes != null) {
+            Header outcome = headers.lastHeader(EventHeaders.OUTCOME);
+            if (outcome != null && !contains(outcomes, outcome.value())) {
+                return Route.SKIP;
+            }
+        }
+        return headersOnly ? Route.HEADERS : Route.PAYLOAD;
+    }
+
+    private static boolean contains(byte[][] accepted, byte[] value) {
+        for (byte[] candidate : accepted) {
+            if (Arrays.equals(candidate, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[][] toBytes(Collection<String> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        return values.stream().map(value -> value.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+    }
+
+    private static List<String> values(Object config) {
+        if (config == null) {
+            return List.of();
+        }
+        Collection<?> raw = config instanceof Collection<?> collection ? collection : Arrays.asList(config.toString().split(","));
+        return raw.stream().map(value -> value.toString().trim()).filter(value -> !value.isEmpty()).toList();
+    }
+}
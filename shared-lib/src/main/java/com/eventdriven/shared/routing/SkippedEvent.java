@@ -0,0 +1,19 @@
+package com.eventdriven.shared.routing;
+
+/**
+ * Value {@link com.eventdriven.shared.serde.EventDeserializer} returns for records its
+ * {@link EventRouter} rejects, in place of the undecoded payload. Listener containers drop
+ * these records with {@link SkippedEventFilter} before they reach the listener.
+ */
+public final class SkippedEvent {
+
+    public static final SkippedEvent INSTANCE = new SkippedEvent();
+
+    private SkippedEvent() {
+    }
+
+    @Override
+    public String toString() {
+        return "SkippedEvent";
+    }
+}
@@ -0,0 +1,16 @@
+package com.eventdriven.shared.routing;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+/**
+ * Discards records whose value is {@link SkippedEvent}, so listeners only see the events
+ * their routing accepted. Their offsets are committed with the rest of the poll.
+ */
+public class SkippedEventFilter implements RecordFilterStrategy<Object, Object> {
+
+    @Override
+    public boolean filter(ConsumerRecord<Object, Object> record) {
+        return record.value() == SkippedEvent.INSTANCE;
+    }
+}
@@ -0,0 +1,62 @@
+package com.eventdriven.shared.serde;
+
+import com.eventdriven.shared.events.BaseEvent;
+
+/**
+ * Compact binary encoding of {@link BaseEvent}s: a magic byte, the format version, the
+ * event's type id and its fields in schema order, without field names or class names.
+ * Schemas come from an {@link EventTypeRegistry}.
+ */
+public class BinaryEventCodec {
+
+    static final int MAGIC = 0xBE;
+    static final int FORMAT_VERSION = 1;
+
+    private final EventTypeRegistry registry;
+
+    public BinaryEventCodec() {
+        this(EventTypeRegistry.defaults());
+    }
+
+    public BinaryEventCodec(EventTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    public boolean supports(Class<?> type) {
+        return registry.supports(type);
+    }
+
+    public int schemaVersion(Class<?> type) {
+        return registry.schemaVersion(type);
+    }
+
+    public byte[] encode(BaseEvent event) {
+        return encode(registry.forClass(event.getClass()), event);
+    }
+
+    private static <T> byte[] encode(EventTypeRegistry.Entry<T> entry, Object event) {
+        BinaryWriter out = new BinaryWriter(256);
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeVarint(entry.typeId());
+        entry.schema().write(entry.type().cast(event), out);
+        return out.toByteArray();
+    }
+
+    public BaseEvent decode(byte[] data) {
+        BinaryReader in = new BinaryReader(data);
+        if (in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary event");
+        }
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary event format version " + version);
+        }
+        EventTypeRegistry.Entry<?> entry = registry.forTypeId(Math.toIntExact(in.readVarint()));
+        BaseEvent event = (BaseEvent) entry.schema().read(in);
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after " + entry.type().getSimpleName());
+        }
+        return event;
+    }
+}
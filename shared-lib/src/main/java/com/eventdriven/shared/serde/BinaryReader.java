@@ -0,0 +1,91 @@
+package com.eventdriven.shared.serde;
+
+import java.nio.charset.StandardCharsets;
+
+/** Reads the binary event format from a byte array. */
+final class BinaryReader {
+
+    private final byte[] data;
+    private int position;
+
+    BinaryReader(byte[] data) {
+        this.data = data;
+    }
+
+    int readByte() {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+
+    long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + position);
+    }
+
+    long readSignedVarint() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readLength() {
+        long length = readVarint();
+        if (length < 0 || length > data.length - position) {
+            throw new IllegalArgumentException("Length " + length + " at " + position + " exceeds the remaining " + (data.length - position) + " bytes");
+        }
+        return (int) length;
+    }
+
+    double readDouble() {
+        require(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (data[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    String readString() {
+        int length = readLength();
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /** Skips one value of the given wire type, for fields this reader does not know. */
+    void skip(int wireType) {
+        switch (wireType) {
+            case WireType.NULL, WireType.FALSE, WireType.TRUE -> {
+            }
+            case WireType.VARINT -> readVarint();
+            case WireType.DOUBLE -> {
+                require(8);
+                position += 8;
+            }
+            case WireType.BYTES -> position += readLength();
+            case WireType.LIST, WireType.RECORD -> {
+                long count = readVarint();
+                for (long i = 0; i < count; i++) {
+                    skip(readByte());
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown wire type " + wireType + " at " + (position - 1));
+        }
+    }
+
+    boolean hasRemaining() {
+        return position < data.length;
+    }
+
+    private void require(int bytes) {
+        if (data.length - position < bytes) {
+            throw new IllegalArgumentException("Truncated event: needed " + bytes + " bytes at " + position);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.eventdriven.shared.serde;
+
+/** Record header that tells {@link EventDeserializer} how a value was encoded. */
+public final class EventCodecHeaders {
+
+    /** Absent for JSON values, which carry Spring's type headers instead. */
+    public static final String CODEC = "event-codec";
+
+    public static final String BINARY_V1 = "binary-v1";
+
+    private EventCodecHeaders() {
+    }
+}
@@ -0,0 +1,89 @@
+package com.eventdriven.shared.serde;
+
+import com.eventdriven.shared.routing.EventMetadata;
+import com.eventdriven.shared.routing.EventRouter;
+import com.eventdriven.shared.routing.SkippedEvent;
+import com.eventdriven.shared.tracing.EventTrace;
+import com.eventdriven.shared.tracing.EventTracer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Kafka value deserializer that reads both formats {@link EventSerializer} writes: values
+ * with the {@link EventCodecHeaders#CODEC} header are decoded as binary events, all others
+ * are handed to Spring's {@link JsonDeserializer}, configured from the same properties
+ * ({@code spring.json.trusted.packages} and so on). Consumers switch to it before any
+ * producer writes binary.
+ * <p>
+ * Before decoding, the record's event headers go through the {@link EventRouter} configured
+ * for the consumer: records it rejects come back as {@link SkippedEvent} and records it
+ * routes by headers only as {@link EventMetadata}, in both cases without reading the value.
+ * Records it does not skip have their {@link EventTrace} latencies recorded and a consumed
+ * hop added, when {@value EventTrace#SERVICE_CONFIG} names the consuming service.
+ */
+public class EventDeserializer implements Deserializer<Object> {
+
+    private final JsonDeserializer<Object> json = new JsonDeserializer<>();
+    private final BinaryEventCodec codec;
+    private EventRouter router = EventRouter.from(Map.of());
+    private EventTracer tracer = EventTracer.from(Map.of());
+
+    public EventDeserializer() {
+        this(new BinaryEventCodec());
+    }
+
+    public EventDeserializer(BinaryEventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        router = EventRouter.from(configs);
+        tracer = EventTracer.from(configs);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        EventRouter.Route route = router.route(headers);
+        if (route == EventRouter.Route.SKIP) {
+            return SkippedEvent.INSTANCE;
+        }
+        tracer.consumed(topic, headers);
+        if (route == EventRouter.Route.HEADERS) {
+            return EventMetadata.from(headers);
+        }
+        Header codecHeader = headers.lastHeader(EventCodecHeaders.CODEC);
+        if (codecHeader == null) {
+            return json.deserialize(topic, headers, data);
+        }
+        String format = new String(codecHeader.value(), StandardCharsets.UTF_8);
+        if (!EventCodecHeaders.BINARY_V1.equals(format)) {
+            throw new SerializationException("Unsupported event codec " + format + " on " + topic);
+        }
+        if (data == null) {
+            return null;
+        }
+        try {
+            return codec.decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Cannot decode binary event from " + topic, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
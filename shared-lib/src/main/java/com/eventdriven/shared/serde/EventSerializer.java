@@ -0,0 +1,83 @@
+package com.eventdriven.shared.serde;
+
+import com.eventdriven.shared.events.BaseEvent;
+import com.eventdriven.shared.routing.EventHeaders;
+import com.eventdriven.shared.tracing.EventTrace;
+import com.eventdriven.shared.tracing.EventTracer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Kafka value serializer that writes registered {@link BaseEvent}s in the binary format when
+ * {@value #FORMAT_CONFIG} is {@code binary}, marking them with the
+ * {@link EventCodecHeaders#CODEC} header, and everything else as JSON exactly like Spring's
+ * {@link JsonSerializer}. The default is {@code json}, so switching a producer to binary is
+ * a configuration change once its consumers use {@link EventDeserializer}.
+ * <p>
+ * Every {@link BaseEvent} also gets its {@link EventHeaders}, in either format, so
+ * consumers can route records without reading the payload, and, when
+ * {@value EventTrace#SERVICE_CONFIG} names the producing service, its {@link EventTrace}.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    public static final String FORMAT_CONFIG = "event.codec.format";
+
+    private static final byte[] BINARY_V1 = EventCodecHeaders.BINARY_V1.getBytes(StandardCharsets.UTF_8);
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+    private final BinaryEventCodec codec;
+    private boolean binary;
+    private EventTracer tracer = EventTracer.from(Map.of());
+
+    public EventSerializer() {
+        this(new BinaryEventCodec());
+    }
+
+    public EventSerializer(BinaryEventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object format = configs.get(FORMAT_CONFIG);
+        binary = format != null && "binary".equalsIgnoreCase(format.toString().trim());
+        tracer = EventTracer.from(configs);
+    }
+
+    /** Switches between the binary and the JSON format, for use without {@link #configure}. */
+    public EventSerializer binary(boolean binary) {
+        this.binary = binary;
+        return this;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof BaseEvent event) {
+            EventHeaders.write(headers, event, codec.schemaVersion(event.getClass()));
+            tracer.produced(headers, event.getTimestampMicros());
+        }
+        if (binary && data instanceof BaseEvent event && codec.supports(event.getClass())) {
+            headers.remove(EventCodecHeaders.CODEC);
+            headers.add(EventCodecHeaders.CODEC, BINARY_V1);
+            return codec.encode(event);
+        }
+        // Headers copied from a consumed record, as retries do, may still carry the binary marker
+        headers.remove(EventCodecHeaders.CODEC);
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,154 @@
+package com.eventdriven.shared.serde;
+
+import com.eventdriven.shared.dto.OrderItem;
+import com.eventdriven.shared.events.BaseEvent;
+import com.eventdriven.shared.events.InventoryReservationResultEvent;
+import com.eventdriven.shared.events.InventoryReservedEvent;
+import com.eventdriven.shared.events.InventoryRollbackEvent;
+import com.eventdriven.shared.events.NotificationEvent;
+import com.eventdriven.shared.events.OrderCreatedEvent;
+import com.eventdriven.shared.events.PaymentProcessedEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Type ids and binary schemas of the events {@link BinaryEventCodec} can encode.
+ * <p>
+ * Schema evolution rules, which let producers and consumers of different versions share a
+ * topic:
+ * <ul>
+ *   <li>A type id, once used, always means the same event class; ids are never reused.</li>
+ *   <li>New fields are only appended to the end of a schema. Fields are never removed,
+ *       reordered or given another type; a field that is no longer used is still written,
+ *       as {@code null}.</li>
+ *   <li>Readers skip fields they do not know, and leave fields the writer did not send at
+ *       their defaults, so every new field must be optional for consumers.</li>
+ * </ul>
+ * Every event schema starts with the {@link BaseEvent} fields eventId and timestamp and
+ * ends with timestampMicros, appended after the event's own fields; eventType is implied by
+ * the type id.
+ */
+public final class EventTypeRegistry {
+
+    static final RecordSchema<OrderItem> ORDER_ITEM = RecordSchema.builder(OrderItem::new)
+            .string(OrderItem::getProductId, OrderItem::setProductId)
+            .integer(OrderItem::getQuantity, OrderItem::setQuantity)
+            .decimal(OrderItem::getUnitPrice, OrderItem::setUnitPrice)
+            .build();
+
+    static final RecordSchema<InventoryReservationResultEvent.LineResult> LINE_RESULT =
+            RecordSchema.builder(InventoryReservationResultEvent.LineResult::new)
+                    .string(InventoryReservationResultEvent.LineResult::getProductId, InventoryReservationResultEvent.LineResult::setProductId)
+                    .integer(InventoryReservationResultEvent.LineResult::getQuantity, InventoryReservationResultEvent.LineResult::setQuantity)
+                    .bool(InventoryReservationResultEvent.LineResult::getReserved, InventoryReservationResultEvent.LineResult::setReserved)
+                    .string(InventoryReservationResultEvent.LineResult::getMessage, InventoryReservationResultEvent.LineResult::setMessage)
+                    .build();
+
+    private static final EventTypeRegistry DEFAULT = new EventTypeRegistry()
+            .register(1, OrderCreatedEvent.class, event(OrderCreatedEvent::new)
+                    .string(OrderCreatedEvent::getOrderId, OrderCreatedEvent::setOrderId)
+                    .string(OrderCreatedEvent::getCustomerId, OrderCreatedEvent::setCustomerId)
+                    .list(OrderCreatedEvent::getItems, OrderCreatedEvent::setItems, ORDER_ITEM)
+                    .decimal(OrderCreatedEvent::getTotalAmount, OrderCreatedEvent::setTotalAmount)
+                    .string(OrderCreatedEvent::getShippingAddress, OrderCreatedEvent::setShippingAddress)
+                    .string(OrderCreatedEvent::getPaymentMethod, OrderCreatedEvent::setPaymentMethod)
+                    .longInteger(BaseEvent::getTimestampMicros, BaseEvent::setTimestampMicros)
+                    .build())
+            .register(2, InventoryReservedEvent.class, event(InventoryReservedEvent::new)
+                    .string(InventoryReservedEvent::getOrderId, InventoryReservedEvent::setOrderId)
+                    .string(InventoryReservedEvent::getProductId, InventoryReservedEvent::setProductId)
+                    .integer(InventoryReservedEvent::getQuantity, InventoryReservedEvent::setQuantity)
+                    .bool(InventoryReservedEvent::getSuccess, InventoryReservedEvent::setSuccess)
+                    .string(InventoryReservedEvent::getMessage, InventoryReservedEvent::setMessage)
+                    .longInteger(BaseEvent::getTimestampMicros, BaseEvent::setTimestampMicros)
+                    .build())
+            .register(3, InventoryReservationResultEvent.class, event(InventoryReservationResultEvent::new)
+                    .string(InventoryReservationResultEvent::getOrderId, InventoryReservationResultEvent::setOrderId)
+                    .bool(InventoryReservationResultEvent::getSuccess, InventoryReservationResultEvent::setSuccess)
+                    .string(InventoryReservationResultEvent::getMessage, InventoryReservationResultEvent::setMessage)
+                    .list(InventoryReservationResultEvent::getLines, InventoryReservationResultEvent::setLines, LINE_RESULT)
+                    .longInteger(BaseEvent::getTimestampMicros, BaseEvent::setTimestampMicros)
+                    .build())
+            .register(4, InventoryRollbackEvent.class, event(InventoryRollbackEvent::new)
+                    .string(InventoryRollbackEvent::getOrderId, InventoryRollbackEvent::setOrderId)
+                    .string(InventoryRollbackEvent::getProductId, InventoryRollbackEvent::setProductId)
+                    .integer(InventoryRollbackEvent::getQuantity, InventoryRollbackEvent::setQuantity)
+                    .string(InventoryRollbackEvent::getReason, InventoryRollbackEvent::setReason)
+                    .longInteger(BaseEvent::getTimestampMicros, BaseEvent::setTimestampMicros)
+                    .build())
+            .register(5, PaymentProcessedEvent.class, event(PaymentProcessedEvent::new)
+                    .string(PaymentProcessedEvent::getOrderId, PaymentProcessedEvent::setOrderId)
+                    .string(PaymentProcessedEvent::getCustomerId, PaymentProcessedEvent::setCustomerId)
+                    .decimal(PaymentProcessedEvent::getAmount, PaymentProcessedEvent::setAmount)
+                    .string(PaymentProcessedEvent::getPaymentMethod, PaymentProcessedEvent::setPaymentMethod)
+                    .bool(PaymentProcessedEvent::getSuccess, PaymentProcessedEvent::setSuccess)
+                    .string(PaymentProcessedEvent::getTransactionId, PaymentProcessedEvent::setTransactionId)
+                    .string(PaymentProcessedEvent::getMessage, PaymentProcessedEvent::setMessage)
+                    .longInteger(BaseEvent::getTimestampMicros, BaseEvent::setTimestampMicros)
+                    .build())
+            .register(6, NotificationEvent.class, event(NotificationEvent::new)
+                    .string(NotificationEvent::getOrderId, NotificationEvent::setOrderId)
+                    .string(NotificationEvent::getCustomerId, NotificationEvent::setCustomerId)
+                    .string(NotificationEvent::getNotificationType, NotificationEvent::setNotificationType)
+                    .string(NotificationEvent::getMessage, NotificationEvent::setMessage)
+                    .string(NotificationEvent::getRecipient, NotificationEvent::setRecipient)
+                    .longInteger(BaseEvent::getTimestampMicros, BaseEvent::setTimestampMicros)
+                    .build());
+
+    private final Map<Class<?>, Entry<?>> byClass = new HashMap<>();
+    private final Map<Integer, Entry<?>> byTypeId = new HashMap<>();
+
+    /** The platform's events. */
+    public static EventTypeRegistry defaults() {
+        return DEFAULT;
+    }
+
+    public <T extends BaseEvent> EventTypeRegistry register(int typeId, Class<T> type, RecordSchema<T> schema) {
+        if (byTypeId.containsKey(typeId) || byClass.containsKey(type)) {
+            throw new IllegalArgumentException("Type id " + typeId + " or " + type.getName() + " is already registered");
+        }
+        Entry<T> entry = new Entry<>(typeId, type, schema);
+        byClass.put(type, entry);
+        byTypeId.put(typeId, entry);
+        return this;
+    }
+
+    /** Schema builder for an event class, with the {@link BaseEvent} fields already added. */
+    public static <T extends BaseEvent> RecordSchema.Builder<T> event(Supplier<T> factory) {
+        return RecordSchema.builder(factory)
+                .string(BaseEvent::getEventId, BaseEvent::setEventId)
+                .timestamp(BaseEvent::getTimestamp, BaseEvent::setTimestamp);
+    }
+
+    public boolean supports(Class<?> type) {
+        return byClass.containsKey(type);
+    }
+
+    /** Field count of the type's schema, or 0 when it is not registered. */
+    public int schemaVersion(Class<?> type) {
+        Entry<?> entry = byClass.get(type);
+        return entry == null ? 0 : entry.schema().fieldCount();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Entry<T> forClass(Class<T> type) {
+        Entry<T> entry = (Entry<T>) byClass.get(type);
+        if (entry == null) {
+            throw new IllegalArgumentException("No binary schema registered for " + type.getName());
+        }
+        return entry;
+    }
+
+    Entry<?> forTypeId(int typeId) {
+        Entry<?> entry = byTypeId.get(typeId);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown event type id " + typeId);
+        }
+        return entry;
+    }
+
+    record Entry<T>(int typeId, Class<T> type, RecordSchema<T> schema) {
+    }
+}
@@ -0,0 +1,219 @@
+package com.eventdriven.shared.serde;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Positional binary schema of one class: its fields in a fixed order, read and written
+ * through accessors rather than reflection. A record is written as its field count
+ * followed by one tagged value per field, without field names.
+ * <p>
+ * The field count doubles as the schema version. A reader skips fields past the ones it
+ * knows (written by a newer schema) and leaves fields the writer did not send (an older
+ * schema) at the values the factory gave them; see {@link EventTypeRegistry} for the rules
+ * that keep this safe.
+ */
+public final class RecordSchema<T> {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Supplier<T> factory;
+    private final List<Field<T>> fields;
+
+    private RecordSchema(Supplier<T> factory, List<Field<T>> fields) {
+        this.factory = factory;
+        this.fields = List.copyOf(fields);
+    }
+
+    public static <T> Builder<T> builder(Supplier<T> factory) {
+        return new Builder<>(factory);
+    }
+
+    public int fieldCount() {
+        return fields.size();
+    }
+
+    void write(T record, BinaryWriter out) {
+        out.writeVarint(fields.size());
+        for (Field<T> field : fields) {
+            field.write(record, out);
+        }
+    }
+
+    T read(BinaryReader in) {
+        T record = factory.get();
+        long count = in.readVarint();
+        for (long i = 0; i < count; i++) {
+            int wireType = in.readByte();
+            if (i < fields.size()) {
+                fields.get((int) i).read(record, wireType, in);
+            } else {
+                in.skip(wireType);
+            }
+        }
+        return record;
+    }
+
+    private interface Field<T> {
+
+        void write(T record, BinaryWriter out);
+
+        void read(T record, int wireType, BinaryReader in);
+    }
+
+    public static final class Builder<T> {
+
+        private final Supplier<T> factory;
+        private final List<Field<T>> fields = new ArrayList<>();
+
+        private Builder(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        public Builder<T> string(Function<T, String> getter, BiConsumer<T, String> setter) {
+            return field(getter, setter, WireType.BYTES,
+                    (value, out) -> out.writeString(value),
+                    BinaryReader::readString);
+        }
+
+        public Builder<T> integer(Function<T, Integer> getter, BiConsumer<T, Integer> setter) {
+            return field(getter, setter, WireType.VARINT,
+                    (value, out) -> out.writeSignedVarint(value),
+                    in -> Math.toIntExact(in.readSignedVarint()));
+        }
+
+        public Builder<T> longInteger(Function<T, Long> getter, BiConsumer<T, Long> setter) {
+            return field(getter, setter, WireType.VARINT,
+                    (value, out) -> out.writeSignedVarint(value),
+                    BinaryReader::readSignedVarint);
+        }
+
+        public Builder<T> decimal(Function<T, Double> getter, BiConsumer<T, Double> setter) {
+            return field(getter, setter, WireType.DOUBLE,
+                    (value, out) -> out.writeDouble(value),
+                    BinaryReader::readDouble);
+        }
+
+        public Builder<T> bool(Function<T, Boolean> getter, BiConsumer<T, Boolean> setter) {
+            fields.add(new Field<>() {
+                @Override
+                public void write(T record, BinaryWriter out) {
+                    Boolean value = getter.apply(record);
+                    out.writeByte(value == null ? WireType.NULL : value ? WireType.TRUE : WireType.FALSE);
+                }
+
+                @Override
+                public void read(T record, int wireType, BinaryReader in) {
+                    switch (wireType) {
+                        case WireType.NULL -> setter.accept(record, null);
+                        case WireType.TRUE -> setter.accept(record, true);
+                        case WireType.FALSE -> setter.accept(record, false);
+                        default -> throw unexpected(wireType, "boolean");
+                    }
+                }
+            });
+            return this;
+        }
+
+        /** Nanoseconds since 1970-01-01T00:00 of the local date-time, as if it were UTC. */
+        public Builder<T> timestamp(Function<T, LocalDateTime> getter, BiConsumer<T, LocalDateTime> setter) {
+            return field(getter, setter, WireType.VARINT,
+                    (value, out) -> out.writeSignedVarint(value.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + value.getNano()),
+                    in -> {
+                        long nanos = in.readSignedVarint();
+                        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+                    });
+        }
+
+        public <E> Builder<T> list(Function<T, List<E>> getter, BiConsumer<T, List<E>> setter, RecordSchema<E> elementSchema) {
+            fields.add(new Field<>() {
+                @Override
+                public void write(T record, BinaryWriter out) {
+                    List<E> value = getter.apply(record);
+                    if (value == null) {
+                        out.writeByte(WireType.NULL);
+                        return;
+                    }
+                    out.writeByte(WireType.LIST);
+                    out.writeVarint(value.size());
+                    for (E element : value) {
+                        if (element == null) {
+                            out.writeByte(WireType.NULL);
+                        } else {
+                            out.writeByte(WireType.RECORD);
+                            elementSchema.write(element, out);
+                        }
+                    }
+                }
+
+                @Override
+                public void read(T record, int wireType, BinaryReader in) {
+                    if (wireType == WireType.NULL) {
+                        setter.accept(record, null);
+                        return;
+                    }
+                    if (wireType != WireType.LIST) {
+                        throw unexpected(wireType, "list");
+                    }
+                    int count = in.readLength();
+                    List<E> value = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        int elementType = in.readByte();
+                        if (elementType == WireType.NULL) {
+                            value.add(null);
+                        } else if (elementType == WireType.RECORD) {
+                            value.add(elementSchema.read(in));
+                        } else {
+                            throw unexpected(elementType, "record");
+                        }
+                    }
+                    setter.accept(record, value);
+                }
+            });
+            return this;
+        }
+
+        public RecordSchema<T> build() {
+            return new RecordSchema<>(factory, fields);
+        }
+
+        private <V> Builder<T> field(Function<T, V> getter, BiConsumer<T, V> setter, int wireType,
+                BiConsumer<V, BinaryWriter> writer, Function<BinaryReader, V> reader) {
+            fields.add(new Field<>() {
+                @Override
+                public void write(T record, BinaryWriter out) {
+                    V value = getter.apply(record);
+                    if (value == null) {
+                        out.writeByte(WireType.NULL);
+                    } else {
+                        out.writeByte(wireType);
+                        writer.accept(value, out);
+                    }
+                }
+
+                @Override
+                public void read(T record, int actualType, BinaryReader in) {
+                    if (actualType == WireType.NULL) {
+                        setter.accept(record, null);
+                    } else if (actualType == wireType) {
+                        setter.accept(record, reader.apply(in));
+                    } else {
+                        throw unexpected(actualType, "wire type " + wireType);
+                    }
+                }
+            });
+            return this;
+        }
+
+        private static IllegalArgumentException unexpected(int wireType, String expected) {
+            return new IllegalArgumentException("Unexpected wire type " + wireType + ", expected " + expected
+                    + "; fields must never change type");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.eventdriven.shared.serde;
+
+/**
+ * Tag written before every field value. Values are self-describing, so a reader can skip
+ * fields appended by a newer schema without knowing their types.
+ */
+final class WireType {
+
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    /** Zigzag varint: integers and timestamps. */
+    static final int VARINT = 3;
+    /** 8-byte IEEE 754 double. */
+    static final int DOUBLE = 4;
+    /** Varint length and UTF-8 bytes. */
+    static final int BYTES = 5;
+    /** Varint count and that many tagged values. */
+    static final int LIST = 6;
+    /** Varint field count and that many tagged values. */
+    static final int RECORD = 7;
+
+    private WireType() {
+    }
+}
@@ -0,0 +1,418 @@
+package com.eventdriven.shared.storage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.Bucket;
+import org.springframework.data.redis.core.convert.IndexedData;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+import org.springframework.data.redis.core.convert.SimpleIndexedPropertyValue;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Stores entities as one MessagePack value per key instead of one hash field per property.
+ * <p>
+ * Keys, the keyspace id set, {@code <keyspace>:<field>:<value>} index sets and the
+ * {@code <keyspace>:<id>:idx} tracking set are named as Spring Data Redis names them for
+ * {@code @RedisHash} entities, so index lookups work across both formats, and every read
+ * accepts both a binary value and a hash. Saving an entity that is still a hash replaces
+ * it, which is all a migration does. MessagePack maps can be decoded by Redis Lua scripts
+ * with {@code cmsgpack}, so scripts can keep updating single properties.
+ */
+@Slf4j
+public class BinaryEntityStore<T> {
+
+    private static final RedisScript<Long> SAVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/save-entity.lua"), Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/read-entities.lua"), List.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConverter redisConverter;
+    private final ObjectMapper codec = messagePackMapper();
+    private final Class<T> type;
+    private final String keyspace;
+    private final Function<T, String> idOf;
+    private final Map<String, Function<T, Object>> indexes;
+    private final String migrationGuardField;
+    private final MeterRegistry meterRegistry;
+    private final Timer findTimer;
+
+    /**
+     * @param indexes             index name to property accessor, one per {@code @Indexed} property
+     * @param migrationGuardField hash field every update of the entity changes, so a migration
+     *                            skips hashes updated after it read them; {@code null} for none
+     */
+    public BinaryEntityStore(StringRedisTemplate redisTemplate, RedisConverter redisConverter, MeterRegistry meterRegistry,
+            Class<T> type, String keyspace, Function<T, String> idOf, Map<String, Function<T, Object>> indexes,
+            String migrationGuardField) {
+        this.redisTemplate = redisTemplate;
+        this.redisConverter = redisConverter;
+        this.meterRegistry = meterRegistry;
+        this.type = type;
+        this.keyspace = keyspace;
+        this.idOf = idOf;
+        this.indexes = indexes;
+        this.migrationGuardField = migrationGuardField;
+        this.findTimer = meterRegistry.timer("storage.entity.find", "entity", keyspace);
+    }
+
+    /** MessagePack mapper writing dates as ISO strings and skipping null properties. */
+    public static ObjectMapper messagePackMapper() {
+        return new ObjectMapper(new MessagePackFactory())
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    public String key(String id) {
+        return keyspace + ":" + id;
+    }
+
+    /** Tracking set of the index sets an entity belongs to. */
+    public String indexTracker(String id) {
+        return keyspace + ":" + id + ":idx";
+    }
+
+    /** Index sets {@code entity} belongs to, skipping properties that are {@code null}. */
+    public List<String> indexKeys(T entity) {
+        List<String> keys = new ArrayList<>(indexes.size());
+        indexes.forEach((name, accessor) -> {
+            Object value = accessor.apply(entity);
+            if (value != null) {
+                keys.add(keyspace + ":" + name + ":" + value);
+            }
+        });
+        return keys;
+    }
+
+    public byte[] encode(T entity) {
+        try {
+            byte[] value = codec.writeValueAsBytes(entity);
+            summary(StorageFormat.BINARY).record(value.length);
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode " + keyspace + " " + idOf.apply(entity), e);
+        }
+    }
+
+    public T decode(byte[] value) {
+        try {
+            return codec.readValue(value, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode " + keyspace + " value", e);
+        }
+    }
+
+    /** Reads a hash written by a Spring Data Redis repository. */
+    public T readHash(String id, Map<byte[], byte[]> fields) {
+        RedisData data = new RedisData(Bucket.newBucketFromRawMap(fields));
+        data.setId(id);
+        data.setKeyspace(keyspace);
+        return redisConverter.read(type, data);
+    }
+
+    /**
+     * Writes {@code entity} as one binary value and re-indexes it in one atomic step, replacing
+     * whatever was stored under its key, in either format.
+     */
+    public void save(T entity) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        write(entity, encode(entity), "", "");
+        sample.stop(saveTimer(StorageFormat.BINARY));
+    }
+
+    /**
+     * Runs a hash save through {@code repositorySave}, recording its latency and size under the
+     * same metrics as binary saves so the two formats can be compared.
+     */
+    public T saveAsHash(T entity, Function<T, T> repositorySave) {
+        RedisData data = new RedisData();
+        redisConverter.write(entity, data);
+        summary(StorageFormat.HASH).record(hashSize(data.getBucket().rawMap()));
+        return saveTimer(StorageFormat.HASH).record(() -> repositorySave.apply(entity));
+    }
+
+    /**
+     * Saves entities with one pipelined round trip, each replaced and re-indexed atomically by
+     * the script behind {@link #save}: as binary values, or with {@link StorageFormat#HASH} as
+     * the hash and index entries a repository save writes. Throws if the pipeline fails, in
+     * which case any subset of the entities may have been saved.
+     */
+    public void saveAll(List<T> entities, StorageFormat format) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        List<SaveCall> calls = new ArrayList<>(entities.size());
+        entities.forEach(entity -> calls.add(saveCall(entity, format)));
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        byte[] sha = bytes(SAVE_SCRIPT.getSha1());
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loaded ahead of the calls in the same pipeline, so EVALSHA cannot miss the script
+            connection.scriptingCommands().scriptLoad(bytes(SAVE_SCRIPT.getScriptAsString()));
+            for (SaveCall call : calls) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, call.keys().size(), call.keysAndArgs());
+            }
+            return null;
+        });
+        sample.stop(meterRegistry.timer("storage.entity.save.batch", "entity", keyspace,
+                "format", format.name().toLowerCase()));
+    }
+
+    public Optional<T> findById(String id) {
+        List<T> found = findAllById(List.of(id));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /** Reads the given entities in one round trip per 500 ids, skipping ids that do not exist. */
+    public List<T> findAllById(Collection<String> ids) {
+        List<T> entities = new ArrayList<>(ids.size());
+        List<String> batch = new ArrayList<>(Math.min(ids.size(), BATCH_SIZE));
+        for (String id : ids) {
+            batch.add(id);
+            if (batch.size() == BATCH_SIZE) {
+                readBatch(batch, (entityId, raw) -> entities.add(decode(entityId, raw)));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            readBatch(batch, (entityId, raw) -> entities.add(decode(entityId, raw)));
+        }
+        return entities;
+    }
+
+    public List<T> findAll() {
+        return findAllById(members(keyspace));
+    }
+
+    /** Entities whose {@code index} property equals {@code value}. */
+    public List<T> findByIndex(String index, Object value) {
+        return findAllById(members(keyspace + ":" + index + ":" + value));
+    }
+
+    /**
+     * Rewrites every entity still stored as a hash as a binary value, a page of the keyspace at
+     * a time, and logs the size of both formats. Hashes updated while the migration ran are
+     * left for the next run.
+     */
+    public MigrationReport migrate() {
+        long migrated = 0;
+        long skipped = 0;
+        long hashBytes = 0;
+        long binaryBytes = 0;
+        ScanOptions options = ScanOptions.scanOptions().count(BATCH_SIZE).build();
+        try (Cursor<String> ids = redisTemplate.opsForSet().scan(keyspace, options)) {
+            List<String> page = new ArrayList<>(BATCH_SIZE);
+            while (ids.hasNext()) {
+                page.add(ids.next());
+                if (page.size() < BATCH_SIZE && ids.hasNext()) {
+                    continue;
+                }
+                Map<String, Map<byte[], byte[]>> hashes = new LinkedHashMap<>();
+                readBatch(page, (id, raw) -> {
+                    if (raw instanceof Map<?, ?>) {
+                        hashes.put(id, rawFields(raw));
+                    }
+                });
+                page.clear();
+
+                for (Map.Entry<String, Map<byte[], byte[]>> hash : hashes.entrySet()) {
+                    T entity = readHash(hash.getKey(), hash.getValue());
+                    byte[] value = encode(entity);
+                    String guardValue = migrationGuardField == null ? "" : fieldValue(hash.getValue(), migrationGuardField);
+                    if (write(entity, value, migrationGuardField == null ? "" : migrationGuardField, guardValue)) {
+                        migrated++;
+                        hashBytes += hashSize(hash.getValue());
+                        binaryBytes += value.length;
+                    } else {
+                        skipped++;
+                    }
+                }
+            }
+        }
+        MigrationReport report = new MigrationReport(keyspace, migrated, skipped, hashBytes, binaryBytes);
+        log.info("Migrated {} {} entities to the binary format ({} updated meanwhile, left for the next run); "
+                        + "average size {} bytes as hash, {} bytes as binary",
+                migrated, keyspace, skipped, report.averageHashBytes(), report.averageBinaryBytes());
+        return report;
+    }
+
+    /** Outcome of {@link #migrate()}; sizes count field names and values, not Redis overhead. */
+    public record MigrationReport(String keyspace, long migrated, long skipped, long hashBytes, long binaryBytes) {
+
+        public long averageHashBytes() {
+            return migrated == 0 ? 0 : hashBytes / migrated;
+        }
+
+        public long averageBinaryBytes() {
+            return migrated == 0 ? 0 : binaryBytes / migrated;
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private boolean write(T entity, byte[] value, String guardField, String guardValue) {
+        String id = idOf.apply(entity);
+        List<String> keys = new ArrayList<>();
+        keys.add(key(id));
+        keys.add(keyspace);
+        keys.add(indexTracker(id));
+        keys.addAll(indexKeys(entity));
+        Long written = redisTemplate.execute(SAVE_SCRIPT, (RedisSerializer) RedisSerializer.byteArray(),
+                (RedisSerializer) RedisSerializer.string(), keys,
+                bytes(id), value, bytes(guardField), bytes(guardValue));
+        return written != null && written == 1;
+    }
+
+    /** Keys and arguments of the save script for one unguarded save; see save-entity.lua. */
+    private SaveCall saveCall(T entity, StorageFormat format) {
+        String id = idOf.apply(entity);
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> args = new ArrayList<>();
+        keys.add(bytes(key(id)));
+        keys.add(bytes(keyspace));
+        keys.add(bytes(indexTracker(id)));
+        args.add(bytes(id));
+        if (format == StorageFormat.BINARY) {
+            args.add(encode(entity));
+            args.add(new byte[0]);
+            args.add(new byte[0]);
+            indexKeys(entity).forEach(indexKey -> keys.add(bytes(indexKey)));
+            return new SaveCall(keys, args);
+        }
+        RedisData data = new RedisData();
+        redisConverter.write(entity, data);
+        Map<byte[], byte[]> hash = data.getBucket().rawMap();
+        summary(StorageFormat.HASH).record(hashSize(hash));
+        args.add(new byte[0]);
+        args.add(new byte[0]);
+        args.add(new byte[0]);
+        hash.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        for (IndexedData indexedData : data.getIndexedData()) {
+            if (indexedData instanceof SimpleIndexedPropertyValue indexedValue && indexedValue.getValue() != null) {
+                keys.add(bytes(indexedData.getKeyspace() + ":" + indexedData.getIndexName() + ":" + indexedValue.getValue()));
+            }
+        }
+        return new SaveCall(keys, args);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void readBatch(List<String> ids, BiConsumer<String, Object> consumer) {
+        List<String> keys = new ArrayList<>(ids.size());
+        ids.forEach(id -> keys.add(key(id)));
+        // Raw bytes back, so values and hashes can be decoded
+        List result = findTimer.record(() -> redisTemplate.execute(READ_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer) RedisSerializer.byteArray(), keys));
+        for (int i = 0; i < ids.size(); i++) {
+            Object raw = result.get(i);
+            if (raw instanceof List<?> fields) {
+                Map<byte[], byte[]> hash = new LinkedHashMap<>();
+                for (int f = 0; f + 1 < fields.size(); f += 2) {
+                    hash.put((byte[]) fields.get(f), (byte[]) fields.get(f + 1));
+                }
+                consumer.accept(ids.get(i), hash);
+            } else if (raw instanceof byte[] value && value.length > 0) {
+                consumer.accept(ids.get(i), value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(String id, Object raw) {
+        return raw instanceof Map<?, ?> ? readHash(id, (Map<byte[], byte[]>) raw) : decode((byte[]) raw);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<byte[], byte[]> rawFields(Object raw) {
+        return (Map<byte[], byte[]>) raw;
+    }
+
+    private static String fieldValue(Map<byte[], byte[]> fields, String field) {
+        byte[] name = bytes(field);
+        for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+            if (Arrays.equals(entry.getKey(), name)) {
+                return new String(entry.getValue(), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    private static long hashSize(Map<byte[], byte[]> fields) {
+        long size = 0;
+        for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+            size += entry.getKey().length + entry.getValue().length;
+        }
+        return size;
+    }
+
+    private List<String> members(String set) {
+        List<String> ids = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().count(BATCH_SIZE).build();
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(set, options)) {
+            cursor.forEachRemaining(ids::add);
+        }
+        return ids;
+    }
+
+    private Timer saveTimer(StorageFormat format) {
+        return meterRegistry.timer("storage.entity.save", "entity", keyspace, "format", format.name().toLowerCase());
+    }
+
+    private DistributionSummary summary(StorageFormat format) {
+        return DistributionSummary.builder("storage.entity.bytes")
+                .description("Stored size of one entity, field names and values only for hashes")
+                .baseUnit("bytes")
+                .tags("entity", keyspace, "format", format.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record SaveCall(List<byte[]> keys, List<byte[]> args) {
+
+        private byte[][] keysAndArgs() {
+            List<byte[]> all = new ArrayList<>(keys.size() + args.size());
+            all.addAll(keys);
+            all.addAll(args);
+            return all.toArray(byte[][]::new);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.eventdriven.shared.storage;
+
+/**
+ * How an entity is written to Redis. Reads understand both formats, so a service can switch
+ * format, or migrate, without downtime.
+ */
+public enum StorageFormat {
+
+    /** One hash field per property, as written by a Spring Data Redis repository. */
+    HASH,
+
+    /** One MessagePack value per entity, see {@link BinaryEntityStore}. */
+    BINARY
+}
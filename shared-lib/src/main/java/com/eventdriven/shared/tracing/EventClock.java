@@ -0,0 +1,15 @@
+package com.eventdriven.shared.tracing;
+
+import java.time.Instant;
+
+/** Wall-clock time in microseconds since the epoch, as precise as the platform clock allows. */
+public final class EventClock {
+
+    private EventClock() {
+    }
+
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+}
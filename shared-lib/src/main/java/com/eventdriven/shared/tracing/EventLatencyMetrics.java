@@ -0,0 +1,64 @@
+package com.eventdriven.shared.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The consume-side latency timers. Kept apart from {@link EventTracer} so that the serdes
+ * load without Micrometer on the classpath.
+ */
+final class EventLatencyMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> pipelineTimers = new ConcurrentHashMap<>();
+    private final Map<HopKey, Timer> hopTimers = new ConcurrentHashMap<>();
+
+    private EventLatencyMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    static EventLatencyMetrics of(Object registry) {
+        if (!(registry instanceof MeterRegistry meterRegistry)) {
+            throw new IllegalArgumentException(EventTrace.METER_REGISTRY_CONFIG + " must be a MeterRegistry, not " + registry);
+        }
+        return new EventLatencyMetrics(meterRegistry);
+    }
+
+    void record(String topic, String service, EventTrace trace, long nowMicros) {
+        // Clocks of different hosts disagree a little; a negative latency is skew, not time travel
+        pipelineTimers.computeIfAbsent(topic, this::pipelineTimer)
+                .record(Math.max(0, nowMicros - trace.originMicros()), TimeUnit.MICROSECONDS);
+        EventTrace.Hop produced = trace.last(EventTrace.Kind.PRODUCED);
+        if (produced != null) {
+            hopTimers.computeIfAbsent(new HopKey(topic, produced.service(), service), this::hopTimer)
+                    .record(Math.max(0, nowMicros - produced.atMicros()), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private Timer pipelineTimer(String topic) {
+        return Timer.builder("event.pipeline.latency")
+                .description("Time from the creation of the event chain's first event to this consumer receiving the record")
+                .tag("topic", topic)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer hopTimer(HopKey key) {
+        return Timer.builder("event.hop.latency")
+                .description("Time from the producing service serializing the record to this consumer receiving it")
+                .tag("topic", key.topic())
+                .tag("from", key.from())
+                .tag("to", key.to())
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private record HopKey(String topic, String from, String to) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.eventdriven.shared.tracing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where an event chain started and which services it passed through, carried in two record
+ * headers: {@value #ORIGIN_HEADER}, the epoch microseconds the first event of the chain was
+ * created (an order's {@code OrderCreatedEvent}), and {@value #TRAIL_HEADER}, up to
+ * {@value #MAX_HOPS} hops as {@code service:kind:offset} separated by {@code ;}, where kind
+ * is {@code p} for produced or {@code c} for consumed and offset is microseconds since the
+ * origin. Instances are immutable.
+ */
+public final class EventTrace {
+
+    public static final String ORIGIN_HEADER = "event-origin-us";
+
+    public static final String TRAIL_HEADER = "event-trace";
+
+    /** Producer and consumer config naming the service in the hops it adds. */
+    public static final String SERVICE_CONFIG = "event.trace.service";
+
+    /** Consumer config holding the {@code MeterRegistry} that consumed latencies go to. */
+    public static final String METER_REGISTRY_CONFIG = "event.trace.meter-registry";
+
+    static final int MAX_HOPS = 16;
+
+    public enum Kind {
+        PRODUCED('p'),
+        CONSUMED('c');
+
+        private final char code;
+
+        Kind(char code) {
+            this.code = code;
+        }
+
+        static Kind of(char code) {
+            return code == 'p' ? PRODUCED : code == 'c' ? CONSUMED : null;
+        }
+    }
+
+    public record Hop(String service, Kind kind, long atMicros) {
+    }
+
+    private final long originMicros;
+    private final List<Hop> hops;
+
+    private EventTrace(long originMicros, List<Hop> hops) {
+        this.originMicros = originMicros;
+        this.hops = hops;
+    }
+
+    public static EventTrace start(long originMicros) {
+        return new EventTrace(originMicros, List.of());
+    }
+
+    /** The trace in {@code headers}, or {@code null} when they carry none or it is malformed. */
+    public static EventTrace read(Headers headers) {
+        Header origin = headers.lastHeader(ORIGIN_HEADER);
+        if (origin == null || origin.value() == null) {
+            return null;
+        }
+        try {
+            long originMicros = Long.parseLong(new String(origin.value(), StandardCharsets.UTF_8));
+            Header trail = headers.lastHeader(TRAIL_HEADER);
+            List<Hop> hops = new ArrayList<>();
+            if (trail != null && trail.value() != null && trail.value().length > 0) {
+                for (String hop : new String(trail.value(), StandardCharsets.UTF_8).split(";")) {
+                    int kindAt = hop.lastIndexOf(':', hop.lastIndexOf(':') - 1);
+                    Kind kind = Kind.of(hop.charAt(kindAt + 1));
+                    if (kindAt < 0 || kind == null) {
+                        return null;
+                    }
+                    long offset = Long.parseLong(hop.substring(kindAt + 3));
+                    hops.add(new Hop(hop.substring(0, kindAt), kind, originMicros + offset));
+                }
+            }
+            return new EventTrace(originMicros, List.copyOf(hops));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public long originMicros() {
+        return originMicros;
+    }
+
+    public List<Hop> hops() {
+        return hops;
+    }
+
+    /** The last hop of kind {@code kind}, or {@code null}. */
+    public Hop last(Kind kind) {
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            if (hops.get(i).kind() == kind) {
+                return hops.get(i);
+            }
+        }
+        return null;
+    }
+
+    /** This trace with one more hop, dropping the oldest beyond {@value #MAX_HOPS}. */
+    public EventTrace append(String service, Kind kind, long atMicros) {
+        List<Hop> appended = new ArrayList<>(hops.size() + 1);
+        appended.addAll(hops.size() < MAX_HOPS ? hops : hops.subList(hops.size() - MAX_HOPS + 1, hops.size()));
+        appended.add(new Hop(service, kind, atMicros));
+        return new EventTrace(originMicros, List.copyOf(appended));
+    }
+
+    /** Replaces the trace headers with this trace. */
+    public void write(Headers headers) {
+        StringBuilder trail = new StringBuilder(hops.size() * 32);
+        for (Hop hop : hops) {
+            if (!trail.isEmpty()) {
+                trail.append(';');
+            }
+            trail.append(hop.service()).append(':').append(hop.kind().code).append(':').append(hop.atMicros() - originMicros);
+        }
+        headers.remove(ORIGIN_HEADER);
+        headers.remove(TRAIL_HEADER);
+        headers.add(ORIGIN_HEADER, Long.toString(originMicros).getBytes(StandardCharsets.UTF_8));
+        headers.add(TRAIL_HEADER, trail.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,33 @@
+package com.eventdriven.shared.tracing;
+
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * The trace of the record the current thread is handling, so that events published while
+ * handling it continue its trace instead of starting a new one. The key-ordered listener
+ * enters it around each record; {@code EventSerializer} reads it.
+ */
+public final class EventTraceContext {
+
+    private static final ThreadLocal<EventTrace> CURRENT = new ThreadLocal<>();
+
+    private EventTraceContext() {
+    }
+
+    public static EventTrace current() {
+        return CURRENT.get();
+    }
+
+    /** Makes the trace in {@code headers}, if any, current until the scope is closed. */
+    public static Scope enter(Headers headers) {
+        EventTrace previous = CURRENT.get();
+        CURRENT.set(EventTrace.read(headers));
+        return () -> CURRENT.set(previous);
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
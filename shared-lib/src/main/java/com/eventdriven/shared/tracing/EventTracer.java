@@ -0,0 +1,70 @@
+package com.eventdriven.shared.tracing;
+
+import org.apache.kafka.common.header.Headers;
+
+import java.util.Map;
+
+/**
+ * Maintains the {@link EventTrace} headers for {@code EventSerializer} and
+ * {@code EventDeserializer}, configured from the producer or consumer properties
+ * {@value EventTrace#SERVICE_CONFIG} and {@value EventTrace#METER_REGISTRY_CONFIG}.
+ * Without a service name it does nothing, so serdes created outside a traced service
+ * (benchmarks, tools) neither write nor measure traces.
+ */
+public final class EventTracer {
+
+    private static final EventTracer DISABLED = new EventTracer(null, null);
+
+    private final String service;
+    private final EventLatencyMetrics metrics;
+
+    private EventTracer(String service, EventLatencyMetrics metrics) {
+        this.service = service;
+        this.metrics = metrics;
+    }
+
+    public static EventTracer from(Map<String, ?> configs) {
+        Object service = configs.get(EventTrace.SERVICE_CONFIG);
+        if (service == null || service.toString().isBlank()) {
+            return DISABLED;
+        }
+        Object registry = configs.get(EventTrace.METER_REGISTRY_CONFIG);
+        return new EventTracer(service.toString().trim(), registry != null ? EventLatencyMetrics.of(registry) : null);
+    }
+
+    /**
+     * Adds a produced hop to the trace of the record being handled on this thread, or to
+     * the trace the headers already carry (records copied to a retry tier), or else to a new
+     * trace starting at {@code createdMicros}.
+     */
+    public void produced(Headers headers, Long createdMicros) {
+        if (service == null) {
+            return;
+        }
+        long now = EventClock.nowMicros();
+        EventTrace trace = EventTraceContext.current();
+        if (trace == null) {
+            trace = EventTrace.read(headers);
+        }
+        if (trace == null) {
+            trace = EventTrace.start(createdMicros != null ? createdMicros : now);
+        }
+        trace.append(service, EventTrace.Kind.PRODUCED, now).write(headers);
+    }
+
+    /** Records the record's latencies and adds a consumed hop to its headers. */
+    public void consumed(String topic, Headers headers) {
+        if (service == null) {
+            return;
+        }
+        EventTrace trace = EventTrace.read(headers);
+        if (trace == null) {
+            return;
+        }
+        long now = EventClock.nowMicros();
+        if (metrics != null) {
+            metrics.record(topic, service, trace, now);
+        }
+        trace.append(service, EventTrace.Kind.CONSUMED, now).write(headers);
+    }
+}
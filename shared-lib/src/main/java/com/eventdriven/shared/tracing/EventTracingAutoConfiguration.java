@@ -0,0 +1,47 @@
+package com.eventdriven.shared.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns on {@link EventTrace} propagation in the service's event serdes: the producer and
+ * consumer factories get the service's {@code spring.application.name} as
+ * {@value EventTrace#SERVICE_CONFIG}, and consumers its {@link MeterRegistry} for the
+ * {@code event.pipeline.latency} and {@code event.hop.latency} timers. Disabled with
+ * {@code event.trace.enabled=false}.
+ */
+@AutoConfiguration(after = KafkaAutoConfiguration.class)
+@ConditionalOnClass({KafkaTemplate.class, MeterRegistry.class})
+@ConditionalOnProperty(name = "event.trace.enabled", havingValue = "true", matchIfMissing = true)
+public class EventTracingAutoConfiguration {
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer eventTraceProducerCustomizer(
+            @Value("${spring.application.name:unknown}") String service) {
+        return producerFactory -> producerFactory.updateConfigs(Map.of(EventTrace.SERVICE_CONFIG, service));
+    }
+
+    @Bean
+    public DefaultKafkaConsumerFactoryCustomizer eventTraceConsumerCustomizer(
+            @Value("${spring.application.name:unknown}") String service,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return consumerFactory -> {
+            Map<String, Object> configs = new HashMap<>();
+            configs.put(EventTrace.SERVICE_CONFIG, service);
+            meterRegistry.ifAvailable(registry -> configs.put(EventTrace.METER_REGISTRY_CONFIG, registry));
+            consumerFactory.updateConfigs(configs);
+        };
+    }
+}
@@ -0,0 +1,16 @@
+-- Reads entities stored either as binary values or as Spring Data Redis hashes.
+-- KEYS: entity keys
+-- Returns one entry per key: the value of a binary entity, the HGETALL field list of a hash,
+-- or '' when the key does not exist.
+local result = {}
+for i, key in ipairs(KEYS) do
+    local keyType = redis.call('TYPE', key).ok
+    if keyType == 'string' then
+        result[i] = redis.call('GET', key)
+    elseif keyType == 'hash' then
+        result[i] = redis.call('HGETALL', key)
+    else
+        result[i] = ''
+    end
+end
+return result
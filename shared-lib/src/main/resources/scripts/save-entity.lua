@@ -0,0 +1,32 @@
+-- Replaces an entity with its binary value, or its hash, and re-indexes it in one atomic step.
+-- KEYS[1]: entity key, KEYS[2]: keyspace id set, KEYS[3]: index tracking set of the entity,
+-- KEYS[4..n]: index sets the new value belongs to
+-- ARGV[1]: entity id, ARGV[2]: encoded value ('' to write a hash), ARGV[3]: guard field
+-- ('' for none), ARGV[4]: expected value of the guard field, ARGV[5..]: hash field/value
+-- pairs when ARGV[2] is ''
+-- With a guard the entity is only replaced while it is still a hash whose guard field holds
+-- the expected value, so a migration cannot overwrite a concurrent update.
+-- Index sets listed in the tracking set are the ones Spring Data Redis maintains for
+-- @Indexed fields, so hashes written by a repository are de-indexed too.
+-- Returns 1 when written, 0 when the guard failed.
+if ARGV[3] ~= '' then
+    if redis.call('TYPE', KEYS[1]).ok ~= 'hash' or (redis.call('HGET', KEYS[1], ARGV[3]) or '') ~= ARGV[4] then
+        return 0
+    end
+end
+
+for _, indexKey in ipairs(redis.call('SMEMBERS', KEYS[3])) do
+    redis.call('SREM', indexKey, ARGV[1])
+end
+redis.call('DEL', KEYS[1], KEYS[3])
+if ARGV[2] ~= '' then
+    redis.call('SET', KEYS[1], ARGV[2])
+else
+    redis.call('HSET', KEYS[1], unpack(ARGV, 5))
+end
+redis.call('SADD', KEYS[2], ARGV[1])
+for i = 4, #KEYS do
+    redis.call('SADD', KEYS[i], ARGV[1])
+    redis.call('SADD', KEYS[3], KEYS[i])
+end
+return 1